@@ -0,0 +1,28 @@
+package com.example.kuby.datasource;
+
+import java.util.regex.Pattern;
+
+// the WAL position a client last wrote at, read-only transactions only use a replica that has replayed it
+public final class ConsistencyTokenContext {
+    public static final String HEADER = "X-Consistency-Token";
+
+    private static final Pattern LSN = Pattern.compile("[0-9A-Fa-f]{1,8}/[0-9A-Fa-f]{1,8}");
+    private static final ThreadLocal<String> requiredLsn = new ThreadLocal<>();
+
+    private ConsistencyTokenContext() {
+    }
+
+    // a malformed token is ignored rather than rejected, the read is then only eventually consistent
+    public static void set(String token) {
+        if (token != null && LSN.matcher(token).matches())
+            requiredLsn.set(token);
+    }
+
+    public static String get() {
+        return requiredLsn.get();
+    }
+
+    public static void clear() {
+        requiredLsn.remove();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.kuby.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ConsistencyTokenContext.set(request.getHeader(ConsistencyTokenContext.HEADER));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ConsistencyTokenContext.clear();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.kuby.datasource;
+
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.recurrence.TaskSeriesChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+// hands the writing client the primary's WAL position after its change committed,
+// sent back as X-Consistency-Token it keeps the next read off replicas that have not replayed that far
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "replica.enabled", havingValue = "true")
+public class ConsistencyTokenIssuer {
+    private static final String CURRENT_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // outside a read-only transaction, so this asks the primary of the user's shard
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        issue();
+    }
+
+    // series reads are read-only too, a new or deleted series or a skipped occurrence has to be seen by them
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskSeriesChanged(TaskSeriesChangedEvent event) {
+        issue();
+    }
+
+    private void issue() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)
+                || attributes.getResponse() == null)
+            return;
+
+        attributes.getResponse().setHeader(ConsistencyTokenContext.HEADER,
+                jdbcTemplate.queryForObject(CURRENT_LSN_SQL, String.class));
+    }
+}
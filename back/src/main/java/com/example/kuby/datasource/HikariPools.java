@@ -0,0 +1,18 @@
+package com.example.kuby.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+final class HikariPools {
+    private HikariPools() {
+    }
+
+    static HikariDataSource create(String name, String url, String username, String password, int maximumPoolSize) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(maximumPoolSize);
+        return pool;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.kuby.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// a replica pool next to the spring.datasource one, sharded setups configure replicas per shard instead
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnExpression("${replica.enabled:false} and !${sharding.enabled:false}")
+public class ReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaDataSource(ReplicaProperties replica) {
+        return HikariPools.create("replica", replica.url(), replica.username(), replica.password(), replica.maximumPoolSize());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 HikariDataSource replicaDataSource,
+                                 ReplicaProperties replica,
+                                 MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                "default", primaryDataSource, replicaDataSource, replica.lagWaitMs(), meterRegistry));
+    }
+}
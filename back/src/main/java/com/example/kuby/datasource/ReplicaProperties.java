@@ -0,0 +1,13 @@
+package com.example.kuby.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "replica")
+public record ReplicaProperties(boolean enabled,
+                                String url,
+                                String username,
+                                String password,
+                                @DefaultValue("8") int maximumPoolSize,
+                                @DefaultValue("50") long lagWaitMs) {
+}
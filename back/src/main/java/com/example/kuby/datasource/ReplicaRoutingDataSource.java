@@ -0,0 +1,102 @@
+package com.example.kuby.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// read-only transactions go to the replica, everything else to the primary. Like the shard router it decides when
+// the connection is opened, so it needs a LazyConnectionDataSourceProxy in front to see the transaction's read-only flag
+@Slf4j
+class ReplicaRoutingDataSource extends AbstractDataSource {
+    private static final long POLL_MILLIS = 5;
+    // a primary promoted into this role has no replay position and is always current
+    private static final String REPLAYED_SQL = "SELECT coalesce(pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn), true)";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long lagWaitMillis;
+    private final Counter lagFallbacks;
+    private final Counter unavailableFallbacks;
+
+    ReplicaRoutingDataSource(String name, DataSource primary, DataSource replica, long lagWaitMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagWaitMillis = lagWaitMillis;
+        this.lagFallbacks = Counter.builder("datasource.replica.fallbacks")
+                .description("Read-only transactions sent to the primary instead of the replica")
+                .tag("pool", name)
+                .tag("reason", "lag")
+                .register(meterRegistry);
+        this.unavailableFallbacks = Counter.builder("datasource.replica.fallbacks")
+                .description("Read-only transactions sent to the primary instead of the replica")
+                .tag("pool", name)
+                .tag("reason", "unavailable")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    // same routing, the credentials go to whichever pool is picked
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            return opener.open(primary);
+
+        Connection connection;
+        try {
+            connection = opener.open(replica);
+        } catch (SQLException ex) {
+            log.warn("Replica is unavailable, reading from the primary", ex);
+            unavailableFallbacks.increment();
+            return opener.open(primary);
+        }
+
+        String requiredLsn = ConsistencyTokenContext.get();
+        if (requiredLsn == null || hasReplayed(connection, requiredLsn))
+            return connection;
+
+        connection.close();
+        lagFallbacks.increment();
+        return opener.open(primary);
+    }
+
+    // polls the replica for a short while, a replica a little behind usually catches up sooner than a primary read queues
+    private boolean hasReplayed(Connection connection, String lsn) throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lagWaitMillis);
+        try (PreparedStatement statement = connection.prepareStatement(REPLAYED_SQL)) {
+            statement.setString(1, lsn);
+            while (true) {
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1))
+                        return true;
+                }
+                if (System.nanoTime() >= deadline)
+                    return false;
+                Thread.sleep(POLL_MILLIS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private interface ConnectionOpener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+}
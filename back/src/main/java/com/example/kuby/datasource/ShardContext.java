@@ -0,0 +1,35 @@
+package com.example.kuby.datasource;
+
+import java.util.function.Supplier;
+
+// pins the shard for code running without a USER_ID claim: login, background jobs, resharding
+public final class ShardContext {
+    private static final ThreadLocal<String> currentShard = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String get() {
+        return currentShard.get();
+    }
+
+    public static <T> T call(String shard, Supplier<T> action) {
+        String previous = currentShard.get();
+        currentShard.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null)
+                currentShard.remove();
+            else
+                currentShard.set(previous);
+        }
+    }
+
+    public static void run(String shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
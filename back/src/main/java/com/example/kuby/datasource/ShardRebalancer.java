@@ -0,0 +1,147 @@
+package com.example.kuby.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// moves every user that the current ring places elsewhere to its new shard, run it once after changing sharding.shards:
+// java -jar app.jar --sharding.rebalance=true
+// Writes for a user arriving between the copy and the delete would be lost, so traffic has to be stopped while it runs
+@Slf4j
+@Component
+@ConditionalOnProperty(name = {"sharding.enabled", "sharding.rebalance"}, havingValue = "true")
+public class ShardRebalancer {
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private static final String USER_IDS_AFTER_SQL = "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    // the user's tasks only change place, the outbox triggers (V8) must not report them as created and deleted
+    private static final String SKIP_OUTBOX_SQL = "SELECT set_config('task.outbox_skip', 'on', true)";
+
+    private static final String LOCK_USER_SQL = "SELECT id FROM users WHERE id = ? FOR UPDATE";
+
+    // in foreign key order, every query takes the user id once
+    private static final Map<String, String> USER_ROWS_SQL = Map.of(
+            "users", "SELECT * FROM users WHERE id = ?",
+            "access_token", "SELECT * FROM access_token WHERE id IN (SELECT access_token_id FROM tokens WHERE user_id = ?)",
+            "refresh_token", "SELECT * FROM refresh_token WHERE id IN (SELECT refresh_token_id FROM tokens WHERE user_id = ?)",
+            "tokens", "SELECT * FROM tokens WHERE user_id = ?",
+            "task", "SELECT * FROM task WHERE creator_id = ?",
+            "task_sync_state", "SELECT * FROM task_sync_state WHERE user_id = ?",
+            "task_tombstone", "SELECT * FROM task_tombstone WHERE creator_id = ?",
+            "task_archive", "SELECT * FROM task_archive WHERE creator_id = ?",
+            "task_series", "SELECT * FROM task_series WHERE creator_id = ?",
+            "task_occurrence", "SELECT o.* FROM task_occurrence o JOIN task_series s ON s.id = o.series_id WHERE s.creator_id = ?");
+    private static final List<String> COPY_ORDER = List.of(
+            "users", "access_token", "refresh_token", "tokens", "task", "task_sync_state", "task_tombstone", "task_archive",
+            "task_series", "task_occurrence");
+
+    private static final List<String> DELETE_USER_SQL = List.of(
+            "DELETE FROM task_archive WHERE creator_id = ?",
+            // takes the series' task_occurrence rows with it
+            "DELETE FROM task_series WHERE creator_id = ?",
+            "DELETE FROM task_tombstone WHERE creator_id = ?",
+            "DELETE FROM task_sync_state WHERE user_id = ?",
+            "DELETE FROM task WHERE creator_id = ?",
+            // the task_stats triggers count the copied tasks in on the target, here only the zeroed row is left
+            "DELETE FROM task_stats WHERE user_id = ?",
+            "WITH removed AS (DELETE FROM tokens WHERE user_id = ? RETURNING access_token_id, refresh_token_id), " +
+                    "removed_access AS (DELETE FROM access_token WHERE id IN (SELECT access_token_id FROM removed)) " +
+                    "DELETE FROM refresh_token WHERE id IN (SELECT refresh_token_id FROM removed)",
+            "DELETE FROM users WHERE id = ?");
+
+    private final ShardedDataSources shards;
+    private final int batchSize;
+
+    public ShardRebalancer(ShardedDataSources shards,
+                           @Value("${sharding.rebalance-batch-size:500}") int batchSize) {
+        this.shards = shards;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalance() {
+        for (String source : shards.names()) {
+            try {
+                log.info("Moved {} users off shard {}", rebalanceShard(source), source);
+            } catch (SQLException | RuntimeException ex) {
+                log.error("Rebalancing shard {} failed, already moved users stay moved and a rerun continues", source, ex);
+            }
+        }
+    }
+
+    private long rebalanceShard(String source) throws SQLException {
+        JdbcTemplate sourceJdbc = new JdbcTemplate(shards.dataSource(source));
+        long moved = 0;
+        UUID last = FIRST_ID;
+        while (true) {
+            List<UUID> userIds = sourceJdbc.queryForList(USER_IDS_AFTER_SQL, UUID.class, last, batchSize);
+            if (userIds.isEmpty())
+                return moved;
+
+            for (UUID userId : userIds) {
+                String target = shards.router().shardFor(userId);
+                if (!target.equals(source)) {
+                    moveUser(userId, source, target);
+                    moved++;
+                }
+            }
+            last = userIds.getLast();
+        }
+    }
+
+    // the copy commits on the target before the source rows go, a failure in between leaves the user on both shards
+    // and the rerun skips the existing copies with ON CONFLICT DO NOTHING
+    public void moveUser(UUID userId, String source, String target) throws SQLException {
+        try (Connection sourceConnection = shards.dataSource(source).getConnection();
+             Connection targetConnection = shards.dataSource(target).getConnection()) {
+            sourceConnection.setAutoCommit(false);
+            targetConnection.setAutoCommit(false);
+            JdbcTemplate sourceJdbc = new JdbcTemplate(new SingleConnectionDataSource(sourceConnection, true));
+            JdbcTemplate targetJdbc = new JdbcTemplate(new SingleConnectionDataSource(targetConnection, true));
+
+            try {
+                sourceJdbc.queryForObject(SKIP_OUTBOX_SQL, String.class);
+                targetJdbc.queryForObject(SKIP_OUTBOX_SQL, String.class);
+                sourceJdbc.queryForList(LOCK_USER_SQL, UUID.class, userId);
+                for (String table : COPY_ORDER)
+                    copyRows(table, sourceJdbc.queryForList(USER_ROWS_SQL.get(table), userId), targetJdbc);
+                targetConnection.commit();
+
+                for (String sql : DELETE_USER_SQL)
+                    sourceJdbc.update(sql, userId);
+                sourceConnection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                targetConnection.rollback();
+                sourceConnection.rollback();
+                throw ex;
+            }
+        }
+        log.debug("Moved user {} from shard {} to {}", userId, source, target);
+    }
+
+    private static void copyRows(String table, List<Map<String, Object>> rows, JdbcTemplate targetJdbc) {
+        if (rows.isEmpty())
+            return;
+
+        List<String> columns = List.copyOf(rows.getFirst().keySet());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+                columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ") " +
+                "ON CONFLICT DO NOTHING";
+        targetJdbc.batchUpdate(sql, rows.stream()
+                .map(row -> columns.stream().map(row::get).toArray())
+                .toList());
+    }
+}
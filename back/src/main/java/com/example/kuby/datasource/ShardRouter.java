@@ -0,0 +1,54 @@
+package com.example.kuby.datasource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// consistent hash ring, every shard owns virtualNodes points so adding a shard only moves about 1/N of the users
+public final class ShardRouter {
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> shards;
+
+    public ShardRouter(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("At least one shard is required");
+        if (virtualNodes < 1)
+            throw new IllegalArgumentException("Virtual nodes must be positive");
+
+        this.shards = shards.stream().sorted().toList();
+        for (String shard : this.shards)
+            for (int node = 0; node < virtualNodes; node++)
+                ring.put(hash(shard + "#" + node), shard);
+    }
+
+    public String shardFor(UUID userId) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(userId.toString()));
+        return (owner != null ? owner : ring.firstEntry()).getValue();
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    // connections opened without a user behind them (bootstrap, schema validation) go here
+    public String defaultShard() {
+        return shards.getFirst();
+    }
+
+    // md5 only for its spread, it has to give the same positions on every node and JVM
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
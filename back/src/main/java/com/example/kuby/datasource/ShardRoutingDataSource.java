@@ -0,0 +1,36 @@
+package com.example.kuby.datasource;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+// the key is resolved when a connection is opened, so it sits behind a LazyConnectionDataSourceProxy:
+// a transaction started before the shard is known only takes its connection at the first statement
+class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final ShardRouter router;
+
+    ShardRoutingDataSource(ShardRouter router, Map<String, DataSource> shards) {
+        this.router = router;
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(router.defaultShard()));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.get();
+        if (shard != null)
+            return shard;
+
+        if (TokenClaimContext.get() != null)
+            return router.shardFor(TokenClaimContext.getIdByKey(USER_ID));
+
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.kuby.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// one pool per shard, the routing data source and the jobs that have to visit every shard share them
+public class ShardedDataSources implements AutoCloseable {
+    private final Map<String, HikariDataSource> dataSources;
+    private final Map<String, HikariDataSource> replicas;
+    private final ShardRouter router;
+
+    public ShardedDataSources(Map<String, HikariDataSource> dataSources, Map<String, HikariDataSource> replicas, ShardRouter router) {
+        this.dataSources = Map.copyOf(dataSources);
+        this.replicas = Map.copyOf(replicas);
+        this.router = router;
+    }
+
+    public ShardRouter router() {
+        return router;
+    }
+
+    public List<String> names() {
+        return router.shards();
+    }
+
+    // always the shard's primary, jobs writing through it must not land on a replica
+    public DataSource dataSource(String shard) {
+        DataSource dataSource = dataSources.get(shard);
+        if (dataSource == null)
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        return dataSource;
+    }
+
+    Optional<DataSource> replica(String shard) {
+        return Optional.ofNullable(replicas.get(shard));
+    }
+
+    @Override
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+        replicas.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.kuby.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+// replaces the single spring.datasource pool with one pool per sharding.shards.<name> entry
+@Slf4j
+@Configuration
+@EnableConfigurationProperties({ShardingProperties.class, ReplicaProperties.class})
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardedDataSources shardedDataSources(ShardingProperties properties, ReplicaProperties replica) {
+        if (properties.shards() == null || properties.shards().isEmpty())
+            throw new IllegalStateException("sharding.enabled is set but no sharding.shards are configured");
+
+        Map<String, HikariDataSource> pools = new HashMap<>();
+        Map<String, HikariDataSource> replicas = new HashMap<>();
+        properties.shards().forEach((name, shard) -> {
+            pools.put(name, HikariPools.create("shard-" + name,
+                    shard.url(), shard.username(), shard.password(), shard.maximumPoolSize()));
+            if (replica.enabled() && shard.replicaUrl() != null)
+                replicas.put(name, HikariPools.create("shard-" + name + "-replica",
+                        shard.replicaUrl(), shard.username(), shard.password(), shard.maximumPoolSize()));
+        });
+        return new ShardedDataSources(pools, replicas, new ShardRouter(pools.keySet(), properties.virtualNodes()));
+    }
+
+    // routing picks the shard first, the shard's replica routing then picks primary or replica
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardedDataSources shards, ReplicaProperties replica, MeterRegistry meterRegistry) {
+        Map<String, DataSource> targets = new HashMap<>();
+        for (String shard : shards.names()) {
+            DataSource primary = shards.dataSource(shard);
+            targets.put(shard, shards.replica(shard)
+                    .<DataSource>map(replicaPool -> new ReplicaRoutingDataSource(
+                            shard, primary, replicaPool, replica.lagWaitMs(), meterRegistry))
+                    .orElse(primary));
+        }
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards.router(), targets));
+    }
+
+    // Boot only migrates the primary data source, which would be whichever shard the default key picks
+    @Bean
+    public FlywayMigrationStrategy shardedFlywayMigrationStrategy(ShardedDataSources shards) {
+        return flyway -> shards.names().forEach(shard -> {
+            log.info("Migrating shard {}", shard);
+            Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(shards.dataSource(shard))
+                    .load()
+                    .migrate();
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.kuby.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "sharding")
+public record ShardingProperties(boolean enabled,
+                                 @DefaultValue("160") int virtualNodes,
+                                 Map<String, Shard> shards) {
+    // replicaUrl is used with the shard's credentials once replica.enabled is set
+    public record Shard(String url, String username, String password, @DefaultValue("8") int maximumPoolSize, String replicaUrl) {
+    }
+}
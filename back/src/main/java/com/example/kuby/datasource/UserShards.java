@@ -0,0 +1,182 @@
+package com.example.kuby.datasource;
+
+import com.example.kuby.security.models.enums.Provider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// entry points for code that has to pick a shard itself, all of them just run the action when sharding is off.
+// Call them before the first statement of a transaction, the connection is bound to the shard it was opened on.
+// Users are placed by id, emails are found through user_email_directory on the default shard (see V12)
+@Slf4j
+@Component
+public class UserShards {
+    private static final UUID FIRST_ID = new UUID(0, 0);
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private static final String FIND_USER_ID_SQL = "SELECT user_id FROM user_email_directory WHERE provider = ? AND email = ?";
+
+    private static final String CLAIM_EMAIL_SQL = "INSERT INTO user_email_directory (provider, email, user_id) VALUES (?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String TAKE_OVER_EMAIL_SQL = "UPDATE user_email_directory SET user_id = ? " +
+            "WHERE provider = ? AND email = ? AND user_id = ?";
+
+    private static final String RELEASE_EMAIL_SQL = "DELETE FROM user_email_directory " +
+            "WHERE provider = ? AND email = ? AND user_id = ?";
+
+    private static final String USER_ID_EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)";
+
+    private static final String USER_EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM users WHERE email = ? AND provider = ?)";
+
+    private static final String USERS_AFTER_SQL = "SELECT id, provider, email FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final ShardedDataSources shards;
+    // until the startup backfill is through, an email missing from the directory may still be on some shard
+    private volatile boolean directoryComplete;
+
+    public UserShards(ObjectProvider<ShardedDataSources> shards) {
+        this.shards = shards.getIfAvailable();
+    }
+
+    public <T> T callForUser(UUID userId, Supplier<T> action) {
+        if (shards == null)
+            return action.get();
+        return ShardContext.call(shards.router().shardFor(userId), action);
+    }
+
+    // one directory read, then the user's own shard; an unknown email runs on the default shard
+    public <T> T callForEmail(String email, Provider provider, Supplier<T> action) {
+        if (shards == null)
+            return action.get();
+        return ShardContext.call(findShardByEmail(email, provider).orElse(shards.router().defaultShard()), action);
+    }
+
+    // signups on different shards share one uniqueness check: the email is claimed in the directory, and the claim
+    // commits only after insert has committed the user on its shard. A concurrent signup for the same email waits on
+    // the uncommitted claim and then finds it taken. False when the email belongs to another user
+    public boolean callForNewUser(UUID userId, String email, Provider provider, Runnable insert) {
+        if (shards == null) {
+            insert.run();
+            return true;
+        }
+
+        try (Connection connection = shards.dataSource(shards.router().defaultShard()).getConnection()) {
+            connection.setAutoCommit(false);
+            JdbcTemplate directory = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            try {
+                if (!claimEmail(directory, userId, email, provider)) {
+                    connection.rollback();
+                    return false;
+                }
+                ShardContext.run(shards.router().shardFor(userId), insert);
+                // failing here leaves the user out of the directory until the next startup backfill adds it
+                connection.commit();
+                return true;
+            } catch (RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessResourceFailureException("User email directory is unavailable", ex);
+        }
+    }
+
+    public void releaseEmail(UUID userId, String email, Provider provider) {
+        if (shards == null)
+            return;
+        directory().update(RELEASE_EMAIL_SQL, provider.name(), email, userId);
+    }
+
+    public void forEachShard(Runnable action) {
+        if (shards == null) {
+            action.run();
+            return;
+        }
+        shards.names().forEach(shard -> ShardContext.run(shard, action));
+    }
+
+    // adds users from before the directory and ones whose claim failed to commit, in the background like
+    // TaskPartitionMigrator. Logins meanwhile ask the shards one by one for emails the directory does not know yet
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDirectoryBackfill() {
+        if (shards == null)
+            return;
+        Thread.ofPlatform().name("user-email-directory-backfill").daemon().start(() -> {
+            try {
+                for (String shard : shards.names())
+                    log.info("Added {} users of shard {} to the email directory", backfillShard(shard), shard);
+                directoryComplete = true;
+            } catch (RuntimeException ex) {
+                log.error("User email directory backfill failed, it resumes on the next start", ex);
+            }
+        });
+    }
+
+    private long backfillShard(String shard) {
+        JdbcTemplate source = new JdbcTemplate(shards.dataSource(shard));
+        long added = 0;
+        UUID last = FIRST_ID;
+        while (true) {
+            List<Map<String, Object>> users = source.queryForList(USERS_AFTER_SQL, last, BACKFILL_BATCH_SIZE);
+            if (users.isEmpty())
+                return added;
+
+            for (int inserted : directory().batchUpdate(CLAIM_EMAIL_SQL, users.stream()
+                    .map(user -> new Object[]{user.get("provider"), user.get("email"), user.get("id")})
+                    .toList()))
+                added += inserted;
+            last = (UUID) users.getLast().get("id");
+        }
+    }
+
+    // a claim whose user is gone (deleted, or its signup failed after claiming) is taken over. A claim whose signup is
+    // still running is uncommitted, the insert above waited for it and its user is committed by then
+    private boolean claimEmail(JdbcTemplate directory, UUID userId, String email, Provider provider) {
+        if (directory.update(CLAIM_EMAIL_SQL, provider.name(), email, userId) == 1)
+            return true;
+
+        List<UUID> owner = directory.queryForList(FIND_USER_ID_SQL, UUID.class, provider.name(), email);
+        if (owner.isEmpty())
+            return directory.update(CLAIM_EMAIL_SQL, provider.name(), email, userId) == 1;
+        if (userExists(owner.getFirst()))
+            return false;
+        return directory.update(TAKE_OVER_EMAIL_SQL, userId, provider.name(), email, owner.getFirst()) == 1;
+    }
+
+    private boolean userExists(UUID userId) {
+        return Boolean.TRUE.equals(new JdbcTemplate(shards.dataSource(shards.router().shardFor(userId)))
+                .queryForObject(USER_ID_EXISTS_SQL, Boolean.class, userId));
+    }
+
+    private Optional<String> findShardByEmail(String email, Provider provider) {
+        List<UUID> userId = directory().queryForList(FIND_USER_ID_SQL, UUID.class, provider.name(), email);
+        if (!userId.isEmpty())
+            return Optional.of(shards.router().shardFor(userId.getFirst()));
+        if (directoryComplete)
+            return Optional.empty();
+
+        // probes go straight to the shard pools so they never bind the caller's transaction to a shard
+        return shards.names().stream()
+                .filter(shard -> Boolean.TRUE.equals(new JdbcTemplate(shards.dataSource(shard))
+                        .queryForObject(USER_EXISTS_SQL, Boolean.class, email, provider.name())))
+                .findFirst();
+    }
+
+    private JdbcTemplate directory() {
+        return new JdbcTemplate(shards.dataSource(shards.router().defaultShard()));
+    }
+}
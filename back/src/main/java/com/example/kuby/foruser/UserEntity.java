@@ -3,6 +3,7 @@ package com.example.kuby.foruser;
 import com.example.kuby.security.models.enums.Provider;
 import com.example.kuby.security.models.enums.UserRole;
 import com.example.kuby.todolist.Task;
+import com.example.kuby.utils.GeneratedUuidV7;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,12 +21,12 @@ import java.util.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "users", indexes = {
-        @Index(name = "users_provider_email_idx", columnList = "provider, email")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = "users_provider_email_key", columnNames = {"provider", "email"})
 })
 public class UserEntity implements CustomUserDetails, Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     private UUID id;
     @Column(nullable = false)
     private String email;
@@ -1,9 +1,11 @@
 package com.example.kuby.foruser;
 
+import com.example.kuby.datasource.UserShards;
 import com.example.kuby.exceptions.BasicException;
 import com.example.kuby.security.models.enums.Provider;
 import com.example.kuby.security.models.enums.UserRole;
 import com.example.kuby.security.repos.token.TokensRepo;
+import com.example.kuby.utils.UuidV7;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -22,44 +24,62 @@ public class UserService {
     private final UserRepo userRepo;
     private final TokensRepo tokensRepo;
     private final PasswordEncoder encoder;
-    @Transactional
+    private final UserShards userShards;
+
+    // the shard check only covers the user's own shard, with sharding on the email directory covers all of them
     public void createLocalUser(String email, String password) {
-        if (userRepo.existsByEmailAndProvider(email, Provider.LOCAL))
-            throw new BasicException(Map.of("email", "Email is already taken"), HttpStatus.BAD_REQUEST);
-        
-        userRepo.save(UserEntity.builder()
-                .email(email)
-                .password(encoder.encode(password))
-                .isEmailSubmitted(true)
-                .registrationDate(LocalDateTime.now())
-                .provider(Provider.LOCAL)
-                .roles(UserRole.USER)
-                .build());
+        UUID userId = UuidV7.generate();
+        boolean created = userShards.callForNewUser(userId, email, Provider.LOCAL, () -> {
+            if (userRepo.existsByEmailAndProvider(email, Provider.LOCAL))
+                throw emailTaken();
+            userRepo.save(UserEntity.builder()
+                    .id(userId)
+                    .email(email)
+                    .password(encoder.encode(password))
+                    .isEmailSubmitted(true)
+                    .registrationDate(LocalDateTime.now())
+                    .provider(Provider.LOCAL)
+                    .roles(UserRole.USER)
+                    .build());
+        });
+        if (!created)
+            throw emailTaken();
     }
+
     public void updateIsEmailSubmittedByEmailAndProvider(String email, Provider provider){
-        if (userRepo.updateIsEmailSubmittedByEmailAndProvider(email, provider) != 1)
+        if (userShards.callForEmail(email, provider, () -> userRepo.updateIsEmailSubmittedByEmailAndProvider(email, provider)) != 1)
             throw new BasicException(Map.of("email", "User with such email not found"), HttpStatus.NOT_FOUND);
     }
 
     public Optional<UserEntity> findByEmailAndProvider(String email, Provider provider){
-        return userRepo.findByEmailAndProvider(email,provider);
+        return userShards.callForEmail(email, provider, () -> userRepo.findByEmailAndProvider(email, provider));
     }
 
     @Transactional
     public void deleteUserById(UUID userId) {
-        UserEntity users = userRepo.findById(userId).orElseThrow(() ->
-                new BasicException(Map.of("userId", "User with such id not found"), HttpStatus.NOT_FOUND));
-        tokensRepo.deleteByUsers(users);
-        userRepo.delete(users);
+        userShards.callForUser(userId, () -> {
+            UserEntity users = userRepo.findById(userId).orElseThrow(() ->
+                    new BasicException(Map.of("userId", "User with such id not found"), HttpStatus.NOT_FOUND));
+            tokensRepo.deleteByUsers(users);
+            userRepo.delete(users);
+            userShards.releaseEmail(userId, users.getEmail(), users.getProvider());
+            return null;
+        });
     }
 
     @Transactional
     public void changePassword(String email, String password) {
-        UserEntity user = userRepo.findByEmailAndProvider(email, Provider.LOCAL).orElseThrow(() ->
-                new BasicException(Map.of("email", "User with such email not found"), HttpStatus.NOT_FOUND));
+        userShards.callForEmail(email, Provider.LOCAL, () -> {
+            UserEntity user = userRepo.findByEmailAndProvider(email, Provider.LOCAL).orElseThrow(() ->
+                    new BasicException(Map.of("email", "User with such email not found"), HttpStatus.NOT_FOUND));
 
-        user.setPassword(encoder.encode(password));
+            user.setPassword(encoder.encode(password));
+
+            return userRepo.save(user);
+        });
+    }
 
-        userRepo.save(user);
+    private static BasicException emailTaken() {
+        return new BasicException(Map.of("email", "Email is already taken"), HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+}
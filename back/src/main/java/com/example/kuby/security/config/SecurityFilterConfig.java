@@ -2,6 +2,7 @@ package com.example.kuby.security.config;
 
 import com.example.kuby.security.filter.JwtAuthFilter;
 import com.example.kuby.security.service.user.UserAuthenticationEntryPoint;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,6 +35,8 @@ public class SecurityFilterConfig {
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> {
                             authorize
+                                    // the request was authorized when it started, streams and long polls end in an async dispatch
+                                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                     .requestMatchers(
                                             HttpMethod.GET,
                                             "/v3/api-docs/**",
@@ -1,5 +1,6 @@
 package com.example.kuby.security.config;
 
+import com.example.kuby.datasource.ConsistencyTokenContext;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,6 +40,7 @@ public class WebConfig implements WebMvcConfigurer {
 
         config.addExposedHeader("Authorization");
         config.addExposedHeader("X-Refresh-Token");
+        config.addExposedHeader(ConsistencyTokenContext.HEADER);
 
         source.registerCorsConfiguration("/**", config);
         return new CorsFilter(source);
@@ -62,7 +64,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .maxAge(3600L)
                 .allowedMethods("*")
                 .allowedHeaders("*")
-                .exposedHeaders("Upgrade")
+                .exposedHeaders("Upgrade", ConsistencyTokenContext.HEADER)
                 .allowCredentials(true);
     }
 }
@@ -1,5 +1,6 @@
 package com.example.kuby.security.models.entity.tokens;
 
+import com.example.kuby.utils.GeneratedUuidV7;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +18,7 @@ import java.util.UUID;
 @org.springframework.data.relational.core.mapping.Table(name = "refresh_token")
 public class RefreshToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     @Column(nullable = false, updatable = false, unique = true)
     private UUID id;
     private Instant expiresAt;
@@ -1,6 +1,7 @@
 package com.example.kuby.security.models.entity.tokens;
 
 import com.example.kuby.foruser.UserEntity;
+import com.example.kuby.utils.GeneratedUuidV7;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +19,7 @@ import java.util.UUID;
 @Table(name = "tokens")
 public class Tokens {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     @Column(nullable = false, updatable = false, unique = true)
     private UUID id;
 
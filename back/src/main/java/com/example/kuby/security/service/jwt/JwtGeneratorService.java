@@ -7,6 +7,7 @@ import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.kuby.datasource.UserShards;
 import com.example.kuby.exceptions.BasicException;
 import com.example.kuby.foruser.CustomUserPrincipal;
 import com.example.kuby.foruser.UserEntity;
@@ -43,17 +44,20 @@ public class JwtGeneratorService {
     private final JwtValidatorService jwtValidatorService;
     private final JwtService jwtService;
     private final UserRepo userRepo;
+    private final UserShards userShards;
     private final Algorithm algorithm;
 
     @Autowired
     public JwtGeneratorService(@Value("${security.jwt.access.token.duration.minutes:15}") long accessDuration,
                                @Value("${security.jwt.access.token.duration.days:7}") int refreshDuration,
-                               JwtValidatorService jwtValidatorService, JwtService jwtService, UserRepo userRepo, Algorithm algorithm) {
+                               JwtValidatorService jwtValidatorService, JwtService jwtService, UserRepo userRepo, UserShards userShards,
+                               Algorithm algorithm) {
         this.accessTokenDurationInSeconds = Duration.ofMinutes(accessDuration).toMinutes();
         this.refreshTokenDurationInSeconds = Duration.ofDays(refreshDuration).toSeconds();
         this.jwtValidatorService = jwtValidatorService;
         this.jwtService = jwtService;
         this.userRepo = userRepo;
+        this.userShards = userShards;
         this.algorithm = algorithm;
     }
 
@@ -77,6 +81,11 @@ public class JwtGeneratorService {
         Provider provider = getProviderFromClaims(claims);
         String email = decodedRefreshToken.getSubject();
 
+        // the user's shard has to be picked before the first statement binds this transaction's connection
+        return userShards.callForEmail(email, provider, () -> refreshTokens(decodedAccessToken, expiresAt, email, provider));
+    }
+
+    private TokenPair refreshTokens(DecodedJWT decodedAccessToken, Instant expiresAt, String email, Provider provider) {
         UserEntity user = userRepo.findByEmailAndProvider(email, provider).orElseThrow(() ->
                 new BasicException(Map.of("refreshToken", "Email from token's subject not found"), HttpStatus.NOT_FOUND));
 
@@ -99,6 +108,10 @@ public class JwtGeneratorService {
 
     @Transactional
     public TokenPair generateTokens(CustomUserPrincipal userPrincipal) {
+        return userShards.callForEmail(userPrincipal.email(), userPrincipal.provider(), () -> generateTokensForUser(userPrincipal));
+    }
+
+    private TokenPair generateTokensForUser(CustomUserPrincipal userPrincipal) {
         UserEntity user = userRepo.findByEmailAndProvider(userPrincipal.email(),userPrincipal.provider())
                 .orElseThrow();
         try {
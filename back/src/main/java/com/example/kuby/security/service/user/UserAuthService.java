@@ -22,7 +22,6 @@ public class UserAuthService {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
 
-    @Transactional
     public void createLocalUserAndSendSubmissionLink(String email, String password) {
         userService.createLocalUser(email, password);
     }
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @AllArgsConstructor
@@ -20,4 +21,10 @@ public class CreateTaskRequest {
     @NotNull
     private Boolean isFinished;
     private LocalDateTime notificationDateTime;
+    // makes the task a subtask of one of the user's tasks
+    private UUID parentId;
+
+    public CreateTaskRequest(String name, LocalDateTime deadLine, Boolean isFinished, LocalDateTime notificationDateTime) {
+        this(name, deadLine, isFinished, notificationDateTime, null);
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.kuby.todolist;
 
 import com.example.kuby.foruser.UserEntity;
+import com.example.kuby.utils.GeneratedUuidV7;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,12 +17,16 @@ import java.util.UUID;
 @Entity
 @Data
 @org.springframework.data.relational.core.mapping.Table(name = "task")
+@Table(name = "task", indexes = {
+        @Index(name = "task_creator_change_version_idx", columnList = "creator_id, change_version, id"),
+        @Index(name = "task_creator_dead_line_idx", columnList = "creator_id, dead_line, id")
+})
 public class Task {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     private UUID id;
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "creator_id",referencedColumnName = "id")
+    @JoinColumn(name = "creator_id", referencedColumnName = "id", nullable = false)
     private UserEntity creator;
     @Column(nullable = false, length = 1000)
     private String name;
@@ -32,4 +37,7 @@ public class Task {
     @Column(nullable = false)
     private boolean isExpired;
     private LocalDateTime notificationDateTime;
+    @Column(columnDefinition = "BIGINT DEFAULT 0", nullable = false)
+    private long changeVersion;
+    private UUID parentId;
 }
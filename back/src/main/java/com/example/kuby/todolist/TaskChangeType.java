@@ -0,0 +1,6 @@
+package com.example.kuby.todolist;
+
+// CHANGED covers writes touching many tasks at once (batch, bulk, expiry), clients catch up through /api/task/changes
+public enum TaskChangeType {
+    CREATED, UPDATED, FINISHED, DELETED, CHANGED
+}
@@ -0,0 +1,15 @@
+package com.example.kuby.todolist;
+
+import java.util.UUID;
+
+// published inside the mutating transaction, listeners that act on committed state use AFTER_COMMIT.
+// taskId and task are only set for single task changes, task is null for deletes
+public record TaskChangedEvent(UUID userId, TaskChangeType type, UUID taskId, TaskDTO task) {
+    public TaskChangedEvent(UUID userId) {
+        this(userId, TaskChangeType.CHANGED, null, null);
+    }
+
+    public static TaskChangedEvent of(TaskChangeType type, TaskDTO task) {
+        return new TaskChangedEvent(task.getCreatorId(), type, task.getId(), task);
+    }
+}
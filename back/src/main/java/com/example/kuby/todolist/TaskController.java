@@ -2,13 +2,27 @@ package com.example.kuby.todolist;
 
 import com.example.kuby.security.context.TokenClaimContext;
 import com.example.kuby.security.util.formaters.LocalDateTimeParser;
+import com.example.kuby.todolist.cache.TaskListVersion;
+import com.example.kuby.todolist.query.TaskQuery;
+import com.example.kuby.todolist.query.TaskQueryService;
+import com.example.kuby.todolist.query.TaskSort;
+import com.example.kuby.todolist.query.TaskStatusFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
@@ -18,6 +32,9 @@ import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
 @RequiredArgsConstructor
 public class TaskController {
     private final TaskService taskService;
+    private final TaskQueryService taskQueryService;
+    private final TaskListVersion taskListVersion;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<TaskDTO> create(@RequestBody @Valid CreateTaskRequest request) {
@@ -26,13 +43,71 @@ public class TaskController {
                 TokenClaimContext.getIdByKey(USER_ID),
                 request.getDeadLine(),
                 request.getIsFinished(),
-                request.getNotificationDateTime()
+                request.getNotificationDateTime(),
+                request.getParentId()
         ));
     }
 
     @GetMapping
-    public ResponseEntity<List<TaskDTO>> getAll() {
-        return ResponseEntity.ok(taskService.getAll(TokenClaimContext.getIdByKey(USER_ID)));
+    public void getAll(HttpServletResponse response, WebRequest webRequest) throws IOException {
+        UUID userId = TokenClaimContext.getIdByKey(USER_ID);
+
+        if (notModified(userId, response, webRequest))
+            return;
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // not closed on failure, so nothing is flushed and the exception handler can still answer
+        JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream());
+        generator.writeStartArray();
+        taskService.streamAll(userId, task -> {
+            try {
+                generator.writeObject(task);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    // without filters this is the cached default page, filtered views go to the index-backed query
+    @GetMapping(params = "limit")
+    public ResponseEntity<TaskPage> getPage(@RequestParam int limit,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) String status,
+                                            @RequestParam(required = false) String deadLineFrom,
+                                            @RequestParam(required = false) String deadLineTo,
+                                            @RequestParam(required = false) Boolean hasNotification,
+                                            @RequestParam(required = false) String sort,
+                                            HttpServletResponse response,
+                                            WebRequest webRequest) {
+        UUID userId = TokenClaimContext.getIdByKey(USER_ID);
+        TaskQuery query = new TaskQuery(
+                TaskStatusFilter.parse(status),
+                deadLineFrom != null ? LocalDateTimeParser.parse(deadLineFrom) : null,
+                deadLineTo != null ? LocalDateTimeParser.parse(deadLineTo) : null,
+                hasNotification,
+                TaskSort.parse(sort));
+
+        if (notModified(userId, response, webRequest))
+            return null;
+
+        if (query.equals(TaskQuery.DEFAULT))
+            return ResponseEntity.ok(taskService.getPage(userId, limit, cursor));
+        return ResponseEntity.ok(taskQueryService.query(userId, query, limit, cursor));
+    }
+
+    // answered from the Redis list version alone, the database is not touched for a 304
+    private boolean notModified(UUID userId, HttpServletResponse response, WebRequest webRequest) {
+        String etag = taskListVersion.etag(userId);
+        if (etag == null)
+            return false;
+
+        // otherwise Spring Security's no-store would stop clients from keeping the body to revalidate
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return webRequest.checkNotModified(etag);
     }
 
     @PutMapping("/{id}")
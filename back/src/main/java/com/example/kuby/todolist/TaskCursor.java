@@ -0,0 +1,63 @@
+package com.example.kuby.todolist;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+// position is null for orders by id alone
+public record TaskCursor(LocalDateTime position, UUID id) {
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        return encodeText((position != null ? position : "") + SEPARATOR + id);
+    }
+
+    // for pages that can come in several orders, the cursor carries the order it was issued for
+    public String encode(String order) {
+        return encodeText(order + SEPARATOR + (position != null ? position : "") + SEPARATOR + id);
+    }
+
+    public static TaskCursor decode(String cursor) {
+        return parse(decodeText(cursor));
+    }
+
+    // a position read under another order would skip or repeat tasks
+    public static TaskCursor decode(String cursor, String order) {
+        String decoded = decodeText(cursor);
+        if (!decoded.startsWith(order + SEPARATOR))
+            throw new BasicException(Map.of("cursor", "Cursor was issued for another sort"), HttpStatus.BAD_REQUEST);
+        return parse(decoded.substring(order.length() + SEPARATOR.length()));
+    }
+
+    private static String encodeText(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeText(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (RuntimeException ex) {
+            throw invalidFormat();
+        }
+    }
+
+    private static TaskCursor parse(String decoded) {
+        try {
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            return new TaskCursor(
+                    separatorIndex > 0 ? LocalDateTime.parse(decoded.substring(0, separatorIndex)) : null,
+                    UUID.fromString(decoded.substring(separatorIndex + 1)));
+        } catch (RuntimeException ex) {
+            throw invalidFormat();
+        }
+    }
+
+    private static BasicException invalidFormat() {
+        return new BasicException(Map.of("cursor", "Cursor has invalid format"), HttpStatus.BAD_REQUEST);
+    }
+}
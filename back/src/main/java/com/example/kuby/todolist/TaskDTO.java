@@ -14,4 +14,6 @@ public class TaskDTO {
     private LocalDateTime notificationDateTime;
     private Boolean isFinished;
     private Boolean isExpired;
+    private Long changeVersion;
+    private UUID parentId;
 }
@@ -0,0 +1,503 @@
+package com.example.kuby.todolist;
+
+import com.example.kuby.todolist.query.TaskQuery;
+import com.example.kuby.todolist.query.TaskSort;
+import com.example.kuby.todolist.search.SearchCursor;
+import com.example.kuby.todolist.search.TaskSearchHit;
+import com.example.kuby.todolist.sync.ChangeCursor;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+@Repository
+public class TaskJdbcRepo {
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // is_expired is derived from the deadline at read time, the sweeper only keeps the stored flag in step
+    private static final String TASK_COLUMNS =
+            "id, creator_id, name, dead_line, notification_date_time, is_finished, (dead_line < :now) AS is_expired, " +
+            "change_version, parent_id";
+
+    private static final String FIND_FIRST_PAGE_SQL = "SELECT " + TASK_COLUMNS + " FROM task " +
+            "WHERE creator_id = :creatorId " +
+            "ORDER BY dead_line, id " +
+            "LIMIT :limit";
+
+    private static final String FIND_PAGE_AFTER_SQL = "SELECT " + TASK_COLUMNS + " FROM task " +
+            "WHERE creator_id = :creatorId AND (dead_line, id) > (:position, :id) " +
+            "ORDER BY dead_line, id " +
+            "LIMIT :limit";
+
+    private static final String STREAM_ALL_SQL = "SELECT " + TASK_COLUMNS + " FROM task " +
+            "WHERE creator_id = :creatorId " +
+            "ORDER BY dead_line, id";
+
+    private static final String FIND_CHANGED_AFTER_SQL = "SELECT " + TASK_COLUMNS + " FROM task " +
+            "WHERE creator_id = :creatorId AND (change_version, id) > (:version, :id) " +
+            "ORDER BY change_version, id " +
+            "LIMIT :limit";
+
+    // whole-word prefix matches rank above fuzzy-only ones, the closer word_similarity comes first within each group.
+    // Both predicates are answered by the creator_id leading GIN indexes (V4) and combined in a BitmapOr
+    private static final String SEARCH_HITS_SQL = "SELECT " + TASK_COLUMNS + ", " +
+            "CAST((to_tsvector('simple', name) @@ to_tsquery('simple', :prefixQuery))::int " +
+            "    + word_similarity(:query, name) AS double precision) AS score " +
+            "FROM task " +
+            "WHERE creator_id = :creatorId " +
+            "AND (to_tsvector('simple', name) @@ to_tsquery('simple', :prefixQuery) OR :query <% name)";
+
+    private static final String SEARCH_FIRST_PAGE_SQL = "SELECT * FROM (" + SEARCH_HITS_SQL + ") hits " +
+            "ORDER BY score DESC, id " +
+            "LIMIT :limit";
+
+    private static final String SEARCH_PAGE_AFTER_SQL = "SELECT * FROM (" + SEARCH_HITS_SQL + ") hits " +
+            "WHERE score < CAST(:score AS double precision) " +
+            "   OR (score = CAST(:score AS double precision) AND id > :id) " +
+            "ORDER BY score DESC, id " +
+            "LIMIT :limit";
+
+    // locked in id order so concurrent batches touching the same tasks cannot deadlock
+    private static final String LOCK_BY_IDS_SQL = "SELECT " + TASK_COLUMNS + " FROM task " +
+            "WHERE creator_id = :creatorId AND id IN (:ids) " +
+            "ORDER BY id " +
+            "FOR UPDATE";
+
+    private static final String INSERT_SQL = "INSERT INTO task " +
+            "(id, creator_id, parent_id, name, dead_line, notification_date_time, is_finished, is_expired, change_version) " +
+            "VALUES (:id, :creatorId, :parentId, :name, :deadLine, :notificationDateTime, :isFinished, false, :changeVersion)";
+
+    private static final String UPDATE_SQL = "UPDATE task SET " +
+            "name = :name, dead_line = :deadLine, notification_date_time = :notificationDateTime, " +
+            "is_finished = :isFinished, is_expired = is_expired AND NOT :deadLineChanged, change_version = :changeVersion " +
+            "WHERE id = :id AND creator_id = :creatorId";
+
+    // single round trip mutations, each allocates its change version and returns the written row in one statement
+    private static final String INSERT_RETURNING_SQL = "WITH " + TaskSyncRepo.NEXT_VERSION_CTE + " " +
+            "INSERT INTO task " +
+            "(id, creator_id, parent_id, name, dead_line, notification_date_time, is_finished, is_expired, change_version) " +
+            "VALUES (:id, :creatorId, :parentId, :name, :deadLine, :notificationDateTime, :isFinished, false, " +
+            "    (SELECT version FROM next_version)) " +
+            "RETURNING " + TASK_COLUMNS;
+
+    private static final String FINISH_RETURNING_SQL = "WITH " + TaskSyncRepo.NEXT_VERSION_CTE + " " +
+            "UPDATE task SET is_finished = true, change_version = next_version.version " +
+            "FROM next_version " +
+            "WHERE task.id = :id AND task.creator_id = :creatorId " +
+            "RETURNING " + TASK_COLUMNS;
+
+    private static final String DELETE_RETURNING_SQL = "WITH " + TaskSyncRepo.NEXT_VERSION_CTE + ", " +
+            "deleted AS (DELETE FROM task WHERE id = :id AND creator_id = :creatorId RETURNING id, creator_id) " +
+            "INSERT INTO task_tombstone (task_id, creator_id, change_version, deleted_at) " +
+            "SELECT deleted.id, deleted.creator_id, next_version.version, CAST(:deletedAt AS timestamp) " +
+            "FROM deleted, next_version " +
+            TaskSyncRepo.TOMBSTONE_CONFLICT_CLAUSE + " " +
+            "RETURNING task_id";
+
+    private static final String DELETE_SQL = "DELETE FROM task WHERE id = :id AND creator_id = :creatorId";
+
+    // set based bulk mutations, the caller holds the user's version row and passes the version before the first
+    // affected row, every row takes the next one in id order. Ids go in as text[], the driver has no encoder for UUID[]
+    private static final String FINISH_BY_IDS_SQL = "WITH pending AS (" +
+            "    SELECT id AS pending_id, row_number() OVER (ORDER BY id) AS n FROM task " +
+            "    WHERE creator_id = :creatorId AND id = ANY(CAST(:ids AS uuid[])) AND is_finished = false" +
+            ") " +
+            "UPDATE task SET is_finished = true, change_version = :baseVersion + pending.n " +
+            "FROM pending WHERE task.id = pending.pending_id AND task.creator_id = :creatorId " +
+            "RETURNING " + TASK_COLUMNS;
+
+    private static final String DELETE_FINISHED_CHUNK_SQL = "WITH doomed AS (" +
+            "    SELECT id AS doomed_id, row_number() OVER (ORDER BY id) AS n FROM task " +
+            "    WHERE creator_id = :creatorId AND is_finished = true " +
+            "    ORDER BY id " +
+            "    LIMIT :limit" +
+            "), deleted AS (" +
+            "    DELETE FROM task USING doomed WHERE task.id = doomed.doomed_id AND task.creator_id = :creatorId " +
+            "    RETURNING task.id, doomed.n" +
+            ") " +
+            "INSERT INTO task_tombstone (task_id, creator_id, change_version, deleted_at) " +
+            "SELECT id, :creatorId, :baseVersion + n, CAST(:deletedAt AS timestamp) FROM deleted " +
+            TaskSyncRepo.TOMBSTONE_CONFLICT_CLAUSE + " " +
+            "RETURNING change_version";
+
+    // the notification moves with its deadline, a task shifted by less than it is overdue stays expired
+    private static final String POSTPONE_OVERDUE_SQL = "WITH overdue AS (" +
+            "    SELECT id AS overdue_id, row_number() OVER (ORDER BY id) AS n FROM task " +
+            "    WHERE creator_id = :creatorId AND is_finished = false AND dead_line < :now" +
+            ") " +
+            "UPDATE task SET dead_line = dead_line + CAST(:shift AS interval), " +
+            "    notification_date_time = notification_date_time + CAST(:shift AS interval), " +
+            "    is_expired = dead_line + CAST(:shift AS interval) < :now, " +
+            "    change_version = :baseVersion + overdue.n " +
+            "FROM overdue WHERE task.id = overdue.overdue_id AND task.creator_id = :creatorId " +
+            "RETURNING change_version";
+
+    // subtasks (V11): the ids of a task and everything under it, one index probe of task_creator_parent_idx per
+    // level. Creation keeps trees within maxDepth, the bound only stops the walk should a cycle ever be written
+    private static final String SUBTREE_CTE = "RECURSIVE subtree (node_id, depth) AS (" +
+            "    SELECT id, 1 FROM task WHERE id = :id AND creator_id = :creatorId " +
+            "    UNION ALL " +
+            "    SELECT task.id, subtree.depth + 1 FROM subtree " +
+            "    JOIN task ON task.creator_id = :creatorId AND task.parent_id = subtree.node_id " +
+            "    WHERE subtree.depth < :maxDepth" +
+            ")";
+
+    private static final String FIND_SUBTREE_SQL = "WITH " + SUBTREE_CTE + " " +
+            "SELECT " + TASK_COLUMNS + " FROM task " +
+            "JOIN subtree ON task.id = subtree.node_id " +
+            "WHERE task.creator_id = :creatorId " +
+            "ORDER BY dead_line, id";
+
+    // the levels from the root down to the task, null when there is no such task
+    private static final String FIND_DEPTH_SQL = "WITH RECURSIVE ancestors (node_id, parent, depth) AS (" +
+            "    SELECT id, parent_id, 1 FROM task WHERE id = :id AND creator_id = :creatorId " +
+            "    UNION ALL " +
+            "    SELECT task.id, task.parent_id, ancestors.depth + 1 FROM ancestors " +
+            "    JOIN task ON task.id = ancestors.parent AND task.creator_id = :creatorId " +
+            "    WHERE ancestors.depth < :maxDepth" +
+            ") " +
+            "SELECT max(depth) FROM ancestors";
+
+    private static final String FINISH_SUBTREE_SQL = "WITH " + SUBTREE_CTE + ", pending AS (" +
+            "    SELECT id AS pending_id, row_number() OVER (ORDER BY id) AS n FROM task " +
+            "    JOIN subtree ON task.id = subtree.node_id " +
+            "    WHERE task.creator_id = :creatorId AND task.is_finished = false" +
+            ") " +
+            "UPDATE task SET is_finished = true, change_version = :baseVersion + pending.n " +
+            "FROM pending WHERE task.id = pending.pending_id AND task.creator_id = :creatorId " +
+            "RETURNING change_version";
+
+    private static final String DELETE_SUBTREE_SQL = "WITH " + SUBTREE_CTE + ", doomed AS (" +
+            "    SELECT node_id AS doomed_id, row_number() OVER (ORDER BY node_id) AS n FROM subtree" +
+            "), deleted AS (" +
+            "    DELETE FROM task USING doomed WHERE task.id = doomed.doomed_id AND task.creator_id = :creatorId " +
+            "    RETURNING task.id, doomed.n" +
+            ") " +
+            "INSERT INTO task_tombstone (task_id, creator_id, change_version, deleted_at) " +
+            "SELECT id, :creatorId, :baseVersion + n, CAST(:deletedAt AS timestamp) FROM deleted " +
+            TaskSyncRepo.TOMBSTONE_CONFLICT_CLAUSE + " " +
+            "RETURNING change_version";
+
+    // one statement for the whole batch, the columns arrive as parallel arrays and the rows are numbered in array order
+    private static final String INSERT_ALL_SQL = "INSERT INTO task " +
+            "(id, creator_id, name, dead_line, notification_date_time, is_finished, is_expired, change_version) " +
+            "SELECT id, :creatorId, name, dead_line, notification_date_time, is_finished, dead_line < :now, :baseVersion + n " +
+            "FROM unnest(CAST(:ids AS uuid[]), CAST(:names AS text[]), CAST(:deadLines AS timestamp[]), " +
+            "    CAST(:notificationDateTimes AS timestamp[]), CAST(:finished AS boolean[])) " +
+            "    WITH ORDINALITY AS imported(id, name, dead_line, notification_date_time, is_finished, n)";
+
+    private static final RowMapper<TaskDTO> TASK_DTO_MAPPER = (rs, rowNum) -> {
+        TaskDTO task = new TaskDTO();
+        task.setId(rs.getObject("id", UUID.class));
+        task.setCreatorId(rs.getObject("creator_id", UUID.class));
+        task.setName(rs.getString("name"));
+        task.setDeadLine(rs.getObject("dead_line", LocalDateTime.class));
+        task.setNotificationDateTime(rs.getObject("notification_date_time", LocalDateTime.class));
+        task.setIsFinished(rs.getBoolean("is_finished"));
+        task.setIsExpired(rs.getBoolean("is_expired"));
+        task.setChangeVersion(rs.getLong("change_version"));
+        task.setParentId(rs.getObject("parent_id", UUID.class));
+        return task;
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public TaskJdbcRepo(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    public List<TaskDTO> findPageByCreatorId(UUID creatorId, TaskCursor after, int limit, LocalDateTime now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("now", now)
+                .addValue("limit", limit);
+
+        if (after == null)
+            return jdbcTemplate.query(FIND_FIRST_PAGE_SQL, params, TASK_DTO_MAPPER);
+
+        params.addValue("position", after.position())
+                .addValue("id", after.id());
+        return jdbcTemplate.query(FIND_PAGE_AFTER_SQL, params, TASK_DTO_MAPPER);
+    }
+
+    // only ever assembled in shapes TaskQueryShape accepted, so every predicate matches the leading columns or the
+    // partial condition of the index serving the sort, and the keyset continues the same index range
+    public List<TaskDTO> findPageByQuery(UUID creatorId, TaskQuery query, TaskCursor after, int limit, LocalDateTime now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("now", now)
+                .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT " + TASK_COLUMNS + " FROM task WHERE creator_id = :creatorId");
+
+        switch (query.status()) {
+            case FINISHED -> sql.append(" AND is_finished = true");
+            case UNFINISHED -> sql.append(" AND is_finished = false");
+            case EXPIRED -> sql.append(" AND dead_line < :now");
+            case ALL -> {
+            }
+        }
+        if (query.deadLineFrom() != null) {
+            sql.append(" AND dead_line >= :deadLineFrom");
+            params.addValue("deadLineFrom", query.deadLineFrom());
+        }
+        if (query.deadLineTo() != null) {
+            sql.append(" AND dead_line < :deadLineTo");
+            params.addValue("deadLineTo", query.deadLineTo());
+        }
+
+        TaskSort sort = query.sort();
+        if (sort == TaskSort.NOTIFICATION)
+            sql.append(" AND notification_date_time IS NOT NULL");
+
+        String comparison = sort.descending() ? " < " : " > ";
+        String direction = sort.descending() ? " DESC" : "";
+        if (after != null) {
+            params.addValue("id", after.id());
+            if (sort.column() == null) {
+                sql.append(" AND id").append(comparison).append(":id");
+            } else {
+                sql.append(" AND (").append(sort.column()).append(", id)").append(comparison).append("(:position, :id)");
+                params.addValue("position", after.position());
+            }
+        }
+
+        if (sort.column() != null)
+            sql.append(" ORDER BY ").append(sort.column()).append(direction).append(", id").append(direction);
+        else
+            sql.append(" ORDER BY id").append(direction);
+        sql.append(" LIMIT :limit");
+
+        return jdbcTemplate.query(sql.toString(), params, TASK_DTO_MAPPER);
+    }
+
+    public List<TaskDTO> findChangedAfter(UUID creatorId, ChangeCursor after, int limit, LocalDateTime now) {
+        return jdbcTemplate.query(FIND_CHANGED_AFTER_SQL, new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("version", after.version())
+                .addValue("id", after.id())
+                .addValue("now", now)
+                .addValue("limit", limit), TASK_DTO_MAPPER);
+    }
+
+    public List<TaskSearchHit> search(UUID creatorId, String query, String prefixQuery, SearchCursor after,
+                                      int limit, LocalDateTime now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("query", query)
+                .addValue("prefixQuery", prefixQuery)
+                .addValue("now", now)
+                .addValue("limit", limit);
+        RowMapper<TaskSearchHit> hitMapper = (rs, rowNum) ->
+                new TaskSearchHit(TASK_DTO_MAPPER.mapRow(rs, rowNum), rs.getDouble("score"));
+
+        if (after == null)
+            return jdbcTemplate.query(SEARCH_FIRST_PAGE_SQL, params, hitMapper);
+
+        params.addValue("score", after.score())
+                .addValue("id", after.id());
+        return jdbcTemplate.query(SEARCH_PAGE_AFTER_SQL, params, hitMapper);
+    }
+
+    public TaskDTO insert(UUID id, UUID creatorId, UUID parentId, String name, LocalDateTime deadLine,
+                          LocalDateTime notificationDateTime, boolean isFinished, LocalDateTime now) {
+        return jdbcTemplate.queryForObject(INSERT_RETURNING_SQL, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId)
+                .addValue("parentId", parentId)
+                .addValue("name", name)
+                .addValue("deadLine", deadLine)
+                .addValue("notificationDateTime", notificationDateTime)
+                .addValue("isFinished", isFinished)
+                .addValue("now", now), TASK_DTO_MAPPER);
+    }
+
+    // only the given columns are written, a notification without a new deadline is checked against the stored one
+    public Optional<TaskDTO> update(UUID id, UUID creatorId, String name, LocalDateTime deadLine,
+                                    LocalDateTime notificationDateTime, LocalDateTime now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId)
+                .addValue("now", now);
+        StringBuilder sql = new StringBuilder("WITH " + TaskSyncRepo.NEXT_VERSION_CTE + " " +
+                "UPDATE task SET change_version = next_version.version");
+
+        if (name != null) {
+            sql.append(", name = :name");
+            params.addValue("name", name);
+        }
+        if (deadLine != null) {
+            sql.append(", dead_line = :deadLine, is_expired = false");
+            params.addValue("deadLine", deadLine);
+        }
+        if (notificationDateTime != null) {
+            sql.append(", notification_date_time = :notificationDateTime");
+            params.addValue("notificationDateTime", notificationDateTime);
+        }
+
+        sql.append(" FROM next_version WHERE task.id = :id AND task.creator_id = :creatorId");
+        if (notificationDateTime != null && deadLine == null)
+            sql.append(" AND :notificationDateTime <= task.dead_line");
+        sql.append(" RETURNING ").append(TASK_COLUMNS);
+
+        return jdbcTemplate.query(sql.toString(), params, TASK_DTO_MAPPER).stream().findFirst();
+    }
+
+    public Optional<TaskDTO> finish(UUID id, UUID creatorId, LocalDateTime now) {
+        return jdbcTemplate.query(FINISH_RETURNING_SQL, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId)
+                .addValue("now", now), TASK_DTO_MAPPER).stream().findFirst();
+    }
+
+    // writes the tombstone in the same statement, false when there was no such task
+    public boolean delete(UUID id, UUID creatorId, LocalDateTime now) {
+        return !jdbcTemplate.queryForList(DELETE_RETURNING_SQL, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId)
+                .addValue("deletedAt", now), UUID.class).isEmpty();
+    }
+
+    public List<TaskDTO> finishByIds(Collection<UUID> ids, UUID creatorId, long baseVersion, LocalDateTime now) {
+        return jdbcTemplate.query(FINISH_BY_IDS_SQL, new MapSqlParameterSource()
+                .addValue("ids", ids.stream().map(UUID::toString).toArray(String[]::new))
+                .addValue("creatorId", creatorId)
+                .addValue("baseVersion", baseVersion)
+                .addValue("now", now), TASK_DTO_MAPPER);
+    }
+
+    // deletes at most limit finished tasks and tombstones them, returns the change versions used
+    public List<Long> deleteFinishedChunk(UUID creatorId, long baseVersion, int limit, LocalDateTime now) {
+        return jdbcTemplate.queryForList(DELETE_FINISHED_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("baseVersion", baseVersion)
+                .addValue("limit", limit)
+                .addValue("deletedAt", now), Long.class);
+    }
+
+    public List<Long> postponeOverdue(UUID creatorId, Duration shift, long baseVersion, LocalDateTime now) {
+        return jdbcTemplate.queryForList(POSTPONE_OVERDUE_SQL, new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("shift", shift.toString())
+                .addValue("baseVersion", baseVersion)
+                .addValue("now", now), Long.class);
+    }
+
+    // the task and its descendants ordered by deadline, empty when there is no such task
+    public List<TaskDTO> findSubtree(UUID id, UUID creatorId, int maxDepth, LocalDateTime now) {
+        return jdbcTemplate.query(FIND_SUBTREE_SQL, subtreeParams(id, creatorId, maxDepth)
+                .addValue("now", now), TASK_DTO_MAPPER);
+    }
+
+    public Optional<Integer> findDepth(UUID id, UUID creatorId, int maxDepth) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(FIND_DEPTH_SQL, subtreeParams(id, creatorId, maxDepth),
+                Integer.class));
+    }
+
+    // the unfinished tasks of the subtree, returns the change versions used
+    public List<Long> finishSubtree(UUID id, UUID creatorId, int maxDepth, long baseVersion) {
+        return jdbcTemplate.queryForList(FINISH_SUBTREE_SQL, subtreeParams(id, creatorId, maxDepth)
+                .addValue("baseVersion", baseVersion), Long.class);
+    }
+
+    public List<Long> deleteSubtree(UUID id, UUID creatorId, int maxDepth, long baseVersion, LocalDateTime now) {
+        return jdbcTemplate.queryForList(DELETE_SUBTREE_SQL, subtreeParams(id, creatorId, maxDepth)
+                .addValue("baseVersion", baseVersion)
+                .addValue("deletedAt", now), Long.class);
+    }
+
+    private static MapSqlParameterSource subtreeParams(UUID id, UUID creatorId, int maxDepth) {
+        return new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId)
+                .addValue("maxDepth", maxDepth);
+    }
+
+    public List<TaskDTO> lockByIdsAndCreatorId(Collection<UUID> ids, UUID creatorId, LocalDateTime now) {
+        if (ids.isEmpty())
+            return List.of();
+
+        return jdbcTemplate.query(LOCK_BY_IDS_SQL, new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("ids", ids)
+                .addValue("now", now), TASK_DTO_MAPPER);
+    }
+
+    // task i gets change version baseVersion + i + 1
+    public int insertAll(List<TaskDTO> tasks, UUID creatorId, long baseVersion, LocalDateTime now) {
+        if (tasks.isEmpty())
+            return 0;
+
+        return jdbcTemplate.update(INSERT_ALL_SQL, new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("baseVersion", baseVersion)
+                .addValue("now", now)
+                .addValue("ids", tasks.stream().map(task -> task.getId().toString()).toArray(String[]::new))
+                .addValue("names", tasks.stream().map(TaskDTO::getName).toArray(String[]::new))
+                .addValue("deadLines", tasks.stream().map(task -> task.getDeadLine().toString()).toArray(String[]::new))
+                .addValue("notificationDateTimes", tasks.stream()
+                        .map(task -> task.getNotificationDateTime() != null ? task.getNotificationDateTime().toString() : null)
+                        .toArray(String[]::new))
+                .addValue("finished", tasks.stream().map(TaskDTO::getIsFinished).toArray(Boolean[]::new)));
+    }
+
+    public void batchInsert(List<TaskDTO> tasks) {
+        if (!tasks.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_SQL, tasks.stream().map(TaskJdbcRepo::taskParams).toArray(SqlParameterSource[]::new));
+    }
+
+    public void batchUpdate(List<TaskDTO> tasks, Set<UUID> deadLineChanged) {
+        if (!tasks.isEmpty())
+            jdbcTemplate.batchUpdate(UPDATE_SQL, tasks.stream()
+                    .map(task -> taskParams(task).addValue("deadLineChanged", deadLineChanged.contains(task.getId())))
+                    .toArray(SqlParameterSource[]::new));
+    }
+
+    public void batchDelete(Collection<UUID> ids, UUID creatorId) {
+        if (!ids.isEmpty())
+            jdbcTemplate.batchUpdate(DELETE_SQL, ids.stream()
+                    .map(id -> new MapSqlParameterSource()
+                            .addValue("id", id)
+                            .addValue("creatorId", creatorId))
+                    .toArray(SqlParameterSource[]::new));
+    }
+
+    private static MapSqlParameterSource taskParams(TaskDTO task) {
+        return new MapSqlParameterSource()
+                .addValue("id", task.getId())
+                .addValue("creatorId", task.getCreatorId())
+                .addValue("parentId", task.getParentId())
+                .addValue("name", task.getName())
+                .addValue("deadLine", task.getDeadLine())
+                .addValue("notificationDateTime", task.getNotificationDateTime())
+                .addValue("isFinished", task.getIsFinished())
+                .addValue("changeVersion", task.getChangeVersion());
+    }
+
+    // Postgres driver only honours the fetch size (server-side cursor) inside a transaction
+    public void streamAllByCreatorId(UUID creatorId, LocalDateTime now, Consumer<TaskDTO> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("now", now);
+
+        streamingJdbcTemplate.query(STREAM_ALL_SQL, params,
+                (RowCallbackHandler) rs -> consumer.accept(TASK_DTO_MAPPER.mapRow(rs, rs.getRow())));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.kuby.todolist;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskPage {
+    private List<TaskDTO> tasks;
+    private String nextCursor;
+}
@@ -1,9 +1,10 @@
 package com.example.kuby.todolist;
 
 import com.example.kuby.exceptions.BasicException;
-import com.example.kuby.foruser.UserEntity;
-import com.example.kuby.utils.Mapper;
+import com.example.kuby.todolist.cache.TaskListCache;
+import com.example.kuby.utils.UuidV7;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,76 +13,95 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class TaskService {
-    private final TaskRepo taskRepo;
-    private final Mapper mapper;
+    private static final int MAX_PAGE_SIZE = 500;
+    // levels of subtasks, a root counts as the first
+    public static final int MAX_TREE_DEPTH = 32;
 
-    public TaskDTO create(String name, UUID userId, LocalDateTime deadLine, boolean isFinished, LocalDateTime notificationDateTime) {
-        if (deadLine != null && deadLine.isBefore(LocalDateTime.now()))
-            throw new BasicException(Map.of("deadline", "Deadline cannot be before current time"), HttpStatus.BAD_REQUEST);
+    private final TaskRepo taskRepo;
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final TaskListCache taskListCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-        if (notificationDateTime != null) {
-            if (deadLine != null && notificationDateTime.isAfter(deadLine))
-                throw new BasicException(Map.of("notificationDateTime", "Notification cannot be after deadline time"), HttpStatus.BAD_REQUEST);
-            else if (notificationDateTime.isBefore(LocalDateTime.now()))
-                throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be before current time"), HttpStatus.BAD_REQUEST);
+    // mutations are single statements, autocommit is their transaction and change events are handled right after it.
+    // A parent deleted between the depth check and the insert leaves a subtask that is shown as a root
+    public TaskDTO create(String name, UUID userId, LocalDateTime deadLine, boolean isFinished,
+                          LocalDateTime notificationDateTime, UUID parentId) {
+        LocalDateTime now = LocalDateTime.now();
+        TaskValidator.validateNew(name, deadLine, notificationDateTime, now);
+        if (parentId != null) {
+            int parentDepth = taskJdbcRepo.findDepth(parentId, userId, MAX_TREE_DEPTH).orElseThrow(() ->
+                    new BasicException(Map.of("parentId", "Task with such id not found"), HttpStatus.NOT_FOUND));
+            if (parentDepth >= MAX_TREE_DEPTH)
+                throw new BasicException(Map.of("parentId", "Subtasks cannot be nested deeper than " + MAX_TREE_DEPTH + " levels"),
+                        HttpStatus.BAD_REQUEST);
         }
 
-        return mapper.convertTaskToDTO(taskRepo.save(Task.builder()
-                .name(name)
-                .creator(UserEntity.builder()
-                        .id(userId)
-                        .build())
-                .deadLine(deadLine)
-                .isFinished(isFinished)
-                .notificationDateTime(notificationDateTime)
-                .build()));
+        TaskDTO task = taskJdbcRepo.insert(UuidV7.generate(), userId, parentId, name, deadLine, notificationDateTime,
+                isFinished, now);
+
+        eventPublisher.publishEvent(TaskChangedEvent.of(TaskChangeType.CREATED, task));
+        return task;
+    }
+
+    // a single statement needs no transaction, which keeps cache hits from borrowing a connection.
+    // Without a read-only transaction fills also read the primary, a fill from a lagging replica would stay cached
+    public TaskPage getPage(UUID userId, int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new BasicException(Map.of("limit", "Limit must be between 1 and " + MAX_PAGE_SIZE), HttpStatus.BAD_REQUEST);
+
+        TaskCursor after = cursor != null ? TaskCursor.decode(cursor) : null;
+
+        return taskListCache.get(userId, limit + ":" + (cursor != null ? cursor : ""), () -> loadPage(userId, limit, after));
+    }
+
+    private TaskPage loadPage(UUID userId, int limit, TaskCursor after) {
+        List<TaskDTO> tasks = taskJdbcRepo.findPageByCreatorId(userId, after, limit + 1, LocalDateTime.now());
+
+        if (tasks.size() <= limit)
+            return new TaskPage(tasks, null);
+
+        List<TaskDTO> page = tasks.subList(0, limit);
+        TaskDTO last = page.get(limit - 1);
+        return new TaskPage(page, new TaskCursor(last.getDeadLine(), last.getId()).encode());
     }
 
-    @Transactional
-    public List<TaskDTO> getAll(UUID userId) {
-        return taskRepo.updateExpiredAndGetAllByCreatorId(userId, LocalDateTime.now()).stream()
-                .map(mapper::convertTaskToDTO)
-                .toList();
+    @Transactional(readOnly = true)
+    public void streamAll(UUID userId, Consumer<TaskDTO> consumer) {
+        taskJdbcRepo.streamAllByCreatorId(userId, LocalDateTime.now(), consumer);
     }
 
-    @Transactional
     public TaskDTO update(UUID id, String name, LocalDateTime deadLine, UUID userId, LocalDateTime notificationDateTime) {
-        Task task = taskRepo.findByIdAndCreatorId(id, userId).orElseThrow(() ->
-                new BasicException(Map.of("id", "Task with such id not found"), HttpStatus.NOT_FOUND));
-
-        if (name != null)
-            task.setName(name);
-        if (deadLine != null) {
-            if (!deadLine.isAfter(LocalDateTime.now()))
-                throw new BasicException(Map.of("deadline", "Deadline cannot be before current time"), HttpStatus.BAD_REQUEST);
-            task.setDeadLine(deadLine);
-        }
-        if (notificationDateTime != null) {
-            if (notificationDateTime.isAfter(deadLine))
-                throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be after deadline time"), HttpStatus.BAD_REQUEST);
-            else if (notificationDateTime.isBefore(LocalDateTime.now()))
-                throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be before current time"), HttpStatus.BAD_REQUEST);
-        }
+        LocalDateTime now = LocalDateTime.now();
+        // the stored deadline is only known to the statement, it guards a notification sent without a new deadline
+        TaskValidator.validateUpdate(name, deadLine, null, notificationDateTime, now);
+
+        TaskDTO task = taskJdbcRepo.update(id, userId, name, deadLine, notificationDateTime, now).orElseThrow(() -> {
+            if (!taskRepo.existsByIdAndCreatorId(id, userId))
+                return new BasicException(Map.of("id", "Task with such id not found"), HttpStatus.NOT_FOUND);
+            return new BasicException(Map.of("notificationDateTime", "Notification time cannot be after deadline time"), HttpStatus.BAD_REQUEST);
+        });
 
-        return mapper.convertTaskToDTO(taskRepo.save(task));
+        eventPublisher.publishEvent(TaskChangedEvent.of(TaskChangeType.UPDATED, task));
+        return task;
     }
 
-    @Transactional
     public TaskDTO finish(UUID id, UUID userId) {
-        if (taskRepo.updateIsFinishedByIdAndCreatorId(id, userId, true) != 1)
-            throw new BasicException(Map.of("taskId", "Task with such id not found"), HttpStatus.NOT_FOUND);
+        TaskDTO task = taskJdbcRepo.finish(id, userId, LocalDateTime.now()).orElseThrow(() ->
+                new BasicException(Map.of("taskId", "Task with such id not found"), HttpStatus.NOT_FOUND));
 
-        return mapper.convertTaskToDTO(taskRepo.findByIdAndCreatorId(id, userId).orElseThrow(() ->
-                new BasicException(Map.of("taskId", "Task with such id not found"), HttpStatus.NOT_FOUND)));
+        eventPublisher.publishEvent(TaskChangedEvent.of(TaskChangeType.FINISHED, task));
+        return task;
     }
 
-    @Transactional
     public void delete(UUID taskId, UUID userId) {
-        if (taskRepo.deleteByIdAndCreatorId(taskId, userId) != 1)
+        if (!taskJdbcRepo.delete(taskId, userId, LocalDateTime.now()))
             throw new BasicException(Map.of("taskId", "Task with such id not found"), HttpStatus.NOT_FOUND);
+
+        eventPublisher.publishEvent(new TaskChangedEvent(userId, TaskChangeType.DELETED, taskId, null));
     }
 }
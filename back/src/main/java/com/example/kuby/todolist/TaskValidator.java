@@ -0,0 +1,55 @@
+package com.example.kuby.todolist;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public final class TaskValidator {
+    // task.name is VARCHAR(1000)
+    public static final int MAX_NAME_LENGTH = 1000;
+
+    private TaskValidator() {
+    }
+
+    public static void validateNew(String name, LocalDateTime deadLine, LocalDateTime notificationDateTime, LocalDateTime now) {
+        if (name == null || name.isBlank())
+            throw new BasicException(Map.of("name", "Name cannot be blank"), HttpStatus.BAD_REQUEST);
+        validateNameLength(name);
+        if (deadLine == null)
+            throw new BasicException(Map.of("deadline", "Deadline is required"), HttpStatus.BAD_REQUEST);
+        if (deadLine.isBefore(now))
+            throw new BasicException(Map.of("deadline", "Deadline cannot be before current time"), HttpStatus.BAD_REQUEST);
+
+        validateNotification(notificationDateTime, deadLine, now);
+    }
+
+    // checks the fields an update sets against the deadline the task ends up with
+    public static void validateUpdate(String name, LocalDateTime deadLine, LocalDateTime currentDeadLine,
+                                      LocalDateTime notificationDateTime, LocalDateTime now) {
+        if (name != null && name.isBlank())
+            throw new BasicException(Map.of("name", "Name cannot be blank"), HttpStatus.BAD_REQUEST);
+        if (name != null)
+            validateNameLength(name);
+        if (deadLine != null && !deadLine.isAfter(now))
+            throw new BasicException(Map.of("deadline", "Deadline cannot be before current time"), HttpStatus.BAD_REQUEST);
+
+        validateNotification(notificationDateTime, deadLine != null ? deadLine : currentDeadLine, now);
+    }
+
+    public static void validateNameLength(String name) {
+        if (name.length() > MAX_NAME_LENGTH)
+            throw new BasicException(Map.of("name", "Name cannot be longer than " + MAX_NAME_LENGTH + " characters"), HttpStatus.BAD_REQUEST);
+    }
+
+    private static void validateNotification(LocalDateTime notificationDateTime, LocalDateTime deadLine, LocalDateTime now) {
+        if (notificationDateTime == null)
+            return;
+
+        if (deadLine != null && notificationDateTime.isAfter(deadLine))
+            throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be after deadline time"), HttpStatus.BAD_REQUEST);
+        else if (notificationDateTime.isBefore(now))
+            throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be before current time"), HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.kuby.todolist.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedTask {
+    private UUID id;
+    private String name;
+    private LocalDateTime deadLine;
+    private LocalDateTime notificationDateTime;
+    private LocalDateTime archivedAt;
+}
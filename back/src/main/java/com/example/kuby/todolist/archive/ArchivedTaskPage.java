@@ -0,0 +1,15 @@
+package com.example.kuby.todolist.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedTaskPage {
+    private List<ArchivedTask> tasks;
+    private String nextCursor;
+}
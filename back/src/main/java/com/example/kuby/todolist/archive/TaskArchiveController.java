@@ -0,0 +1,24 @@
+package com.example.kuby.todolist.archive;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/archive")
+@RequiredArgsConstructor
+public class TaskArchiveController {
+    private final TaskArchiveService taskArchiveService;
+
+    @GetMapping
+    public ResponseEntity<ArchivedTaskPage> getPage(@RequestParam(defaultValue = "50") int limit,
+                                                    @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(taskArchiveService.getPage(TokenClaimContext.getIdByKey(USER_ID), limit, cursor));
+    }
+}
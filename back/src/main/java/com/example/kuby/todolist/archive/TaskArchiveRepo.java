@@ -0,0 +1,94 @@
+package com.example.kuby.todolist.archive;
+
+import com.example.kuby.todolist.TaskCursor;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class TaskArchiveRepo {
+    private static final String ARCHIVE_COLUMNS = "id, name, dead_line, notification_date_time, archived_at";
+
+    // served by task_finished_dead_line_idx (V9), the users owning the oldest archivable tasks come first
+    private static final String FIND_ARCHIVABLE_USERS_SQL = "SELECT DISTINCT creator_id FROM (" +
+            "    SELECT creator_id FROM task " +
+            "    WHERE is_finished = true AND dead_line < :cutoff " +
+            "    ORDER BY dead_line " +
+            "    LIMIT :limit" +
+            ") due";
+
+    // moves at most limit tasks and tombstones them in one statement, so devices drop them like deleted ones.
+    // Numbered in id order like DELETE_FINISHED_CHUNK_SQL, returns the change versions used
+    private static final String ARCHIVE_CHUNK_SQL = "WITH due AS (" +
+            "    SELECT id AS due_id, row_number() OVER (ORDER BY id) AS n FROM task " +
+            "    WHERE creator_id = :creatorId AND is_finished = true AND dead_line < :cutoff " +
+            "    ORDER BY id " +
+            "    LIMIT :limit" +
+            "), moved AS (" +
+            "    DELETE FROM task USING due WHERE task.id = due.due_id AND task.creator_id = :creatorId " +
+            "    RETURNING task.id, task.name, task.dead_line, task.notification_date_time, due.n" +
+            "), archived AS (" +
+            "    INSERT INTO task_archive (id, creator_id, name, dead_line, notification_date_time, archived_at) " +
+            "    SELECT id, :creatorId, name, dead_line, notification_date_time, CAST(:now AS timestamp) FROM moved " +
+            "    ON CONFLICT (id) DO NOTHING" +
+            ") " +
+            "INSERT INTO task_tombstone (task_id, creator_id, change_version, deleted_at) " +
+            "SELECT id, :creatorId, :baseVersion + n, CAST(:now AS timestamp) FROM moved " +
+            TaskSyncRepo.TOMBSTONE_CONFLICT_CLAUSE + " " +
+            "RETURNING change_version";
+
+    // newest deadline first
+    private static final String FIND_FIRST_PAGE_SQL = "SELECT " + ARCHIVE_COLUMNS + " FROM task_archive " +
+            "WHERE creator_id = :creatorId " +
+            "ORDER BY dead_line DESC, id DESC " +
+            "LIMIT :limit";
+
+    private static final String FIND_PAGE_AFTER_SQL = "SELECT " + ARCHIVE_COLUMNS + " FROM task_archive " +
+            "WHERE creator_id = :creatorId AND (dead_line, id) < (:position, :id) " +
+            "ORDER BY dead_line DESC, id DESC " +
+            "LIMIT :limit";
+
+    private static final RowMapper<ArchivedTask> ARCHIVED_TASK_MAPPER = (rs, rowNum) -> new ArchivedTask(
+            rs.getObject("id", UUID.class),
+            rs.getString("name"),
+            rs.getObject("dead_line", LocalDateTime.class),
+            rs.getObject("notification_date_time", LocalDateTime.class),
+            rs.getObject("archived_at", LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<UUID> findArchivableUsers(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(FIND_ARCHIVABLE_USERS_SQL, new MapSqlParameterSource()
+                .addValue("cutoff", cutoff)
+                .addValue("limit", limit), UUID.class);
+    }
+
+    public List<Long> archiveChunk(UUID creatorId, LocalDateTime cutoff, long baseVersion, int limit, LocalDateTime now) {
+        return jdbcTemplate.queryForList(ARCHIVE_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("cutoff", cutoff)
+                .addValue("baseVersion", baseVersion)
+                .addValue("limit", limit)
+                .addValue("now", now), Long.class);
+    }
+
+    public List<ArchivedTask> findPage(UUID creatorId, TaskCursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("creatorId", creatorId)
+                .addValue("limit", limit);
+        if (after == null)
+            return jdbcTemplate.query(FIND_FIRST_PAGE_SQL, params, ARCHIVED_TASK_MAPPER);
+
+        params.addValue("position", after.position())
+                .addValue("id", after.id());
+        return jdbcTemplate.query(FIND_PAGE_AFTER_SQL, params, ARCHIVED_TASK_MAPPER);
+    }
+}
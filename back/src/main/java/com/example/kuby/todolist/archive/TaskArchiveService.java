@@ -0,0 +1,38 @@
+package com.example.kuby.todolist.archive;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class TaskArchiveService {
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final TaskArchiveRepo taskArchiveRepo;
+
+    @Transactional(readOnly = true)
+    public ArchivedTaskPage getPage(UUID userId, int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new BasicException(Map.of("limit", "Limit must be between 1 and " + MAX_PAGE_SIZE), HttpStatus.BAD_REQUEST);
+
+        TaskCursor after = cursor != null ? TaskCursor.decode(cursor) : null;
+        if (after != null && after.position() == null)
+            throw new BasicException(Map.of("cursor", "Cursor has invalid format"), HttpStatus.BAD_REQUEST);
+
+        List<ArchivedTask> tasks = taskArchiveRepo.findPage(userId, after, limit + 1);
+        if (tasks.size() <= limit)
+            return new ArchivedTaskPage(tasks, null);
+
+        List<ArchivedTask> page = tasks.subList(0, limit);
+        ArchivedTask last = page.get(limit - 1);
+        return new ArchivedTaskPage(page, new TaskCursor(last.getDeadLine(), last.getId()).encode());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.kuby.todolist.archive;
+
+import com.example.kuby.datasource.UserShards;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// moves old finished tasks out of task a user and a chunk at a time. Each chunk takes the user's version row first,
+// the lock order of TaskService, and the task_stats triggers count the tasks out like deletes
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "task.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class TaskArchiver {
+    // the task still exists for the user, consumers of the outbox (V8) must not see it as deleted
+    private static final String SKIP_OUTBOX_SQL = "SELECT set_config('task.outbox_skip', 'on', true)";
+
+    private final TaskArchiveRepo taskArchiveRepo;
+    private final TaskSyncRepo taskSyncRepo;
+    private final UserShards userShards;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter archivedCounter;
+
+    public TaskArchiver(TaskArchiveRepo taskArchiveRepo,
+                        TaskSyncRepo taskSyncRepo,
+                        UserShards userShards,
+                        JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${task.archive.min-age:P90D}") Duration minAge,
+                        @Value("${task.archive.batch-size:200}") int batchSize,
+                        @Value("${task.archive.max-batches-per-run:10}") int maxBatchesPerRun) {
+        this.taskArchiveRepo = taskArchiveRepo;
+        this.taskSyncRepo = taskSyncRepo;
+        this.userShards = userShards;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.archivedCounter = Counter.builder("task.archive.archived")
+                .description("Finished tasks moved to task_archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${task.archive.delay-ms:60000}", initialDelayString = "${task.archive.delay-ms:60000}")
+    public void archive() {
+        try {
+            userShards.forEachShard(this::archiveShard);
+        } catch (RuntimeException ex) {
+            log.error("Task archiving failed", ex);
+        }
+    }
+
+    public void archiveShard() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<UUID> userIds = taskArchiveRepo.findArchivableUsers(cutoff, batchSize);
+            if (userIds.isEmpty())
+                return;
+
+            userIds.forEach(userId -> archiveUser(userId, cutoff));
+        }
+    }
+
+    private void archiveUser(UUID userId, LocalDateTime cutoff) {
+        int chunk;
+        do {
+            Integer archived = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForObject(SKIP_OUTBOX_SQL, String.class);
+                return taskSyncRepo.applyVersioned(userId,
+                        baseVersion -> taskArchiveRepo.archiveChunk(userId, cutoff, baseVersion, batchSize, LocalDateTime.now())).size();
+            });
+            chunk = archived == null ? 0 : archived;
+            archivedCounter.increment(chunk);
+        } while (chunk == batchSize);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.kuby.todolist.batch;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchOperation {
+    @NotNull
+    private BatchOperationType type;
+    // client side id of a task created earlier in the same batch, lets later operations target it
+    private String ref;
+    private UUID taskId;
+    private String name;
+    private LocalDateTime deadLine;
+    private LocalDateTime notificationDateTime;
+    private Boolean isFinished;
+    // CREATE only: the parent is one of the user's tasks, or a task created earlier in the same batch by its ref
+    private UUID parentId;
+    private String parentRef;
+}
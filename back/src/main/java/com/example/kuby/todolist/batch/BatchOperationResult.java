@@ -0,0 +1,19 @@
+package com.example.kuby.todolist.batch;
+
+import com.example.kuby.todolist.TaskDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchOperationResult {
+    private int index;
+    private String ref;
+    private int status;
+    private TaskDTO task;
+    private Map<String, String> errors;
+}
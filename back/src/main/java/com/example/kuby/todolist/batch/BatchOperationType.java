@@ -0,0 +1,5 @@
+package com.example.kuby.todolist.batch;
+
+public enum BatchOperationType {
+    CREATE, UPDATE, FINISH, DELETE
+}
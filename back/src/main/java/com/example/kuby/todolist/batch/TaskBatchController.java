@@ -0,0 +1,24 @@
+package com.example.kuby.todolist.batch;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/batch")
+@RequiredArgsConstructor
+public class TaskBatchController {
+    private final TaskBatchService taskBatchService;
+
+    @PostMapping
+    public ResponseEntity<TaskBatchResponse> apply(@RequestBody @Valid TaskBatchRequest request) {
+        return ResponseEntity.ok(taskBatchService.apply(TokenClaimContext.getIdByKey(USER_ID), request.getOperations()));
+    }
+}
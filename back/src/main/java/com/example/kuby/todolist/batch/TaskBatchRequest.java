@@ -0,0 +1,20 @@
+package com.example.kuby.todolist.batch;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskBatchRequest {
+    @NotEmpty
+    @Size(max = TaskBatchService.MAX_OPERATIONS)
+    private List<@Valid @NotNull BatchOperation> operations;
+}
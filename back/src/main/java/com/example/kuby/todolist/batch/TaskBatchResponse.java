@@ -0,0 +1,14 @@
+package com.example.kuby.todolist.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskBatchResponse {
+    private List<BatchOperationResult> results;
+}
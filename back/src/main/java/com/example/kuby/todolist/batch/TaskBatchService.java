@@ -0,0 +1,225 @@
+package com.example.kuby.todolist.batch;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.TaskService;
+import com.example.kuby.todolist.TaskValidator;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import com.example.kuby.utils.UuidV7;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class TaskBatchService {
+    static final int MAX_OPERATIONS = 500;
+
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final TaskSyncRepo taskSyncRepo;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // operations are replayed in memory against locked rows and written back with one statement batch per kind,
+    // a failed operation is reported in its result and does not roll back the others
+    @Transactional
+    public TaskBatchResponse apply(UUID userId, List<BatchOperation> operations) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // allocated before any task row is locked, the same order TaskService takes its locks in
+        long firstVersion = taskSyncRepo.allocateChangeVersions(userId, operations.size()) - operations.size() + 1;
+
+        Map<UUID, PendingTask> tasks = new HashMap<>();
+        taskJdbcRepo.lockByIdsAndCreatorId(referencedTaskIds(operations), userId, now)
+                .forEach(task -> tasks.put(task.getId(), new PendingTask(task, true)));
+
+        Map<String, UUID> refs = new HashMap<>();
+        Map<UUID, Integer> depths = new HashMap<>();
+        List<BatchOperationResult> results = new ArrayList<>(operations.size());
+        for (int index = 0; index < operations.size(); index++) {
+            BatchOperation operation = operations.get(index);
+            try {
+                results.add(applyOperation(index, operation, firstVersion + index, userId, now, tasks, refs, depths));
+            } catch (BasicException ex) {
+                results.add(new BatchOperationResult(index, operation.getRef(), ex.getHttpStatus().value(), null, ex.getErrors()));
+            }
+        }
+
+        flush(userId, tasks.values());
+        if (results.stream().anyMatch(result -> result.getErrors() == null))
+            eventPublisher.publishEvent(new TaskChangedEvent(userId));
+        return new TaskBatchResponse(results);
+    }
+
+    private BatchOperationResult applyOperation(int index, BatchOperation operation, long changeVersion, UUID userId,
+                                                LocalDateTime now, Map<UUID, PendingTask> tasks, Map<String, UUID> refs,
+                                                Map<UUID, Integer> depths) {
+        switch (operation.getType()) {
+            case CREATE -> {
+                // the @NotNull of CreateTaskRequest, with the message bean validation gives the single create
+                if (operation.getIsFinished() == null)
+                    throw new BasicException(Map.of("isFinished", "must not be null"), HttpStatus.BAD_REQUEST);
+                TaskValidator.validateNew(operation.getName(), operation.getDeadLine(), operation.getNotificationDateTime(), now);
+                if (operation.getRef() != null && refs.containsKey(operation.getRef()))
+                    throw new BasicException(Map.of("ref", "Ref is already used in this batch"), HttpStatus.BAD_REQUEST);
+                UUID parentId = resolveParent(operation, userId, tasks, refs, depths);
+
+                TaskDTO task = new TaskDTO();
+                task.setId(UuidV7.generate());
+                task.setCreatorId(userId);
+                task.setParentId(parentId);
+                task.setName(operation.getName());
+                task.setDeadLine(operation.getDeadLine());
+                task.setNotificationDateTime(operation.getNotificationDateTime());
+                task.setIsFinished(operation.getIsFinished());
+                task.setIsExpired(false);
+                task.setChangeVersion(changeVersion);
+
+                tasks.put(task.getId(), new PendingTask(task, false));
+                depths.put(task.getId(), parentId != null ? depths.get(parentId) + 1 : 1);
+                if (operation.getRef() != null)
+                    refs.put(operation.getRef(), task.getId());
+                return new BatchOperationResult(index, operation.getRef(), HttpStatus.CREATED.value(), copy(task), null);
+            }
+            case UPDATE -> {
+                PendingTask pending = resolve(operation, tasks, refs);
+                TaskDTO task = pending.task;
+                TaskValidator.validateUpdate(operation.getName(), operation.getDeadLine(), task.getDeadLine(),
+                        operation.getNotificationDateTime(), now);
+
+                if (operation.getName() != null)
+                    task.setName(operation.getName());
+                if (operation.getDeadLine() != null) {
+                    task.setDeadLine(operation.getDeadLine());
+                    task.setIsExpired(false);
+                    pending.deadLineChanged = true;
+                }
+                if (operation.getNotificationDateTime() != null)
+                    task.setNotificationDateTime(operation.getNotificationDateTime());
+
+                pending.touch(changeVersion);
+                return new BatchOperationResult(index, operation.getRef(), HttpStatus.OK.value(), copy(task), null);
+            }
+            case FINISH -> {
+                PendingTask pending = resolve(operation, tasks, refs);
+                pending.task.setIsFinished(true);
+
+                pending.touch(changeVersion);
+                return new BatchOperationResult(index, operation.getRef(), HttpStatus.OK.value(), copy(pending.task), null);
+            }
+            case DELETE -> {
+                PendingTask pending = resolve(operation, tasks, refs);
+                pending.deleted = true;
+
+                pending.touch(changeVersion);
+                return new BatchOperationResult(index, operation.getRef(), HttpStatus.NO_CONTENT.value(), null, null);
+            }
+            default -> throw new BasicException(Map.of("type", "Unsupported operation type"), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private void flush(UUID userId, Collection<PendingTask> tasks) {
+        List<TaskDTO> inserts = new ArrayList<>();
+        List<TaskDTO> updates = new ArrayList<>();
+        Set<UUID> deadLineChanged = new HashSet<>();
+        Map<UUID, Long> deletes = new HashMap<>();
+
+        for (PendingTask pending : tasks) {
+            if (pending.deleted) {
+                // a task created and deleted within the batch never reached the database or any other device
+                if (pending.persisted)
+                    deletes.put(pending.task.getId(), pending.task.getChangeVersion());
+            } else if (!pending.persisted) {
+                inserts.add(pending.task);
+            } else if (pending.dirty) {
+                updates.add(pending.task);
+                if (pending.deadLineChanged)
+                    deadLineChanged.add(pending.task.getId());
+            }
+        }
+
+        taskJdbcRepo.batchInsert(inserts);
+        taskJdbcRepo.batchUpdate(updates, deadLineChanged);
+        taskJdbcRepo.batchDelete(deletes.keySet(), userId);
+        taskSyncRepo.saveTombstones(deletes, userId);
+    }
+
+    private static PendingTask resolve(BatchOperation operation, Map<UUID, PendingTask> tasks, Map<String, UUID> refs) {
+        UUID taskId = operation.getTaskId() != null ? operation.getTaskId() : refs.get(operation.getRef());
+        if (operation.getTaskId() == null && operation.getRef() == null)
+            throw new BasicException(Map.of("taskId", "Task id or ref is required"), HttpStatus.BAD_REQUEST);
+
+        PendingTask pending = taskId != null ? tasks.get(taskId) : null;
+        if (pending == null || pending.deleted)
+            throw new BasicException(Map.of("taskId", "Task with such id not found"), HttpStatus.NOT_FOUND);
+        return pending;
+    }
+
+    // the same depth limit as TaskService.create, depths of parents in the database are read once per batch
+    private UUID resolveParent(BatchOperation operation, UUID userId, Map<UUID, PendingTask> tasks, Map<String, UUID> refs,
+                               Map<UUID, Integer> depths) {
+        if (operation.getParentId() == null && operation.getParentRef() == null)
+            return null;
+
+        UUID parentId = operation.getParentId() != null ? operation.getParentId() : refs.get(operation.getParentRef());
+        PendingTask pending = parentId != null ? tasks.get(parentId) : null;
+        if (parentId == null || pending != null && pending.deleted)
+            throw new BasicException(Map.of("parentId", "Task with such id not found"), HttpStatus.NOT_FOUND);
+
+        if (!depths.containsKey(parentId))
+            depths.put(parentId, taskJdbcRepo.findDepth(parentId, userId, TaskService.MAX_TREE_DEPTH).orElseThrow(() ->
+                    new BasicException(Map.of("parentId", "Task with such id not found"), HttpStatus.NOT_FOUND)));
+        if (depths.get(parentId) >= TaskService.MAX_TREE_DEPTH)
+            throw new BasicException(Map.of("parentId", "Subtasks cannot be nested deeper than " + TaskService.MAX_TREE_DEPTH + " levels"),
+                    HttpStatus.BAD_REQUEST);
+        return parentId;
+    }
+
+    private static Set<UUID> referencedTaskIds(List<BatchOperation> operations) {
+        return operations.stream()
+                .filter(operation -> operation.getType() != BatchOperationType.CREATE)
+                .map(BatchOperation::getTaskId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    // results keep the state after their own operation, later operations in the batch keep mutating the pending task
+    private static TaskDTO copy(TaskDTO task) {
+        TaskDTO copy = new TaskDTO();
+        copy.setId(task.getId());
+        copy.setCreatorId(task.getCreatorId());
+        copy.setName(task.getName());
+        copy.setDeadLine(task.getDeadLine());
+        copy.setNotificationDateTime(task.getNotificationDateTime());
+        copy.setIsFinished(task.getIsFinished());
+        copy.setIsExpired(task.getIsExpired());
+        copy.setChangeVersion(task.getChangeVersion());
+        copy.setParentId(task.getParentId());
+        return copy;
+    }
+
+    private static final class PendingTask {
+        private final TaskDTO task;
+        private final boolean persisted;
+        private boolean dirty;
+        private boolean deleted;
+        private boolean deadLineChanged;
+
+        private PendingTask(TaskDTO task, boolean persisted) {
+            this.task = task;
+            this.persisted = persisted;
+        }
+
+        private void touch(long changeVersion) {
+            task.setChangeVersion(changeVersion);
+            dirty = true;
+        }
+    }
+}
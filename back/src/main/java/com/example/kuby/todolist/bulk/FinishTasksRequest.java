@@ -0,0 +1,20 @@
+package com.example.kuby.todolist.bulk;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FinishTasksRequest {
+    @NotEmpty
+    @Size(max = TaskBulkService.MAX_IDS)
+    private List<@NotNull UUID> ids;
+}
@@ -0,0 +1,17 @@
+package com.example.kuby.todolist.bulk;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostponeOverdueRequest {
+    // ISO-8601, e.g. PT24H
+    @NotNull
+    private Duration shift;
+}
@@ -0,0 +1,35 @@
+package com.example.kuby.todolist.bulk;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/bulk")
+@RequiredArgsConstructor
+public class TaskBulkController {
+    private final TaskBulkService taskBulkService;
+
+    @PostMapping("/finish")
+    public ResponseEntity<TaskBulkResponse> finish(@RequestBody @Valid FinishTasksRequest request) {
+        return ResponseEntity.ok(taskBulkService.finish(TokenClaimContext.getIdByKey(USER_ID), request.getIds()));
+    }
+
+    @DeleteMapping("/finished")
+    public ResponseEntity<TaskBulkResponse> deleteFinished() {
+        return ResponseEntity.ok(taskBulkService.deleteFinished(TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @PostMapping("/postpone-overdue")
+    public ResponseEntity<TaskBulkResponse> postponeOverdue(@RequestBody @Valid PostponeOverdueRequest request) {
+        return ResponseEntity.ok(taskBulkService.postponeOverdue(TokenClaimContext.getIdByKey(USER_ID), request.getShift()));
+    }
+}
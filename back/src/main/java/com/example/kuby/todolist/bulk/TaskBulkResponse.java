@@ -0,0 +1,12 @@
+package com.example.kuby.todolist.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskBulkResponse {
+    private int affected;
+}
@@ -0,0 +1,74 @@
+package com.example.kuby.todolist.bulk;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// every operation is one statement over the creator's rows, numbered from the user's version row by
+// TaskSyncRepo.applyVersioned
+@Service
+public class TaskBulkService {
+    static final int MAX_IDS = 500;
+    private static final Duration MAX_SHIFT = Duration.ofDays(366);
+
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final TaskSyncRepo taskSyncRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final int deleteChunkSize;
+
+    public TaskBulkService(TaskJdbcRepo taskJdbcRepo,
+                           TaskSyncRepo taskSyncRepo,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${task.bulk.delete-chunk-size:1000}") int deleteChunkSize) {
+        this.taskJdbcRepo = taskJdbcRepo;
+        this.taskSyncRepo = taskSyncRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deleteChunkSize = deleteChunkSize;
+    }
+
+    // tasks that are missing or already finished are skipped
+    @Transactional
+    public TaskBulkResponse finish(UUID userId, List<UUID> ids) {
+        List<TaskDTO> finished = taskSyncRepo.applyVersioned(userId,
+                baseVersion -> taskJdbcRepo.finishByIds(ids, userId, baseVersion, LocalDateTime.now()),
+                TaskDTO::getChangeVersion);
+        return new TaskBulkResponse(finished.size());
+    }
+
+    // one transaction per chunk, so a user clearing years of finished tasks holds locks and WAL for a chunk at a time
+    public TaskBulkResponse deleteFinished(UUID userId) {
+        int deleted = 0;
+        int chunk;
+        do {
+            Integer chunkDeleted = transactionTemplate.execute(status -> taskSyncRepo.applyVersioned(userId,
+                    baseVersion -> taskJdbcRepo.deleteFinishedChunk(userId, baseVersion, deleteChunkSize, LocalDateTime.now())).size());
+            chunk = chunkDeleted == null ? 0 : chunkDeleted;
+            deleted += chunk;
+        } while (chunk == deleteChunkSize);
+        return new TaskBulkResponse(deleted);
+    }
+
+    @Transactional
+    public TaskBulkResponse postponeOverdue(UUID userId, Duration shift) {
+        if (shift.isNegative() || shift.isZero() || shift.compareTo(MAX_SHIFT) > 0)
+            throw new BasicException(Map.of("shift", "Shift must be positive and at most " + MAX_SHIFT.toDays() + " days"),
+                    HttpStatus.BAD_REQUEST);
+
+        List<Long> versions = taskSyncRepo.applyVersioned(userId,
+                baseVersion -> taskJdbcRepo.postponeOverdue(userId, shift, baseVersion, LocalDateTime.now()));
+        return new TaskBulkResponse(versions.size());
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.kuby.todolist.cache;
+
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.TaskPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// L1 is a bounded in-process cache, L2 a Redis hash per user and generation (task:list:{userId}:{generation}).
+// Invalidation bumps the generation (TaskListVersion), so a reader that loaded before the commit can only fill an orphaned entry.
+// A bump that fails leaves the user stale: reads skip the cache until the scheduled retry gets the bump through.
+@Slf4j
+@Component
+public class TaskListCache implements MessageListener {
+    static final String INVALIDATION_CHANNEL = "task:list:invalidate";
+    private static final String PAGES_KEY_PREFIX = "task:list:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final TaskListVersion taskListVersion;
+    private final ObjectMapper objectMapper;
+    private final Duration redisTtl;
+
+    // a user's pages hang off their current Generation by identity, dropping it orphans them until size or ttl eviction
+    private final Cache<UUID, Generation> generations;
+    private final Cache<LocalKey, TaskPage> pages;
+
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter redisEvictions;
+
+    public TaskListCache(StringRedisTemplate redisTemplate,
+                         TaskListVersion taskListVersion,
+                         ObjectMapper objectMapper,
+                         RedisMessageListenerContainer listenerContainer,
+                         MeterRegistry meterRegistry,
+                         @Value("${task.cache.local.max-size:10000}") long localMaxSize,
+                         @Value("${task.cache.local.ttl-seconds:30}") long localTtlSeconds,
+                         @Value("${task.cache.redis.ttl-minutes:10}") long redisTtlMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.taskListVersion = taskListVersion;
+        this.objectMapper = objectMapper;
+        this.redisTtl = Duration.ofMinutes(redisTtlMinutes);
+
+        this.generations = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterAccess(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        // the ttl bounds staleness on a node that missed an invalidation broadcast
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "task.list.l1");
+
+        this.redisHits = Counter.builder("cache.gets")
+                .tags("cache", "task.list.l2", "result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("cache.gets")
+                .tags("cache", "task.list.l2", "result", "miss")
+                .register(meterRegistry);
+        this.redisEvictions = Counter.builder("cache.evictions")
+                .tags("cache", "task.list.l2")
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public TaskPage get(UUID userId, String pageKey, Supplier<TaskPage> loader) {
+        // registered before Redis is asked for the generation, so an invalidation racing this read drops it
+        if (taskListVersion.isStale(userId))
+            return loader.get();
+
+        Generation generation = generations.get(userId, id -> new Generation());
+        LocalKey localKey = new LocalKey(generation, pageKey);
+
+        TaskPage page = pages.getIfPresent(localKey);
+        if (page != null)
+            return page;
+
+        String redisKey;
+        try {
+            redisKey = redisKey(userId, generation);
+            page = readRemote(redisKey, pageKey);
+        } catch (RuntimeException ex) {
+            log.warn("Task list cache is unavailable, reading from the database", ex);
+            return loader.get();
+        }
+
+        if (page == null) {
+            page = loader.get();
+            writeRemote(redisKey, pageKey, page);
+        }
+
+        pages.put(localKey, page);
+        return page;
+    }
+
+    public void invalidate(UUID userId) {
+        try {
+            bump(userId);
+        } catch (RuntimeException ex) {
+            log.error("Failed to invalidate task list cache of user {}, retrying", userId, ex);
+        }
+    }
+
+    // until a failed bump gets through, the old generation would stay current here and on every other node
+    @Scheduled(fixedDelayString = "${task.cache.invalidation-retry-ms:1000}")
+    public void retryFailedInvalidations() {
+        Set<UUID> stale = taskListVersion.staleUsers();
+        if (stale.isEmpty())
+            return;
+
+        int failed = 0;
+        for (UUID userId : stale) {
+            try {
+                bump(userId);
+            } catch (RuntimeException ex) {
+                failed++;
+            }
+        }
+        if (failed > 0)
+            log.warn("Task list cache invalidation still failing for {} users", failed);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    // broadcasts from other nodes, and our own echo which is harmless
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            generations.invalidate(UUID.fromString(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring malformed task list invalidation message", ex);
+        }
+    }
+
+    private void bump(UUID userId) {
+        generations.invalidate(userId);
+
+        long next = taskListVersion.next(userId);
+        redisTemplate.delete(PAGES_KEY_PREFIX + userId + ":" + (next - 1));
+        redisEvictions.increment();
+
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, userId.toString());
+    }
+
+    private String redisKey(UUID userId, Generation generation) {
+        String key = generation.redisKey;
+        if (key == null) {
+            key = PAGES_KEY_PREFIX + userId + ":" + taskListVersion.current(userId);
+            generation.redisKey = key;
+        }
+        return key;
+    }
+
+    private TaskPage readRemote(String redisKey, String pageKey) {
+        Object cached = redisTemplate.opsForHash().get(redisKey, pageKey);
+        if (cached == null) {
+            redisMisses.increment();
+            return null;
+        }
+
+        try {
+            TaskPage page = objectMapper.readValue(cached.toString(), TaskPage.class);
+            redisHits.increment();
+            return page;
+        } catch (JsonProcessingException ex) {
+            log.warn("Dropping unreadable task list cache entry {}", redisKey, ex);
+            redisMisses.increment();
+            return null;
+        }
+    }
+
+    private void writeRemote(String redisKey, String pageKey, TaskPage page) {
+        try {
+            redisTemplate.opsForHash().put(redisKey, pageKey, objectMapper.writeValueAsString(page));
+            redisTemplate.expire(redisKey, redisTtl);
+        } catch (JsonProcessingException | RuntimeException ex) {
+            log.warn("Failed to write task list cache entry {}", redisKey, ex);
+        }
+    }
+
+    private static final class Generation {
+        private volatile String redisKey;
+    }
+
+    private record LocalKey(Generation generation, String pageKey) {
+    }
+}
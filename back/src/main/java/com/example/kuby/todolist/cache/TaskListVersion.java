@@ -0,0 +1,84 @@
+package com.example.kuby.todolist.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// per-user version of the task list, bumped after every committed mutation (see TaskListCache)
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskListVersion {
+    private static final String KEY_PREFIX = "task:list:gen:";
+    private static final Duration TTL = Duration.ofDays(1);
+
+    // versions start from the clock, so one that expired and was recreated never repeats an earlier value
+    private static final RedisScript<Long> CURRENT_SCRIPT = RedisScript.of(
+            "local version = redis.call('GET', KEYS[1]) " +
+            "if not version then " +
+            "  version = ARGV[1] " +
+            "  redis.call('SET', KEYS[1], version, 'PX', ARGV[2]) " +
+            "end " +
+            "return tonumber(version)", Long.class);
+
+    private static final RedisScript<Long> NEXT_SCRIPT = RedisScript.of(
+            "local version = tonumber(redis.call('GET', KEYS[1]) or ARGV[1]) + 1 " +
+            "redis.call('SET', KEYS[1], version, 'PX', ARGV[2]) " +
+            "return version", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    // users whose bump after a write failed: their version still names the list from before it, so it is not handed
+    // out as a validator and TaskListCache bypasses their entries until its retry gets a bump through
+    private final Set<UUID> unbumped = ConcurrentHashMap.newKeySet();
+
+    public long current(UUID userId) {
+        return execute(CURRENT_SCRIPT, userId);
+    }
+
+    public long next(UUID userId) {
+        try {
+            long version = execute(NEXT_SCRIPT, userId);
+            unbumped.remove(userId);
+            return version;
+        } catch (RuntimeException ex) {
+            unbumped.add(userId);
+            throw ex;
+        }
+    }
+
+    public boolean isStale(UUID userId) {
+        return unbumped.contains(userId);
+    }
+
+    public Set<UUID> staleUsers() {
+        return Set.copyOf(unbumped);
+    }
+
+    // null when Redis is unavailable or the version is stale, the response then simply goes out without validator
+    public String etag(UUID userId) {
+        if (isStale(userId))
+            return null;
+        try {
+            return "\"" + current(userId) + "\"";
+        } catch (RuntimeException ex) {
+            log.warn("Task list version is unavailable, skipping ETag", ex);
+            return null;
+        }
+    }
+
+    private long execute(RedisScript<Long> script, UUID userId) {
+        Long version = redisTemplate.execute(script, List.of(KEY_PREFIX + userId),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(TTL.toMillis()));
+        if (version == null)
+            throw new IllegalStateException("Redis returned no task list version");
+        return version;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.kuby.todolist.expiry;
+
+import com.example.kuby.datasource.UserShards;
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.partition.TaskPartitions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class TaskExpirySweeper {
+    // run against one partition at a time, so each batch only touches that partition's heap and indexes
+    private static final String EXPIRE_BATCH_SQL = "WITH due AS (" +
+            "    SELECT id, creator_id FROM %1$s " +
+            "    WHERE is_expired = false AND dead_line < ? " +
+            "    ORDER BY dead_line " +
+            "    LIMIT ? " +
+            "    FOR UPDATE SKIP LOCKED" +
+            ") " +
+            "UPDATE %1$s t SET is_expired = true " +
+            "FROM due WHERE t.id = due.id AND t.creator_id = due.creator_id " +
+            "RETURNING t.creator_id";
+
+    private static final String OLDEST_PENDING_SQL = "SELECT min(dead_line) FROM task " +
+            "WHERE is_expired = false AND dead_line < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskPartitions taskPartitions;
+    private final UserShards userShards;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter expiredCounter;
+    private final Timer batchTimer;
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public TaskExpirySweeper(JdbcTemplate jdbcTemplate,
+                             TaskPartitions taskPartitions,
+                             UserShards userShards,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry,
+                             @Value("${task.expiry.batch-size:500}") int batchSize,
+                             @Value("${task.expiry.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.taskPartitions = taskPartitions;
+        this.userShards = userShards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.expiredCounter = Counter.builder("task.expiry.expired")
+                .description("Tasks flipped to expired by the sweeper")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("task.expiry.batch")
+                .description("Duration of a single expiry batch")
+                .register(meterRegistry);
+        Gauge.builder("task.expiry.lag", lagSeconds, AtomicLong::get)
+                .description("Seconds since the deadline of the oldest task still waiting to be expired")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${task.expiry.sweep-delay-ms:5000}")
+    public void sweep() {
+        try {
+            AtomicLong maxLag = new AtomicLong();
+            userShards.forEachShard(() -> {
+                sweepShard();
+                maxLag.accumulateAndGet(currentLag(LocalDateTime.now()), Math::max);
+            });
+            lagSeconds.set(maxLag.get());
+        } catch (RuntimeException ex) {
+            log.error("Task expiry sweep failed", ex);
+        }
+    }
+
+    private void sweepShard() {
+        for (String partition : taskPartitions.taskPartitions()) {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (expireBatch(partition, LocalDateTime.now()).size() < batchSize)
+                    break;
+            }
+        }
+    }
+
+    List<UUID> expireBatch(String partition, LocalDateTime now) {
+        String sql = EXPIRE_BATCH_SQL.formatted(partition);
+        List<UUID> creatorIds = batchTimer.record(() -> transactionTemplate.execute(status -> {
+            List<UUID> expired = jdbcTemplate.queryForList(sql, UUID.class, now, batchSize);
+            expired.stream().distinct().forEach(creatorId -> eventPublisher.publishEvent(new TaskChangedEvent(creatorId)));
+            return expired;
+        }));
+
+        if (creatorIds == null)
+            return List.of();
+
+        expiredCounter.increment(creatorIds.size());
+        return creatorIds;
+    }
+
+    private long currentLag(LocalDateTime now) {
+        LocalDateTime oldestPending = jdbcTemplate.queryForObject(OLDEST_PENDING_SQL, LocalDateTime.class, now);
+        return oldestPending == null ? 0 : Duration.between(oldestPending, now).toSeconds();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.kuby.todolist.export;
+
+import com.example.kuby.todolist.TaskDTO;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// RFC 4180, one row per task in TaskDTO's field order and names
+final class TaskCsvWriter {
+    private static final String HEADER = "id,creatorId,name,deadLine,notificationDateTime,isFinished,isExpired,changeVersion,parentId";
+
+    private final Writer writer;
+
+    TaskCsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    void write(TaskDTO task) throws IOException {
+        writer.write(String.valueOf(task.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(task.getCreatorId()));
+        writer.write(',');
+        writer.write(escape(task.getName()));
+        writer.write(',');
+        writer.write(format(task.getDeadLine()));
+        writer.write(',');
+        writer.write(format(task.getNotificationDateTime()));
+        writer.write(',');
+        writer.write(String.valueOf(task.getIsFinished()));
+        writer.write(',');
+        writer.write(String.valueOf(task.getIsExpired()));
+        writer.write(',');
+        writer.write(String.valueOf(task.getChangeVersion()));
+        writer.write(',');
+        writer.write(task.getParentId() != null ? task.getParentId().toString() : "");
+        writer.write("\r\n");
+    }
+
+    // same text as the json export, which Jackson writes with ISO_LOCAL_DATE_TIME
+    private static String format(LocalDateTime time) {
+        return time == null ? "" : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time);
+    }
+
+    // names are user input: quoted when they hold a delimiter, and kept from being read as a formula by spreadsheets
+    private static String escape(String value) {
+        if (value == null)
+            return "";
+
+        String escaped = value;
+        if (!escaped.isEmpty() && "=+-@\t\r".indexOf(escaped.charAt(0)) >= 0)
+            escaped = "'" + escaped;
+        if (escaped.contains(",") || escaped.contains("\"") || escaped.contains("\n") || escaped.contains("\r"))
+            escaped = "\"" + escaped.replace("\"", "\"\"") + "\"";
+        return escaped;
+    }
+}
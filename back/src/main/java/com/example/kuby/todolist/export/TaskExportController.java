@@ -0,0 +1,139 @@
+package com.example.kuby.todolist.export;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import com.example.kuby.todolist.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/export")
+@RequiredArgsConstructor
+public class TaskExportController {
+    private final TaskService taskService;
+    private final ObjectMapper objectMapper;
+
+    // rows go from the server-side cursor of streamAll straight to the response, memory stays flat whatever the
+    // account size. Written on the request thread, an async body would be cut off by the async request timeout.
+    // Rows are small, the buffer lets the container and gzip see 8 KB writes instead of one per row
+    @GetMapping
+    public void export(@RequestParam(required = false) String format,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        UUID userId = TokenClaimContext.getIdByKey(USER_ID);
+        TaskExportFormat exportFormat = TaskExportFormat.parse(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setHeader(HttpHeaders.CONTENT_TYPE, exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("tasks-" + LocalDate.now() + "." + exportFormat.extension())
+                .build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        OutputStream outputStream = response.getOutputStream();
+        OutputStream out = new BufferedOutputStream(gzip ? new GZIPOutputStream(outputStream, 8192) : outputStream, 8192);
+        write(userId, exportFormat, out);
+        out.close();
+    }
+
+    // RFC 9110 12.5.3: gzip;q=0 refuses gzip, a * covers gzip unless gzip is listed on its own
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip"))
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            else if (name.equals("*"))
+                any = quality;
+        }
+        if (gzip != null)
+            return gzip > 0;
+        return any != null && any > 0;
+    }
+
+    private void write(UUID userId, TaskExportFormat format, OutputStream out) {
+        try {
+            switch (format) {
+                case NDJSON -> {
+                    // the application's ObjectMapper, so rows read exactly like TaskDTO from the rest of the api.
+                    // FLUSH_AFTER_WRITE_VALUE would flush the response after every row
+                    SequenceWriter writer = objectMapper.writer()
+                            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                            .withRootValueSeparator("\n")
+                            .writeValues(out);
+                    AtomicBoolean empty = new AtomicBoolean(true);
+                    taskService.streamAll(userId, task -> {
+                        try {
+                            writer.write(task);
+                            empty.set(false);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                    writer.flush();
+                    if (!empty.get())
+                        out.write('\n');
+                }
+                case CSV -> {
+                    BufferedWriter buffered = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    TaskCsvWriter writer = new TaskCsvWriter(buffered);
+                    writer.writeHeader();
+                    taskService.streamAll(userId, task -> {
+                        try {
+                            writer.write(task);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                    buffered.flush();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.kuby.todolist.export;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+public enum TaskExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    TaskExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static TaskExportFormat parse(String value) {
+        try {
+            return value == null ? NDJSON : valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new BasicException(Map.of("format", "Format must be one of ndjson, csv"), HttpStatus.BAD_REQUEST);
+        }
+    }
+}
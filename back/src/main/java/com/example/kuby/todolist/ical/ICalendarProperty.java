@@ -0,0 +1,25 @@
+package com.example.kuby.todolist.ical;
+
+import java.util.Map;
+
+// name and parameter names are upper case, the value is still escaped
+record ICalendarProperty(String name, Map<String, String> params, String value) {
+    String param(String name) {
+        return params.get(name);
+    }
+
+    // RFC 5545 3.3.11
+    String text() {
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                text.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.kuby.todolist.ical;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// pulls one VTODO at a time off the stream, only the current component and a single unfolded line are held in memory.
+// Lines longer than maxLineLength are skipped to their end and mark the component malformed
+final class ICalendarReader {
+    private static final Set<String> TODO_PROPERTIES = Set.of("UID", "SUMMARY", "DUE", "DTSTART", "STATUS", "COMPLETED");
+    private static final Set<String> ALARM_PROPERTIES = Set.of("TRIGGER");
+
+    private final Reader reader;
+    private final int maxLineLength;
+    private final StringBuilder line = new StringBuilder();
+    private int lookahead = -2;
+    private boolean lineTooLong;
+    private int index;
+
+    ICalendarReader(Reader reader, int maxLineLength) {
+        this.reader = reader;
+        this.maxLineLength = maxLineLength;
+    }
+
+    // null at the end of the stream, a VTODO cut off by the end of the stream is returned as malformed
+    VTodo next() throws IOException {
+        Map<String, ICalendarProperty> properties = null;
+        Map<String, ICalendarProperty> alarm = null;
+        Deque<String> nested = new ArrayDeque<>();
+        boolean inFirstAlarm = false;
+        String malformed = null;
+
+        while (readContentLine()) {
+            if (lineTooLong) {
+                if (properties != null && malformed == null)
+                    malformed = "Line is longer than " + maxLineLength + " characters";
+                continue;
+            }
+
+            ICalendarProperty property = parse(line);
+            if (property == null) {
+                if (properties != null && malformed == null)
+                    malformed = "Line has no value: " + abbreviate(line);
+                continue;
+            }
+
+            String value = property.value().trim().toUpperCase(Locale.ROOT);
+            if (properties == null) {
+                if (property.name().equals("BEGIN") && value.equals("VTODO"))
+                    properties = new HashMap<>();
+            } else if (property.name().equals("BEGIN")) {
+                inFirstAlarm = nested.isEmpty() && value.equals("VALARM") && alarm == null;
+                if (inFirstAlarm)
+                    alarm = new HashMap<>();
+                nested.push(value);
+            } else if (property.name().equals("END")) {
+                if (nested.isEmpty())
+                    return new VTodo(index++, properties, alarm != null ? alarm : Map.of(), malformed);
+                nested.pop();
+                inFirstAlarm = false;
+            } else if (nested.isEmpty()) {
+                if (TODO_PROPERTIES.contains(property.name()))
+                    properties.putIfAbsent(property.name(), property);
+            } else if (inFirstAlarm && nested.size() == 1 && ALARM_PROPERTIES.contains(property.name())) {
+                alarm.putIfAbsent(property.name(), property);
+            }
+        }
+
+        if (properties == null)
+            return null;
+        return new VTodo(index++, properties, alarm != null ? alarm : Map.of(), "Missing END:VTODO");
+    }
+
+    // unfolds continuation lines (RFC 5545 3.1) into line, false at the end of the stream
+    private boolean readContentLine() throws IOException {
+        line.setLength(0);
+        lineTooLong = false;
+        if (!readPhysicalLine())
+            return false;
+
+        while (true) {
+            int next = peek();
+            if (next != ' ' && next != '\t')
+                return true;
+            lookahead = -2;
+            readPhysicalLine();
+        }
+    }
+
+    // appends up to the line break, which is dropped together with a preceding CR
+    private boolean readPhysicalLine() throws IOException {
+        int c = read();
+        if (c == -1)
+            return false;
+
+        while (c != -1 && c != '\n') {
+            if (line.length() < maxLineLength)
+                line.append((char) c);
+            else
+                lineTooLong = true;
+            c = read();
+        }
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r')
+            line.setLength(line.length() - 1);
+        return true;
+    }
+
+    private int peek() throws IOException {
+        if (lookahead == -2)
+            lookahead = reader.read();
+        return lookahead;
+    }
+
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    // NAME;PARAM=value;PARAM="quoted;value":VALUE, null when there is no unquoted colon
+    static ICalendarProperty parse(CharSequence contentLine) {
+        String text = contentLine.toString();
+        if (!text.isEmpty() && text.charAt(0) == '\uFEFF')
+            text = text.substring(1);
+
+        int nameEnd = 0;
+        while (nameEnd < text.length() && text.charAt(nameEnd) != ';' && text.charAt(nameEnd) != ':')
+            nameEnd++;
+        if (nameEnd == text.length() || nameEnd == 0)
+            return null;
+        String name = text.substring(0, nameEnd).trim().toUpperCase(Locale.ROOT);
+
+        Map<String, String> params = new HashMap<>();
+        int position = nameEnd;
+        while (text.charAt(position) == ';') {
+            int paramStart = position + 1;
+            boolean quoted = false;
+            position = paramStart;
+            while (position < text.length() && (quoted || text.charAt(position) != ';' && text.charAt(position) != ':')) {
+                if (text.charAt(position) == '"')
+                    quoted = !quoted;
+                position++;
+            }
+            if (position == text.length())
+                return null;
+
+            String param = text.substring(paramStart, position);
+            int equals = param.indexOf('=');
+            if (equals > 0)
+                params.put(param.substring(0, equals).trim().toUpperCase(Locale.ROOT),
+                        param.substring(equals + 1).replace("\"", ""));
+        }
+        return new ICalendarProperty(name, params, text.substring(position + 1));
+    }
+
+    private static String abbreviate(CharSequence text) {
+        return text.length() <= 40 ? text.toString() : text.subSequence(0, 40) + "...";
+    }
+}
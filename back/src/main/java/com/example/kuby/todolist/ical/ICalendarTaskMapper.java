@@ -0,0 +1,127 @@
+package com.example.kuby.todolist.ical;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskValidator;
+import org.springframework.http.HttpStatus;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// SUMMARY -> name, DUE -> deadLine, the first VALARM TRIGGER -> notificationDateTime, STATUS:COMPLETED -> isFinished.
+// Times are converted to the server zone the rest of the API uses, a TZID Java does not know is read as floating time
+final class ICalendarTaskMapper {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    // RFC 5545 3.3.6, java.time.Duration has no weeks
+    private static final Pattern WEEKS = Pattern.compile("([+-]?)P(\\d+)W");
+
+    private ICalendarTaskMapper() {
+    }
+
+    record ImportedTask(String name, LocalDateTime deadLine, LocalDateTime notificationDateTime, boolean isFinished) {
+    }
+
+    // past deadlines are kept, histories come over with their finished and overdue items. A reminder that is already
+    // due or belongs to a finished item is dropped instead of firing right after the import
+    static ImportedTask map(VTodo todo, ZoneId zone, LocalDateTime now) {
+        if (todo.malformed() != null)
+            throw new BasicException(Map.of("line", todo.malformed()), HttpStatus.BAD_REQUEST);
+
+        ICalendarProperty summary = todo.property("SUMMARY");
+        String name = summary != null ? summary.text().strip() : null;
+        if (name == null || name.isEmpty())
+            throw new BasicException(Map.of("name", "Name cannot be blank"), HttpStatus.BAD_REQUEST);
+        TaskValidator.validateNameLength(name);
+
+        ICalendarProperty due = todo.property("DUE");
+        if (due == null)
+            throw new BasicException(Map.of("deadline", "Deadline is required"), HttpStatus.BAD_REQUEST);
+        LocalDateTime deadLine = dateTime(due, zone, "deadline");
+
+        ICalendarProperty status = todo.property("STATUS");
+        boolean isFinished = status != null && status.value().trim().equalsIgnoreCase("COMPLETED")
+                || todo.property("COMPLETED") != null;
+
+        LocalDateTime notificationDateTime = notification(todo, deadLine, zone);
+        if (notificationDateTime != null && notificationDateTime.isAfter(deadLine))
+            throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be after deadline time"), HttpStatus.BAD_REQUEST);
+        if (notificationDateTime != null && (isFinished || notificationDateTime.isBefore(now)))
+            notificationDateTime = null;
+
+        return new ImportedTask(name, deadLine, notificationDateTime, isFinished);
+    }
+
+    // a relative trigger counts from DTSTART unless RELATED=END, a to-do without DTSTART counts from DUE
+    private static LocalDateTime notification(VTodo todo, LocalDateTime deadLine, ZoneId zone) {
+        ICalendarProperty trigger = todo.alarm().get("TRIGGER");
+        if (trigger == null)
+            return null;
+
+        if ("DATE-TIME".equalsIgnoreCase(trigger.param("VALUE")))
+            return dateTime(trigger, zone, "notificationDateTime");
+
+        ICalendarProperty start = todo.property("DTSTART");
+        LocalDateTime anchor = start != null && !"END".equalsIgnoreCase(trigger.param("RELATED"))
+                ? dateTime(start, zone, "notificationDateTime")
+                : deadLine;
+        Duration offset = duration(trigger.value().trim());
+        // an offset of millions of years parses fine but leaves the range of LocalDateTime
+        try {
+            return anchor.plus(offset);
+        } catch (DateTimeException | ArithmeticException ex) {
+            throw new BasicException(Map.of("notificationDateTime", "Alarm trigger is out of range: " + trigger.value()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // DATE values mean the end of that day, UTC values are moved into the server zone
+    static LocalDateTime dateTime(ICalendarProperty property, ZoneId zone, String field) {
+        String value = property.value().trim().toUpperCase(Locale.ROOT);
+        try {
+            if ("DATE".equalsIgnoreCase(property.param("VALUE")) || value.length() == 8)
+                return LocalDate.parse(value, DATE).atTime(LocalTime.of(23, 59, 59));
+
+            if (value.endsWith("Z"))
+                return LocalDateTime.parse(value.substring(0, value.length() - 1), DATE_TIME)
+                        .atOffset(ZoneOffset.UTC).atZoneSameInstant(zone).toLocalDateTime();
+
+            LocalDateTime local = LocalDateTime.parse(value, DATE_TIME);
+            ZoneId sourceZone = zoneOrNull(property.param("TZID"));
+            return sourceZone != null ? local.atZone(sourceZone).withZoneSameInstant(zone).toLocalDateTime() : local;
+        } catch (DateTimeException ex) {
+            throw new BasicException(Map.of(field, "Date has invalid format: " + property.value()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    static Duration duration(String value) {
+        try {
+            Matcher weeks = WEEKS.matcher(value);
+            if (weeks.matches()) {
+                Duration duration = Duration.ofDays(Math.multiplyExact(7, Long.parseLong(weeks.group(2))));
+                return weeks.group(1).equals("-") ? duration.negated() : duration;
+            }
+            return Duration.parse(value);
+        } catch (RuntimeException ex) {
+            throw new BasicException(Map.of("notificationDateTime", "Alarm trigger has invalid format: " + value), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static ZoneId zoneOrNull(String tzid) {
+        if (tzid == null)
+            return null;
+        try {
+            return ZoneId.of(tzid.startsWith("/") ? tzid.substring(1) : tzid);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+}
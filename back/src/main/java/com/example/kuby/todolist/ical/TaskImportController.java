@@ -0,0 +1,37 @@
+package com.example.kuby.todolist.ical;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/import")
+@RequiredArgsConstructor
+public class TaskImportController {
+    private final TaskImportService taskImportService;
+
+    // the raw body is parsed straight off the socket
+    @PostMapping(consumes = "text/calendar")
+    public ResponseEntity<TaskImportResponse> importCalendar(InputStream body) {
+        return ResponseEntity.ok(taskImportService.importCalendar(TokenClaimContext.getIdByKey(USER_ID), body));
+    }
+
+    // multipart uploads are spooled to disk by the container above spring.servlet.multipart.file-size-threshold
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<TaskImportResponse> importFile(@RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream calendar = file.getInputStream()) {
+            return ResponseEntity.ok(taskImportService.importCalendar(TokenClaimContext.getIdByKey(USER_ID), calendar));
+        }
+    }
+}
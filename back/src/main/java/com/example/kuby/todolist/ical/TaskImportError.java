@@ -0,0 +1,17 @@
+package com.example.kuby.todolist.ical;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// index is the position of the VTODO in the file, null for errors that stopped the whole import
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskImportError {
+    private Integer index;
+    private String uid;
+    private Map<String, String> errors;
+}
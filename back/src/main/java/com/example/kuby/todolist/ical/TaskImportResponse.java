@@ -0,0 +1,17 @@
+package com.example.kuby.todolist.ical;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// failed counts every rejected item, errors lists at most task.import.max-reported-errors of them
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskImportResponse {
+    private int imported;
+    private int failed;
+    private List<TaskImportError> errors;
+}
@@ -0,0 +1,144 @@
+package com.example.kuby.todolist.ical;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import com.example.kuby.utils.UuidV7;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// parses the upload while it arrives and writes every batchSize valid items with one insert in their own transaction,
+// so memory holds one batch whatever the file size. Items that fail to map are reported and skipped, batches written
+// before a read error stay imported
+@Slf4j
+@Service
+public class TaskImportService {
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final TaskSyncRepo taskSyncRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxItems;
+    private final int maxLineLength;
+    private final int maxReportedErrors;
+
+    private final Counter importedCounter;
+    private final Counter failedCounter;
+
+    public TaskImportService(TaskJdbcRepo taskJdbcRepo,
+                             TaskSyncRepo taskSyncRepo,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${task.import.batch-size:1000}") int batchSize,
+                             @Value("${task.import.max-items:50000}") int maxItems,
+                             @Value("${task.import.max-line-length:65536}") int maxLineLength,
+                             @Value("${task.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.taskJdbcRepo = taskJdbcRepo;
+        this.taskSyncRepo = taskSyncRepo;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+        this.maxLineLength = maxLineLength;
+        this.maxReportedErrors = maxReportedErrors;
+
+        this.importedCounter = Counter.builder("task.import.imported")
+                .description("Tasks created from iCalendar imports")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("task.import.failed")
+                .description("iCalendar to-dos rejected by imports")
+                .register(meterRegistry);
+    }
+
+    public TaskImportResponse importCalendar(UUID userId, InputStream calendar) {
+        ICalendarReader reader = new ICalendarReader(
+                new BufferedReader(new InputStreamReader(calendar, StandardCharsets.UTF_8)), maxLineLength);
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime now = LocalDateTime.now();
+
+        TaskImportResponse response = new TaskImportResponse(0, 0, new ArrayList<>());
+        List<TaskDTO> batch = new ArrayList<>(batchSize);
+        try {
+            VTodo todo;
+            while ((todo = reader.next()) != null) {
+                if (todo.index() >= maxItems) {
+                    response.getErrors().add(new TaskImportError(null, null,
+                            Map.of("file", "Only the first " + maxItems + " to-dos are imported")));
+                    break;
+                }
+
+                try {
+                    batch.add(toTask(ICalendarTaskMapper.map(todo, zone, now), userId));
+                } catch (BasicException ex) {
+                    reject(response, new TaskImportError(todo.index(), todo.uid(), ex.getErrors()));
+                }
+
+                if (batch.size() == batchSize)
+                    flush(userId, batch, response, now);
+            }
+        } catch (IOException ex) {
+            log.warn("Reading an iCalendar import of user {} failed", userId, ex);
+            response.getErrors().add(new TaskImportError(null, null, Map.of("file", "Upload could not be read to the end")));
+        }
+
+        flush(userId, batch, response, now);
+        return response;
+    }
+
+    private void flush(UUID userId, List<TaskDTO> batch, TaskImportResponse response, LocalDateTime now) {
+        if (batch.isEmpty())
+            return;
+
+        Integer inserted = transactionTemplate.execute(status -> {
+            long baseVersion = taskSyncRepo.allocateChangeVersions(userId, batch.size()) - batch.size();
+            int rows = taskJdbcRepo.insertAll(batch, userId, baseVersion, now);
+
+            eventPublisher.publishEvent(new TaskChangedEvent(userId));
+            return rows;
+        });
+
+        int imported = inserted == null ? 0 : inserted;
+        response.setImported(response.getImported() + imported);
+        importedCounter.increment(imported);
+        batch.clear();
+    }
+
+    private void reject(TaskImportResponse response, TaskImportError error) {
+        response.setFailed(response.getFailed() + 1);
+        failedCounter.increment();
+        if (response.getErrors().size() < maxReportedErrors)
+            response.getErrors().add(error);
+    }
+
+    private static TaskDTO toTask(ICalendarTaskMapper.ImportedTask imported, UUID userId) {
+        TaskDTO task = new TaskDTO();
+        task.setId(UuidV7.generate());
+        task.setCreatorId(userId);
+        task.setName(imported.name());
+        task.setDeadLine(imported.deadLine());
+        task.setNotificationDateTime(imported.notificationDateTime());
+        task.setIsFinished(imported.isFinished());
+        return task;
+    }
+}
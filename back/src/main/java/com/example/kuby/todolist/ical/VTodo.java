@@ -0,0 +1,16 @@
+package com.example.kuby.todolist.ical;
+
+import java.util.Map;
+
+// index counts the VTODO components of the file from 0, alarm holds the first VALARM only.
+// malformed is set when a line of the component could not be read, the other fields are then incomplete
+record VTodo(int index, Map<String, ICalendarProperty> properties, Map<String, ICalendarProperty> alarm, String malformed) {
+    ICalendarProperty property(String name) {
+        return properties.get(name);
+    }
+
+    String uid() {
+        ICalendarProperty uid = properties.get("UID");
+        return uid != null ? uid.text() : null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.kuby.todolist.outbox;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// task is the row as json in TaskDTO's field names, null for deletes
+public record TaskOutboxEntry(long id, UUID userId, UUID taskId, String type, Long changeVersion, String task,
+                              LocalDateTime createdAt) {
+}
@@ -0,0 +1,192 @@
+package com.example.kuby.todolist.outbox;
+
+import com.example.kuby.datasource.ShardContext;
+import com.example.kuby.datasource.UserShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamInfo.XInfoGroup;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// drains task_outbox into one Redis Stream. An entry is deleted only after XADD succeeded, in the transaction that
+// read it, so a crash in between publishes it again: consumers get every change at least once and dedupe on
+// shard + outboxId. Consumers read through their consumer groups, the stream keeps their offsets
+@Slf4j
+@Component
+public class TaskOutboxRelay {
+    private final TaskOutboxRepo taskOutboxRepo;
+    private final UserShards userShards;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String streamKey;
+    private final long maxLength;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final List<String> consumerGroups;
+
+    private final Counter relayedCounter;
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+    private final Map<String, AtomicLong> groupLag = new ConcurrentHashMap<>();
+
+    public TaskOutboxRelay(TaskOutboxRepo taskOutboxRepo,
+                           UserShards userShards,
+                           StringRedisTemplate redisTemplate,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${task.outbox.stream-key:task:changes}") String streamKey,
+                           @Value("${task.outbox.stream-max-length:1000000}") long maxLength,
+                           @Value("${task.outbox.batch-size:500}") int batchSize,
+                           @Value("${task.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+                           @Value("${task.outbox.consumer-groups:}") List<String> consumerGroups) {
+        this.taskOutboxRepo = taskOutboxRepo;
+        this.userShards = userShards;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.streamKey = streamKey;
+        this.maxLength = maxLength;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.consumerGroups = consumerGroups.stream().filter(group -> !group.isBlank()).toList();
+
+        this.relayedCounter = Counter.builder("task.outbox.relayed")
+                .description("Outbox entries added to the change stream")
+                .register(meterRegistry);
+        Gauge.builder("task.outbox.lag", oldestAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest entry still waiting in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        for (String group : this.consumerGroups) {
+            AtomicLong lag = groupLag.computeIfAbsent(group, name -> new AtomicLong());
+            Gauge.builder("task.outbox.group.lag", lag, AtomicLong::get)
+                    .tag("group", group)
+                    .description("Stream entries the consumer group has not read or not acknowledged yet")
+                    .register(meterRegistry);
+        }
+    }
+
+    // groups start at the beginning of the stream, a group added later still sees everything the stream kept
+    @EventListener(ApplicationReadyEvent.class)
+    public void createConsumerGroups() {
+        for (String group : consumerGroups) {
+            try {
+                redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                        .xGroupCreate(streamKey.getBytes(StandardCharsets.UTF_8), group, ReadOffset.from("0"), true));
+            } catch (DataAccessException ex) {
+                if (!Objects.toString(ex.getMessage(), "").contains("BUSYGROUP"))
+                    log.error("Failed to create consumer group {} on {}", group, streamKey, ex);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${task.outbox.relay-delay-ms:200}")
+    public void relay() {
+        try {
+            userShards.forEachShard(this::relayShard);
+        } catch (RuntimeException ex) {
+            log.error("Task outbox relay failed", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${task.outbox.metrics-delay-ms:15000}")
+    public void refreshLag() {
+        try {
+            AtomicLong oldest = new AtomicLong();
+            userShards.forEachShard(() -> {
+                LocalDateTime created = taskOutboxRepo.findOldest();
+                if (created != null)
+                    oldest.accumulateAndGet(Duration.between(created, LocalDateTime.now()).toSeconds(), Math::max);
+            });
+            oldestAgeSeconds.set(oldest.get());
+
+            if (!groupLag.isEmpty() && Boolean.TRUE.equals(redisTemplate.hasKey(streamKey))) {
+                for (XInfoGroup group : redisTemplate.opsForStream().groups(streamKey)) {
+                    AtomicLong lag = groupLag.get(group.groupName());
+                    if (lag != null)
+                        lag.set(lagOf(group));
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to refresh task outbox lag", ex);
+        }
+    }
+
+    public void relayShard() {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer relayed = transactionTemplate.execute(status -> relayBatch());
+            if (relayed == null || relayed < batchSize)
+                break;
+        }
+    }
+
+    private int relayBatch() {
+        if (!taskOutboxRepo.tryLock())
+            return 0;
+
+        List<TaskOutboxEntry> entries = taskOutboxRepo.findBatch(batchSize);
+        if (entries.isEmpty())
+            return 0;
+
+        String shard = Objects.toString(ShardContext.get(), "");
+        byte[] key = streamKey.getBytes(StandardCharsets.UTF_8);
+        XAddOptions options = XAddOptions.maxlen(maxLength).approximateTrimming(true);
+        // one round trip for the batch, a failure rolls the transaction back and the whole batch is retried
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (TaskOutboxEntry entry : entries)
+                connection.streamCommands().xAdd(StreamRecords.newRecord().in(key).ofBytes(fields(shard, entry)), options);
+            return null;
+        });
+
+        taskOutboxRepo.delete(entries);
+        relayedCounter.increment(entries.size());
+        return entries.size();
+    }
+
+    private static Map<byte[], byte[]> fields(String shard, TaskOutboxEntry entry) {
+        Map<byte[], byte[]> fields = new HashMap<>();
+        put(fields, "shard", shard);
+        put(fields, "outboxId", Long.toString(entry.id()));
+        put(fields, "userId", entry.userId().toString());
+        put(fields, "taskId", entry.taskId().toString());
+        put(fields, "type", entry.type());
+        put(fields, "createdAt", entry.createdAt().toString());
+        if (entry.changeVersion() != null)
+            put(fields, "changeVersion", entry.changeVersion().toString());
+        if (entry.task() != null)
+            put(fields, "task", entry.task());
+        return fields;
+    }
+
+    private static void put(Map<byte[], byte[]> fields, String name, String value) {
+        fields.put(name.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Redis 7 reports entries not yet delivered to the group as lag, older servers only have the unacknowledged ones
+    private static long lagOf(XInfoGroup group) {
+        long pending = Objects.requireNonNullElse(group.pendingCount(), 0L);
+        Object lag = group.getRaw().get("lag");
+        return lag instanceof Number undelivered ? undelivered.longValue() + pending : pending;
+    }
+}
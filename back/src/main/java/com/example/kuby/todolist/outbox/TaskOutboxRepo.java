@@ -0,0 +1,58 @@
+package com.example.kuby.todolist.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class TaskOutboxRepo {
+    // one relay per database at a time, the order entries reach the stream in is the order they are read in
+    private static final long RELAY_LOCK_ID = 0x7461736b6f7574L;
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final String FIND_BATCH_SQL = "SELECT id, user_id, task_id, type, change_version, task::text AS task, created_at " +
+            "FROM task_outbox " +
+            "ORDER BY id " +
+            "LIMIT ?";
+
+    // rows are deleted once relayed rather than tracked by offset, so one that commits behind a higher id
+    // is picked up by the next batch instead of being skipped
+    private static final String DELETE_SQL = "DELETE FROM task_outbox WHERE id = ANY(?)";
+
+    private static final String OLDEST_SQL = "SELECT min(created_at) FROM task_outbox";
+
+    private static final RowMapper<TaskOutboxEntry> ENTRY_MAPPER = (rs, rowNum) -> new TaskOutboxEntry(
+            rs.getLong("id"),
+            rs.getObject("user_id", UUID.class),
+            rs.getObject("task_id", UUID.class),
+            rs.getString("type"),
+            rs.getObject("change_version", Long.class),
+            rs.getString("task"),
+            rs.getObject("created_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // transaction scoped, released by the commit of the batch
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, RELAY_LOCK_ID));
+    }
+
+    public List<TaskOutboxEntry> findBatch(int limit) {
+        return jdbcTemplate.query(FIND_BATCH_SQL, ENTRY_MAPPER, limit);
+    }
+
+    public void delete(List<TaskOutboxEntry> entries) {
+        jdbcTemplate.update(DELETE_SQL, (Object) entries.stream().map(TaskOutboxEntry::id).toArray(Long[]::new));
+    }
+
+    public LocalDateTime findOldest() {
+        return jdbcTemplate.queryForObject(OLDEST_SQL, LocalDateTime.class);
+    }
+}
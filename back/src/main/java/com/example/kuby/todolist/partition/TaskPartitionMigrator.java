@@ -0,0 +1,117 @@
+package com.example.kuby.todolist.partition;
+
+import com.example.kuby.datasource.UserShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+// moves a populated task table into task_partitioned online (see V3__task_hash_partitioning.sql).
+// Rows copied here are locked FOR SHARE while copied, so a concurrent delete waits and its mirror trigger then removes the copy.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "task.partitioning.migrate", havingValue = "true")
+public class TaskPartitionMigrator {
+    // one node migrates, the others find the lock taken and skip
+    private static final long MIGRATION_LOCK_ID = 0x7461736B70617274L;
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private static final String SHADOW_EXISTS_SQL = "SELECT to_regclass('task_partitioned') IS NOT NULL";
+
+    private static final String BACKFILL_BATCH_SQL = "WITH batch AS (" +
+            "    SELECT id, creator_id, name, dead_line, is_finished, is_expired, notification_date_time, change_version, " +
+            "           reminder_sent_at, parent_id " +
+            "    FROM task " +
+            "    WHERE id > ? AND creator_id IS NOT NULL " +
+            "    ORDER BY id " +
+            "    LIMIT ? " +
+            "    FOR SHARE" +
+            "), copied AS (" +
+            "    INSERT INTO task_partitioned " +
+            "    (id, creator_id, name, dead_line, is_finished, is_expired, notification_date_time, change_version, " +
+            "     reminder_sent_at, parent_id) " +
+            "    SELECT * FROM batch " +
+            "    ON CONFLICT DO NOTHING" +
+            ") " +
+            "SELECT id FROM batch ORDER BY id DESC LIMIT 1";
+
+    private final DataSource dataSource;
+    private final UserShards userShards;
+    private final int batchSize;
+    private final long pauseMillis;
+
+    public TaskPartitionMigrator(DataSource dataSource,
+                                 UserShards userShards,
+                                 @Value("${task.partitioning.backfill-batch-size:1000}") int batchSize,
+                                 @Value("${task.partitioning.backfill-pause-ms:50}") long pauseMillis) {
+        this.dataSource = dataSource;
+        this.userShards = userShards;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    // the backfill can take long on a big table, so it runs next to the application instead of delaying startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigration() {
+        Thread.ofPlatform().name("task-partition-migrator").daemon().start(() -> userShards.forEachShard(this::migrate));
+    }
+
+    void migrate() {
+        // a dedicated connection holds the session level advisory lock, every statement on it commits on its own
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(SHADOW_EXISTS_SQL, Boolean.class)))
+                return;
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, MIGRATION_LOCK_ID))) {
+                log.info("Task partition migration is running on another node");
+                return;
+            }
+
+            try {
+                // another node may have finished while we waited for the lock
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(SHADOW_EXISTS_SQL, Boolean.class)))
+                    backfillAndSwap(jdbcTemplate);
+            } finally {
+                jdbcTemplate.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, MIGRATION_LOCK_ID);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            log.error("Task partition migration failed, it resumes on the next start", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void backfillAndSwap(JdbcTemplate jdbcTemplate) throws InterruptedException {
+        log.info("Backfilling task_partitioned in batches of {}", batchSize);
+
+        long copied = 0;
+        UUID last = FIRST_ID;
+        while (true) {
+            UUID batchEnd = jdbcTemplate.query(BACKFILL_BATCH_SQL,
+                    rs -> rs.next() ? rs.getObject(1, UUID.class) : null, last, batchSize);
+            if (batchEnd == null)
+                break;
+
+            last = batchEnd;
+            copied += batchSize;
+            if (copied % (batchSize * 100L) == 0)
+                log.info("Backfilled about {} tasks into task_partitioned", copied);
+            Thread.sleep(pauseMillis);
+        }
+
+        // rows written after the backfill passed their id were mirrored by the trigger, the copy is complete
+        jdbcTemplate.execute("SELECT task_partition_swap()");
+        log.info("task is now hash partitioned, the old table is kept as task_unpartitioned");
+    }
+}
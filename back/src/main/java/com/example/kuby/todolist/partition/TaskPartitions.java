@@ -0,0 +1,26 @@
+package com.example.kuby.todolist.partition;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class TaskPartitions {
+    public static final String TASK_TABLE = "task";
+
+    // regclass output is already quoted where needed, so the names are safe to splice into sql
+    private static final String FIND_PARTITIONS_SQL = "SELECT i.inhrelid::regclass::text FROM pg_inherits i " +
+            "WHERE i.inhparent = to_regclass(?) " +
+            "ORDER BY 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // the table itself while it is not partitioned yet
+    public List<String> taskPartitions() {
+        List<String> partitions = jdbcTemplate.queryForList(FIND_PARTITIONS_SQL, String.class, TASK_TABLE);
+        return partitions.isEmpty() ? List.of(TASK_TABLE) : partitions;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.kuby.todolist.push;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import com.example.kuby.todolist.sync.TaskChanges;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/stream")
+@RequiredArgsConstructor
+public class TaskPushController {
+    private final TaskPushHub taskPushHub;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return taskPushHub.openStream(TokenClaimContext.getIdByKey(USER_ID));
+    }
+
+    // for clients that cannot keep a stream open, since is the cursor of the last /api/task/changes page
+    @GetMapping("/poll")
+    public DeferredResult<TaskChanges> poll(@RequestParam String since,
+                                            @RequestParam(defaultValue = "500") int limit,
+                                            @RequestParam(defaultValue = "30") int timeout) {
+        return taskPushHub.poll(TokenClaimContext.getIdByKey(USER_ID), since, limit, timeout);
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.kuby.todolist.push;
+
+import com.example.kuby.datasource.UserShards;
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.sync.TaskChanges;
+import com.example.kuby.todolist.sync.TaskSyncService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// every committed change is published once to Redis, every node hears it and delivers it to the streams and
+// long polls it holds for that user. Both are async requests, an idle connection holds no thread
+@Slf4j
+@Component
+public class TaskPushHub implements MessageListener {
+    private static final String CHANNEL = "task:push";
+    // events waiting for a stream whose client reads slower than changes come, past this it is closed to resync
+    private static final int MAX_PENDING_EVENTS = 256;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskSyncService taskSyncService;
+    private final UserShards userShards;
+    private final TransactionTemplate transactionTemplate;
+    private final long streamTimeoutMs;
+    private final int maxPollSeconds;
+
+    private final Map<UUID, Set<Stream>> streams = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Poll>> polls = new ConcurrentHashMap<>();
+    // reads for woken polls block on the database and stream writes on the client's socket, a virtual thread each
+    // keeps the Redis listener free, so one client that stops reading holds up nobody else
+    private final ExecutorService pollExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TaskPushHub(StringRedisTemplate redisTemplate,
+                       ObjectMapper objectMapper,
+                       TaskSyncService taskSyncService,
+                       UserShards userShards,
+                       PlatformTransactionManager transactionManager,
+                       RedisMessageListenerContainer listenerContainer,
+                       MeterRegistry meterRegistry,
+                       @Value("${task.push.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                       @Value("${task.push.max-poll-seconds:60}") int maxPollSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.taskSyncService = taskSyncService;
+        this.userShards = userShards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.maxPollSeconds = maxPollSeconds;
+
+        Gauge.builder("task.push.connections", streams, TaskPushHub::count)
+                .tag("kind", "stream")
+                .description("Open change streams on this node")
+                .register(meterRegistry);
+        Gauge.builder("task.push.connections", polls, TaskPushHub::count)
+                .tag("kind", "poll")
+                .description("Waiting long polls on this node")
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public SseEmitter openStream(UUID userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Stream stream = new Stream(emitter, new LinkedBlockingQueue<>(MAX_PENDING_EVENTS), new AtomicBoolean());
+        add(streams, userId, stream);
+
+        Runnable remove = () -> remove(streams, userId, stream);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(ex -> remove.run());
+        return emitter;
+    }
+
+    // answers as soon as there are changes after since, or with none and the same cursor once the timeout passes
+    public DeferredResult<TaskChanges> poll(UUID userId, String since, int limit, int timeoutSeconds) {
+        if (timeoutSeconds < 1 || timeoutSeconds > maxPollSeconds)
+            throw new BasicException(Map.of("timeout", "Timeout must be between 1 and " + maxPollSeconds + " seconds"),
+                    HttpStatus.BAD_REQUEST);
+
+        DeferredResult<TaskChanges> result = new DeferredResult<>(timeoutSeconds * 1000L,
+                () -> new TaskChanges(List.of(), List.of(), since, false));
+        Poll poll = new Poll(result, since, limit);
+        // registered before the first read, so a change committing meanwhile is either read here or wakes the poll
+        add(polls, userId, poll);
+        result.onCompletion(() -> remove(polls, userId, poll));
+
+        // a rejected since or limit throws before the result reaches the container, so onCompletion never runs
+        TaskChanges changes;
+        try {
+            changes = readChanges(userId, poll);
+        } catch (RuntimeException ex) {
+            remove(polls, userId, poll);
+            throw ex;
+        }
+        if (hasChanges(changes))
+            result.setResult(changes);
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(
+                    new TaskPushMessage(event.userId(), event.type(), event.taskId(), event.task())));
+        } catch (JsonProcessingException | RuntimeException ex) {
+            log.error("Failed to publish task change of user {}", event.userId(), ex);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        TaskPushMessage pushMessage;
+        try {
+            pushMessage = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), TaskPushMessage.class);
+        } catch (IOException ex) {
+            log.warn("Ignoring malformed task push message", ex);
+            return;
+        }
+
+        UUID userId = pushMessage.userId();
+        streams.getOrDefault(userId, Set.of()).forEach(stream -> send(userId, stream, SseEmitter.event()
+                .name(pushMessage.type().name())
+                .data(pushMessage, MediaType.APPLICATION_JSON)));
+        polls.getOrDefault(userId, Set.of()).forEach(poll -> pollExecutor.execute(() -> wake(userId, poll)));
+    }
+
+    // keeps proxies and load balancers from closing idle streams, and finds the ones whose client has gone
+    @Scheduled(fixedDelayString = "${task.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        streams.forEach((userId, userStreams) -> userStreams.forEach(stream ->
+                send(userId, stream, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    @PreDestroy
+    public void close() {
+        pollExecutor.shutdownNow();
+        streams.values().forEach(userStreams -> userStreams.forEach(stream -> stream.emitter().complete()));
+    }
+
+    private void wake(UUID userId, Poll poll) {
+        if (poll.result().isSetOrExpired())
+            return;
+
+        try {
+            TaskChanges changes = userShards.callForUser(userId, () -> readChanges(userId, poll));
+            if (hasChanges(changes))
+                poll.result().setResult(changes);
+        } catch (RuntimeException ex) {
+            poll.result().setErrorResult(ex);
+        }
+    }
+
+    // a read-write transaction keeps the read on the primary, a replica may not have the change that woke us yet
+    private TaskChanges readChanges(UUID userId, Poll poll) {
+        return transactionTemplate.execute(status -> taskSyncService.getChanges(userId, poll.since(), poll.limit()));
+    }
+
+    // queued per stream and written by at most one virtual thread at a time, so a stream gets its events in order
+    private void send(UUID userId, Stream stream, SseEmitter.SseEventBuilder event) {
+        if (!stream.pending().offer(event)) {
+            remove(streams, userId, stream);
+            stream.emitter().completeWithError(new IllegalStateException("Client is not reading the change stream"));
+            return;
+        }
+        if (stream.draining().compareAndSet(false, true))
+            pollExecutor.execute(() -> drain(userId, stream));
+    }
+
+    private void drain(UUID userId, Stream stream) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = stream.pending().poll()) != null)
+                stream.emitter().send(event);
+        } catch (IOException | IllegalStateException ex) {
+            remove(streams, userId, stream);
+            stream.pending().clear();
+            stream.emitter().completeWithError(ex);
+        } finally {
+            stream.draining().set(false);
+        }
+
+        // an event queued after the last poll but before the flag was cleared found it still set
+        if (!stream.pending().isEmpty() && stream.draining().compareAndSet(false, true))
+            pollExecutor.execute(() -> drain(userId, stream));
+    }
+
+    private static boolean hasChanges(TaskChanges changes) {
+        return changes != null && (!changes.getChanged().isEmpty() || !changes.getDeleted().isEmpty());
+    }
+
+    private static <T> void add(Map<UUID, Set<T>> connections, UUID userId, T connection) {
+        connections.compute(userId, (id, set) -> {
+            Set<T> updated = set != null ? set : ConcurrentHashMap.newKeySet();
+            updated.add(connection);
+            return updated;
+        });
+    }
+
+    private static <T> void remove(Map<UUID, Set<T>> connections, UUID userId, T connection) {
+        connections.computeIfPresent(userId, (id, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static double count(Map<UUID, ? extends Set<?>> connections) {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private record Poll(DeferredResult<TaskChanges> result, String since, int limit) {
+    }
+
+    private record Stream(SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> pending, AtomicBoolean draining) {
+    }
+}
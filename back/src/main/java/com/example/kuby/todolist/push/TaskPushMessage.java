@@ -0,0 +1,10 @@
+package com.example.kuby.todolist.push;
+
+import com.example.kuby.todolist.TaskChangeType;
+import com.example.kuby.todolist.TaskDTO;
+
+import java.util.UUID;
+
+// what goes over Redis and, as the data of an SSE event, to the device
+public record TaskPushMessage(UUID userId, TaskChangeType type, UUID taskId, TaskDTO task) {
+}
@@ -0,0 +1,16 @@
+package com.example.kuby.todolist.query;
+
+import java.time.LocalDateTime;
+
+// deadLineFrom is inclusive, deadLineTo exclusive; hasNotification null means either
+public record TaskQuery(TaskStatusFilter status,
+                        LocalDateTime deadLineFrom,
+                        LocalDateTime deadLineTo,
+                        Boolean hasNotification,
+                        TaskSort sort) {
+    public static final TaskQuery DEFAULT = new TaskQuery(TaskStatusFilter.ALL, null, null, null, TaskSort.DEAD_LINE);
+
+    public boolean hasDeadLineRange() {
+        return deadLineFrom != null || deadLineTo != null;
+    }
+}
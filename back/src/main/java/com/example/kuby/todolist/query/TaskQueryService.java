@@ -0,0 +1,51 @@
+package com.example.kuby.todolist.query;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskCursor;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.TaskPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// filtered views are not cached, unlike the default page each combination would be its own cache entry
+@Service
+@RequiredArgsConstructor
+public class TaskQueryService {
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final TaskJdbcRepo taskJdbcRepo;
+
+    @Transactional(readOnly = true)
+    public TaskPage query(UUID userId, TaskQuery query, int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new BasicException(Map.of("limit", "Limit must be between 1 and " + MAX_PAGE_SIZE), HttpStatus.BAD_REQUEST);
+        TaskQueryShape.check(query);
+
+        TaskCursor after = cursor != null ? TaskCursor.decode(cursor, query.sort().name()) : null;
+        if (after != null && (after.position() == null) != (query.sort().column() == null))
+            throw new BasicException(Map.of("cursor", "Cursor has invalid format"), HttpStatus.BAD_REQUEST);
+        List<TaskDTO> tasks = taskJdbcRepo.findPageByQuery(userId, query, after, limit + 1, LocalDateTime.now());
+
+        if (tasks.size() <= limit)
+            return new TaskPage(tasks, null);
+
+        List<TaskDTO> page = tasks.subList(0, limit);
+        return new TaskPage(page, cursorOf(page.get(limit - 1), query.sort()).encode(query.sort().name()));
+    }
+
+    private static TaskCursor cursorOf(TaskDTO task, TaskSort sort) {
+        return switch (sort) {
+            case DEAD_LINE, DEAD_LINE_DESC -> new TaskCursor(task.getDeadLine(), task.getId());
+            case NOTIFICATION -> new TaskCursor(task.getNotificationDateTime(), task.getId());
+            case CREATED_DESC -> new TaskCursor(null, task.getId());
+        };
+    }
+}
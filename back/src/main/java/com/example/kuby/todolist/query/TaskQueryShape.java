@@ -0,0 +1,46 @@
+package com.example.kuby.todolist.query;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+// the filter and sort combinations accepted by GET /api/task, each one is a range scan of a single index (V2, V5).
+// Anything else would read every task of the user and filter afterwards, so it is rejected instead
+public final class TaskQueryShape {
+    private static final String UNSUPPORTED = "Filter combination is not supported, it cannot be answered from an index";
+
+    private TaskQueryShape() {
+    }
+
+    public static void check(TaskQuery query) {
+        switch (query.sort()) {
+            // task_creator_dead_line_idx, or its finished / unfinished partial twins; EXPIRED and the range bound dead_line
+            case DEAD_LINE, DEAD_LINE_DESC -> {
+                if (query.hasNotification() != null)
+                    reject("hasNotification", "Only supported with sort NOTIFICATION");
+            }
+            // task_creator_notification_idx only holds tasks with a notification
+            case NOTIFICATION -> {
+                if (Boolean.FALSE.equals(query.hasNotification()))
+                    reject("hasNotification", "Sort NOTIFICATION only returns tasks with a notification");
+                if (query.status() != TaskStatusFilter.ALL)
+                    reject("status", "Only supported with sort DEAD_LINE or DEAD_LINE_DESC");
+                if (query.hasDeadLineRange())
+                    reject("deadLine", "Deadline range is only supported with sort DEAD_LINE or DEAD_LINE_DESC");
+            }
+            // task_creator_id_idx
+            case CREATED_DESC -> {
+                if (query.status() != TaskStatusFilter.ALL || query.hasNotification() != null || query.hasDeadLineRange())
+                    reject("sort", "Sort CREATED_DESC does not support filters");
+            }
+        }
+
+        if (query.deadLineFrom() != null && query.deadLineTo() != null && !query.deadLineFrom().isBefore(query.deadLineTo()))
+            throw new BasicException(Map.of("deadLine", "deadLineFrom must be before deadLineTo"), HttpStatus.BAD_REQUEST);
+    }
+
+    private static void reject(String field, String reason) {
+        throw new BasicException(Map.of(field, UNSUPPORTED + ". " + reason), HttpStatus.BAD_REQUEST);
+    }
+}
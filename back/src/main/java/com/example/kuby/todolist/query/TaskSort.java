@@ -0,0 +1,39 @@
+package com.example.kuby.todolist.query;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+// the sort column is the second column of the index serving the shape, id breaks ties and is the keyset tail
+public enum TaskSort {
+    DEAD_LINE("dead_line", false),
+    DEAD_LINE_DESC("dead_line", true),
+    NOTIFICATION("notification_date_time", false),
+    CREATED_DESC(null, true);
+
+    private final String column;
+    private final boolean descending;
+
+    TaskSort(String column, boolean descending) {
+        this.column = column;
+        this.descending = descending;
+    }
+
+    // null when the order is by id alone
+    public String column() {
+        return column;
+    }
+
+    public boolean descending() {
+        return descending;
+    }
+
+    public static TaskSort parse(String value) {
+        try {
+            return value == null ? DEAD_LINE : valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new BasicException(Map.of("sort", "Sort must be one of DEAD_LINE, DEAD_LINE_DESC, NOTIFICATION, CREATED_DESC"), HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.kuby.todolist.query;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+public enum TaskStatusFilter {
+    ALL,
+    FINISHED,
+    UNFINISHED,
+    // deadline passed, finished or not; a dead_line range rather than the flag the sweeper keeps
+    EXPIRED;
+
+    public static TaskStatusFilter parse(String value) {
+        try {
+            return value == null ? ALL : valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new BasicException(Map.of("status", "Status must be one of ALL, FINISHED, UNFINISHED, EXPIRED"), HttpStatus.BAD_REQUEST);
+        }
+    }
+}
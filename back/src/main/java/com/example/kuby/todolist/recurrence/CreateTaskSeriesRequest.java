@@ -0,0 +1,35 @@
+package com.example.kuby.todolist.recurrence;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// deadLine and notificationDateTime are those of the first occurrence, byDay only applies to weekly series
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CreateTaskSeriesRequest {
+    @NotBlank
+    private String name;
+    @NotNull
+    private LocalDateTime deadLine;
+    private LocalDateTime notificationDateTime;
+    @NotNull
+    private RecurrenceFrequency frequency;
+    @Min(1)
+    @Max(999)
+    private Integer interval;
+    private List<DayOfWeek> byDay;
+    @Min(1)
+    @Max(1000)
+    private Integer count;
+    private LocalDateTime until;
+}
@@ -0,0 +1,191 @@
+package com.example.kuby.todolist.recurrence;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// walks the occurrences of a series in order without allocating per occurrence. Times are local seconds, the
+// LocalDateTime fields counted as if they were UTC, so an occurrence keeps its time of day across DST changes.
+// skipTo jumps straight to the period of its target, except under a COUNT, where the index of an occurrence is only
+// known by stepping to it. Not thread safe, one instance per expansion
+public final class OccurrenceIterator {
+    public static final long NONE = Long.MIN_VALUE;
+    private static final long UNSET = Long.MIN_VALUE + 1;
+    private static final long SECONDS_PER_DAY = 86_400;
+    // a monthly rule on the 31st or a yearly one on February 29th has periods without a date, never this many in a row
+    private static final int MAX_EMPTY_PERIODS = 1_000;
+
+    private final RecurrenceFrequency frequency;
+    private final long interval;
+    private final int byDay;
+    private final long count;
+    private final long until;
+    private final long secondOfDay;
+    private final long startEpochDay;
+    private final long startYear;
+    private final int startMonth;
+    private final int startDayOfMonth;
+    private final long startMonthIndex;
+    private final long firstMonday;
+    private final long startSeconds;
+
+    // the next period to look at, for weekly rules the current week and the next weekday in it
+    private long period;
+    private int weekday;
+    private long emitted;
+    private long peeked = UNSET;
+    private boolean done;
+    // a weekly start on a day outside byDay, still to be emitted
+    private boolean startPending;
+
+    public OccurrenceIterator(LocalDateTime start, RecurrenceRule rule) {
+        this.frequency = rule.frequency();
+        this.interval = rule.interval();
+        this.count = rule.count() != null ? rule.count() : Long.MAX_VALUE;
+        this.until = rule.until() != null ? toLocalSeconds(rule.until()) : Long.MAX_VALUE;
+        this.secondOfDay = start.toLocalTime().toSecondOfDay();
+        this.startEpochDay = start.toLocalDate().toEpochDay();
+        this.startYear = start.getYear();
+        this.startMonth = start.getMonthValue();
+        this.startDayOfMonth = start.getDayOfMonth();
+        this.startMonthIndex = startYear * 12 + startMonth - 1;
+
+        this.startSeconds = toLocalSeconds(start);
+
+        int startWeekday = start.getDayOfWeek().getValue() - 1;
+        // without days a weekly rule repeats on the start's day. The start is always the first occurrence, as DTSTART
+        // is in RFC 5545, but on a day outside byDay it is that one occurrence only and not a day of every week
+        this.byDay = rule.byDay() != 0 ? rule.byDay() : 1 << startWeekday;
+        this.startPending = frequency == RecurrenceFrequency.WEEKLY && (byDay & 1 << startWeekday) == 0;
+        this.firstMonday = startEpochDay - startWeekday;
+        this.weekday = startWeekday;
+    }
+
+    public static long toLocalSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime toLocalDateTime(long localSeconds) {
+        return LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC);
+    }
+
+    // NONE once the series has ended
+    public long next() {
+        long next = peek();
+        peeked = UNSET;
+        if (next != NONE)
+            emitted++;
+        return next;
+    }
+
+    public long peek() {
+        if (peeked == UNSET)
+            peeked = compute();
+        return peeked;
+    }
+
+    // the next call to next() returns the first occurrence at or after target
+    public void skipTo(long target) {
+        if (count == Long.MAX_VALUE) {
+            long targetPeriod = periodOf(target);
+            if (targetPeriod > period) {
+                period = targetPeriod;
+                weekday = 0;
+                startPending = false;
+                peeked = UNSET;
+            }
+        }
+
+        long next;
+        while ((next = peek()) != NONE && next < target)
+            next();
+    }
+
+    // the period target falls in, every occurrence of an earlier period is before target
+    private long periodOf(long target) {
+        long targetDay = Math.floorDiv(target, SECONDS_PER_DAY);
+        return switch (frequency) {
+            case DAILY -> Math.floorDiv(Math.floorDiv(target - secondOfDay, SECONDS_PER_DAY) - startEpochDay, interval);
+            case WEEKLY -> Math.floorDiv(targetDay - firstMonday, 7 * interval);
+            case MONTHLY -> {
+                LocalDate date = LocalDate.ofEpochDay(targetDay);
+                yield Math.floorDiv(date.getYear() * 12L + date.getMonthValue() - 1 - startMonthIndex, interval);
+            }
+            case YEARLY -> Math.floorDiv(LocalDate.ofEpochDay(targetDay).getYear() - startYear, interval);
+        };
+    }
+
+    private long compute() {
+        if (done || emitted >= count)
+            return NONE;
+        if (startPending) {
+            startPending = false;
+            if (startSeconds <= until)
+                return startSeconds;
+        }
+
+        long day = switch (frequency) {
+            case DAILY -> startEpochDay + period++ * interval;
+            case WEEKLY -> nextWeekDay();
+            case MONTHLY -> nextMonthDay();
+            case YEARLY -> nextYearDay();
+        };
+        long seconds = day != NONE ? day * SECONDS_PER_DAY + secondOfDay : NONE;
+        if (seconds == NONE || seconds > until) {
+            done = true;
+            return NONE;
+        }
+        return seconds;
+    }
+
+    // byDay is never empty, so every week has a day
+    private long nextWeekDay() {
+        while (true) {
+            while (weekday < 7) {
+                int day = weekday++;
+                if ((byDay & 1 << day) != 0)
+                    return firstMonday + period * 7 * interval + day;
+            }
+            period++;
+            weekday = 0;
+        }
+    }
+
+    private long nextMonthDay() {
+        for (int empty = 0; empty < MAX_EMPTY_PERIODS; empty++) {
+            long monthIndex = startMonthIndex + period++ * interval;
+            long year = Math.floorDiv(monthIndex, 12);
+            int month = (int) Math.floorMod(monthIndex, 12) + 1;
+            if (startDayOfMonth <= lengthOfMonth(year, month))
+                return epochDay(year, month, startDayOfMonth);
+        }
+        return NONE;
+    }
+
+    private long nextYearDay() {
+        for (int empty = 0; empty < MAX_EMPTY_PERIODS; empty++) {
+            long year = startYear + period++ * interval;
+            if (startDayOfMonth <= lengthOfMonth(year, startMonth))
+                return epochDay(year, startMonth, startDayOfMonth);
+        }
+        return NONE;
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        return switch (month) {
+            case 2 -> year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // days from civil, proleptic Gregorian as LocalDate.toEpochDay, without the object
+    private static long epochDay(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.kuby.todolist.recurrence;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+record OccurrenceKey(UUID seriesId, LocalDateTime occurrenceAt) {
+}
@@ -0,0 +1,8 @@
+package com.example.kuby.todolist.recurrence;
+
+public enum RecurrenceFrequency {
+    DAILY,
+    WEEKLY,
+    MONTHLY,
+    YEARLY
+}
@@ -0,0 +1,20 @@
+package com.example.kuby.todolist.recurrence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+// the part of an RRULE this supports: FREQ, INTERVAL, BYDAY for weekly rules, COUNT and UNTIL.
+// byDay is a bit mask with Monday in bit 0, count and until are null when the series does not end that way
+public record RecurrenceRule(RecurrenceFrequency frequency, int interval, int byDay, Integer count, LocalDateTime until) {
+    public static int byDayMask(Collection<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : days)
+            mask |= 1 << (day.getValue() - 1);
+        return mask;
+    }
+
+    public static boolean includes(int byDay, DayOfWeek day) {
+        return (byDay & 1 << (day.getValue() - 1)) != 0;
+    }
+}
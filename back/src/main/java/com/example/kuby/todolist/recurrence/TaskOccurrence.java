@@ -0,0 +1,19 @@
+package com.example.kuby.todolist.recurrence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// an occurrence expanded from its series, seriesId and deadLine address it in the occurrence endpoints
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskOccurrence {
+    private UUID seriesId;
+    private String name;
+    private LocalDateTime deadLine;
+    private LocalDateTime notificationDateTime;
+}
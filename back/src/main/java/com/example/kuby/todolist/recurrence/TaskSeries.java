@@ -0,0 +1,38 @@
+package com.example.kuby.todolist.recurrence;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// a task_series row, notifyBeforeSeconds is null for a series without reminders
+record TaskSeries(UUID id, UUID creatorId, String name, LocalDateTime deadLine, Long notifyBeforeSeconds,
+                  RecurrenceRule rule, LocalDateTime nextReminderAt) {
+    TaskSeries withNextReminderAt(LocalDateTime nextReminderAt) {
+        return new TaskSeries(id, creatorId, name, deadLine, notifyBeforeSeconds, rule, nextReminderAt);
+    }
+
+    OccurrenceIterator occurrences() {
+        return new OccurrenceIterator(deadLine, rule);
+    }
+
+    boolean hasOccurrenceAt(LocalDateTime time) {
+        long at = OccurrenceIterator.toLocalSeconds(time);
+        OccurrenceIterator occurrences = occurrences();
+        occurrences.skipTo(at);
+        return occurrences.next() == at;
+    }
+
+    LocalDateTime notificationFor(LocalDateTime occurrenceAt) {
+        return notifyBeforeSeconds != null ? occurrenceAt.minusSeconds(notifyBeforeSeconds) : null;
+    }
+
+    // the reminder time of the first occurrence at or after minOccurrence, null when there is none
+    LocalDateTime reminderFrom(long minOccurrence) {
+        if (notifyBeforeSeconds == null)
+            return null;
+
+        OccurrenceIterator occurrences = occurrences();
+        occurrences.skipTo(minOccurrence);
+        long next = occurrences.next();
+        return next != OccurrenceIterator.NONE ? OccurrenceIterator.toLocalDateTime(next - notifyBeforeSeconds) : null;
+    }
+}
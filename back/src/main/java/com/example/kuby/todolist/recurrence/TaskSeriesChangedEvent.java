@@ -0,0 +1,8 @@
+package com.example.kuby.todolist.recurrence;
+
+import java.util.UUID;
+
+// a series was created or deleted or one of its occurrences skipped, none of which changes a task.
+// Writes to an occurrence that make a task publish TaskChangedEvent instead
+public record TaskSeriesChangedEvent(UUID userId) {
+}
@@ -0,0 +1,72 @@
+package com.example.kuby.todolist.recurrence;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import com.example.kuby.security.util.formaters.LocalDateTimeParser;
+import com.example.kuby.todolist.TaskDTO;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+// an occurrence is addressed by its series and its original deadline, at=yyyy-MM-dd HH:mm:ss
+@RestController
+@RequestMapping("/api/task/series")
+@RequiredArgsConstructor
+public class TaskSeriesController {
+    private final TaskSeriesService taskSeriesService;
+
+    @PostMapping
+    public ResponseEntity<TaskSeriesDTO> create(@RequestBody @Valid CreateTaskSeriesRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(taskSeriesService.create(TokenClaimContext.getIdByKey(USER_ID), request));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TaskSeriesDTO>> getAll() {
+        return ResponseEntity.ok(taskSeriesService.getAll(TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable UUID id) {
+        taskSeriesService.delete(id, TokenClaimContext.getIdByKey(USER_ID));
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/occurrences")
+    public ResponseEntity<List<TaskOccurrence>> getOccurrences(@RequestParam String from,
+                                                               @RequestParam String to,
+                                                               @RequestParam(required = false) String q) {
+        return ResponseEntity.ok(taskSeriesService.getOccurrences(TokenClaimContext.getIdByKey(USER_ID),
+                LocalDateTimeParser.parse(from), LocalDateTimeParser.parse(to), q));
+    }
+
+    @PatchMapping("/{id}/occurrence")
+    public ResponseEntity<TaskDTO> finishOccurrence(@PathVariable UUID id, @RequestParam String at) {
+        return ResponseEntity.ok(taskSeriesService.finishOccurrence(id, LocalDateTimeParser.parse(at),
+                TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @PutMapping("/{id}/occurrence")
+    public ResponseEntity<TaskDTO> updateOccurrence(@PathVariable UUID id,
+                                                    @RequestParam String at,
+                                                    @RequestParam(required = false) String name,
+                                                    @RequestParam(required = false) String deadLine,
+                                                    @RequestParam(required = false) String notificationDateTime) {
+        return ResponseEntity.ok(taskSeriesService.updateOccurrence(id, LocalDateTimeParser.parse(at), name,
+                deadLine != null ? LocalDateTimeParser.parse(deadLine) : null,
+                notificationDateTime != null ? LocalDateTimeParser.parse(notificationDateTime) : null,
+                TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @DeleteMapping("/{id}/occurrence")
+    public ResponseEntity<Void> skipOccurrence(@PathVariable UUID id, @RequestParam String at) {
+        taskSeriesService.skipOccurrence(id, LocalDateTimeParser.parse(at), TokenClaimContext.getIdByKey(USER_ID));
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.kuby.todolist.recurrence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskSeriesDTO {
+    private UUID id;
+    private String name;
+    private LocalDateTime deadLine;
+    private LocalDateTime notificationDateTime;
+    private RecurrenceFrequency frequency;
+    private Integer interval;
+    private List<DayOfWeek> byDay;
+    private Integer count;
+    private LocalDateTime until;
+}
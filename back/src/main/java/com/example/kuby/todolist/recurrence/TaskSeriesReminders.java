@@ -0,0 +1,57 @@
+package com.example.kuby.todolist.recurrence;
+
+import com.example.kuby.todolist.reminder.Reminder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// series reminders for ReminderDispatcher. Only the next reminder of a series is stored, claiming it moves
+// next_reminder_at on to the following occurrence, so a series never has more than one reminder in flight
+@Component
+@RequiredArgsConstructor
+public class TaskSeriesReminders {
+    private final TaskSeriesRepo taskSeriesRepo;
+
+    public List<Reminder> findDue(LocalDateTime to, LocalDateTime afterTime, UUID afterId, int limit) {
+        return taskSeriesRepo.findDueReminders(to, afterTime, afterId, limit);
+    }
+
+    // returns the reminders to send: not those older than notBefore and not those of occurrences that were finished,
+    // edited or skipped, the task made from an edited one has its own reminder. All of them move on regardless
+    @Transactional
+    public List<Reminder> claim(Collection<UUID> seriesIds, LocalDateTime now, LocalDateTime notBefore) {
+        List<TaskSeries> due = taskSeriesRepo.lockDue(seriesIds, now);
+        if (due.isEmpty())
+            return List.of();
+
+        Set<OccurrenceKey> taken = taskSeriesRepo.findTaken(due.stream()
+                .map(series -> new OccurrenceKey(series.id(), occurrenceAt(series)))
+                .toList());
+
+        List<Reminder> claimed = new ArrayList<>(due.size());
+        List<TaskSeries> advanced = new ArrayList<>(due.size());
+        for (TaskSeries series : due) {
+            LocalDateTime occurrenceAt = occurrenceAt(series);
+            if (!series.nextReminderAt().isBefore(notBefore) && !taken.contains(new OccurrenceKey(series.id(), occurrenceAt)))
+                claimed.add(new Reminder(series.id(), series.creatorId(), series.name(), series.nextReminderAt(), occurrenceAt));
+
+            // a series that fell behind skips straight to its first reminder that is still on time
+            long minOccurrence = Math.max(OccurrenceIterator.toLocalSeconds(occurrenceAt) + 1,
+                    OccurrenceIterator.toLocalSeconds(notBefore) + series.notifyBeforeSeconds());
+            advanced.add(series.withNextReminderAt(series.reminderFrom(minOccurrence)));
+        }
+        taskSeriesRepo.updateNextReminders(advanced);
+        return claimed;
+    }
+
+    private static LocalDateTime occurrenceAt(TaskSeries series) {
+        return series.nextReminderAt().plusSeconds(series.notifyBeforeSeconds());
+    }
+}
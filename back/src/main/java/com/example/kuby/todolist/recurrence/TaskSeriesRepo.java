@@ -0,0 +1,183 @@
+package com.example.kuby.todolist.recurrence;
+
+import com.example.kuby.todolist.reminder.Reminder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class TaskSeriesRepo {
+    private static final String SERIES_COLUMNS = "id, creator_id, name, dead_line, notify_before_seconds, frequency, " +
+            "interval_count, by_day, occurrence_count, repeat_until, next_reminder_at";
+
+    private static final String INSERT_SQL = "INSERT INTO task_series (" + SERIES_COLUMNS + ", created_at) " +
+            "VALUES (:id, :creatorId, :name, :deadLine, :notifyBeforeSeconds, :frequency, " +
+            ":interval, :byDay, :count, :until, :nextReminderAt, :createdAt)";
+
+    private static final String FIND_ALL_SQL = "SELECT " + SERIES_COLUMNS + " FROM task_series " +
+            "WHERE creator_id = :creatorId " +
+            "ORDER BY id";
+
+    private static final String FIND_SQL = "SELECT " + SERIES_COLUMNS + " FROM task_series " +
+            "WHERE id = :id AND creator_id = :creatorId";
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM task_series WHERE creator_id = :creatorId";
+
+    // task_occurrence rows go with the series, tasks made from its occurrences stay
+    private static final String DELETE_SQL = "DELETE FROM task_series WHERE id = :id AND creator_id = :creatorId";
+
+    private static final String FIND_TAKEN_SQL = "SELECT series_id, occurrence_at FROM task_occurrence " +
+            "WHERE series_id = ANY(CAST(:ids AS uuid[])) AND occurrence_at >= :from AND occurrence_at < :to";
+
+    private static final String FIND_TAKEN_AT_SQL = "SELECT series_id, occurrence_at FROM task_occurrence " +
+            "WHERE (series_id, occurrence_at) IN (" +
+            "    SELECT * FROM unnest(CAST(:ids AS uuid[]), CAST(:times AS timestamp[]))" +
+            ")";
+
+    // false when the occurrence was already finished, edited or skipped
+    private static final String TAKE_SQL = "INSERT INTO task_occurrence (series_id, occurrence_at, task_id) " +
+            "VALUES (:seriesId, :occurrenceAt, :taskId) " +
+            "ON CONFLICT DO NOTHING";
+
+    // a range scan of task_series_next_reminder_idx. There is no lower bound: a series whose reminder fell behind
+    // is loaded as due and moved on by the claim, it would never come into a later window otherwise
+    private static final String FIND_DUE_REMINDERS_SQL = "SELECT id, creator_id, name, next_reminder_at, " +
+            "    next_reminder_at + notify_before_seconds * INTERVAL '1 second' AS occurrence_at " +
+            "FROM task_series " +
+            "WHERE next_reminder_at < :to AND (next_reminder_at, id) > (:afterTime, :afterId) " +
+            "ORDER BY next_reminder_at, id " +
+            "LIMIT :limit";
+
+    private static final String LOCK_DUE_SQL = "SELECT " + SERIES_COLUMNS + " FROM task_series " +
+            "WHERE id = ANY(CAST(:ids AS uuid[])) AND next_reminder_at <= :now " +
+            "ORDER BY id " +
+            "FOR UPDATE";
+
+    private static final String UPDATE_NEXT_REMINDER_SQL = "UPDATE task_series SET next_reminder_at = :nextReminderAt " +
+            "WHERE id = :id";
+
+    private static final RowMapper<TaskSeries> SERIES_MAPPER = (rs, rowNum) -> new TaskSeries(
+            rs.getObject("id", UUID.class),
+            rs.getObject("creator_id", UUID.class),
+            rs.getString("name"),
+            rs.getObject("dead_line", LocalDateTime.class),
+            rs.getObject("notify_before_seconds", Long.class),
+            new RecurrenceRule(
+                    RecurrenceFrequency.valueOf(rs.getString("frequency")),
+                    rs.getInt("interval_count"),
+                    rs.getInt("by_day"),
+                    rs.getObject("occurrence_count", Integer.class),
+                    rs.getObject("repeat_until", LocalDateTime.class)),
+            rs.getObject("next_reminder_at", LocalDateTime.class));
+
+    private static final RowMapper<OccurrenceKey> OCCURRENCE_KEY_MAPPER = (rs, rowNum) -> new OccurrenceKey(
+            rs.getObject("series_id", UUID.class),
+            rs.getObject("occurrence_at", LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void insert(TaskSeries series, LocalDateTime now) {
+        RecurrenceRule rule = series.rule();
+        jdbcTemplate.update(INSERT_SQL, new MapSqlParameterSource()
+                .addValue("id", series.id())
+                .addValue("creatorId", series.creatorId())
+                .addValue("name", series.name())
+                .addValue("deadLine", series.deadLine())
+                .addValue("notifyBeforeSeconds", series.notifyBeforeSeconds())
+                .addValue("frequency", rule.frequency().name())
+                .addValue("interval", rule.interval())
+                .addValue("byDay", rule.byDay())
+                .addValue("count", rule.count())
+                .addValue("until", rule.until())
+                .addValue("nextReminderAt", series.nextReminderAt())
+                .addValue("createdAt", now));
+    }
+
+    public List<TaskSeries> findAll(UUID creatorId) {
+        return jdbcTemplate.query(FIND_ALL_SQL, new MapSqlParameterSource("creatorId", creatorId), SERIES_MAPPER);
+    }
+
+    public Optional<TaskSeries> find(UUID id, UUID creatorId) {
+        return jdbcTemplate.query(FIND_SQL, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId), SERIES_MAPPER).stream().findFirst();
+    }
+
+    public long count(UUID creatorId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, new MapSqlParameterSource("creatorId", creatorId), Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public boolean delete(UUID id, UUID creatorId) {
+        return jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("creatorId", creatorId)) > 0;
+    }
+
+    public Set<OccurrenceKey> findTaken(Collection<UUID> seriesIds, LocalDateTime from, LocalDateTime to) {
+        if (seriesIds.isEmpty())
+            return Set.of();
+
+        return new HashSet<>(jdbcTemplate.query(FIND_TAKEN_SQL, new MapSqlParameterSource()
+                .addValue("ids", seriesIds.stream().map(UUID::toString).toArray(String[]::new))
+                .addValue("from", from)
+                .addValue("to", to), OCCURRENCE_KEY_MAPPER));
+    }
+
+    public Set<OccurrenceKey> findTaken(Collection<OccurrenceKey> occurrences) {
+        if (occurrences.isEmpty())
+            return Set.of();
+
+        return new HashSet<>(jdbcTemplate.query(FIND_TAKEN_AT_SQL, new MapSqlParameterSource()
+                .addValue("ids", occurrences.stream().map(key -> key.seriesId().toString()).toArray(String[]::new))
+                .addValue("times", occurrences.stream().map(key -> key.occurrenceAt().toString()).toArray(String[]::new)),
+                OCCURRENCE_KEY_MAPPER));
+    }
+
+    public boolean take(UUID seriesId, LocalDateTime occurrenceAt, UUID taskId) {
+        return jdbcTemplate.update(TAKE_SQL, new MapSqlParameterSource()
+                .addValue("seriesId", seriesId)
+                .addValue("occurrenceAt", occurrenceAt)
+                .addValue("taskId", taskId)) > 0;
+    }
+
+    public List<Reminder> findDueReminders(LocalDateTime to, LocalDateTime afterTime, UUID afterId, int limit) {
+        return jdbcTemplate.query(FIND_DUE_REMINDERS_SQL, new MapSqlParameterSource()
+                .addValue("to", to)
+                .addValue("afterTime", afterTime)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit), (rs, rowNum) -> new Reminder(
+                rs.getObject("id", UUID.class),
+                rs.getObject("creator_id", UUID.class),
+                rs.getString("name"),
+                rs.getObject("next_reminder_at", LocalDateTime.class),
+                rs.getObject("occurrence_at", LocalDateTime.class)));
+    }
+
+    public List<TaskSeries> lockDue(Collection<UUID> seriesIds, LocalDateTime now) {
+        return jdbcTemplate.query(LOCK_DUE_SQL, new MapSqlParameterSource()
+                .addValue("ids", seriesIds.stream().map(UUID::toString).toArray(String[]::new))
+                .addValue("now", now), SERIES_MAPPER);
+    }
+
+    public void updateNextReminders(List<TaskSeries> series) {
+        if (!series.isEmpty())
+            jdbcTemplate.batchUpdate(UPDATE_NEXT_REMINDER_SQL, series.stream()
+                    .map(row -> new MapSqlParameterSource()
+                            .addValue("id", row.id())
+                            .addValue("nextReminderAt", row.nextReminderAt()))
+                    .toArray(SqlParameterSource[]::new));
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.kuby.todolist.recurrence;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskChangeType;
+import com.example.kuby.todolist.TaskChangedEvent;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.TaskValidator;
+import com.example.kuby.utils.UuidV7;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// a series is only its rule, occurrences are expanded per request from the window asked for. Finishing, editing or
+// skipping an occurrence is the only thing that writes for it: a task_occurrence row, plus a regular task for the
+// first two, which from then on syncs, counts and reminds like any other
+@Service
+@RequiredArgsConstructor
+public class TaskSeriesService {
+    static final int MAX_SERIES_PER_USER = 200;
+    private static final Duration MAX_WINDOW = Duration.ofDays(62);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TaskSeriesRepo taskSeriesRepo;
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public TaskSeriesDTO create(UUID userId, CreateTaskSeriesRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        String name = request.getName().strip();
+        // occurrences are addressed to the second
+        LocalDateTime deadLine = request.getDeadLine().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime notificationDateTime = request.getNotificationDateTime() != null
+                ? request.getNotificationDateTime().truncatedTo(ChronoUnit.SECONDS)
+                : null;
+
+        TaskValidator.validateNameLength(name);
+        if (notificationDateTime != null && notificationDateTime.isAfter(deadLine))
+            throw new BasicException(Map.of("notificationDateTime", "Notification time cannot be after deadline time"), HttpStatus.BAD_REQUEST);
+        if (request.getByDay() != null && !request.getByDay().isEmpty() && request.getFrequency() != RecurrenceFrequency.WEEKLY)
+            throw new BasicException(Map.of("byDay", "Days of the week only apply to weekly series"), HttpStatus.BAD_REQUEST);
+        if (request.getUntil() != null && request.getUntil().isBefore(deadLine))
+            throw new BasicException(Map.of("until", "Until cannot be before the first deadline"), HttpStatus.BAD_REQUEST);
+        if (taskSeriesRepo.count(userId) >= MAX_SERIES_PER_USER)
+            throw new BasicException(Map.of("series", "A user can have at most " + MAX_SERIES_PER_USER + " series"), HttpStatus.CONFLICT);
+
+        RecurrenceRule rule = new RecurrenceRule(
+                request.getFrequency(),
+                request.getInterval() != null ? request.getInterval() : 1,
+                weeklyDays(request, deadLine),
+                request.getCount(),
+                request.getUntil());
+        Long notifyBeforeSeconds = notificationDateTime != null
+                ? Duration.between(notificationDateTime, deadLine).toSeconds()
+                : null;
+
+        TaskSeries series = new TaskSeries(UuidV7.generate(), userId, name, deadLine, notifyBeforeSeconds, rule, null);
+        series = series.withNextReminderAt(series.reminderFrom(firstOccurrenceToRemind(series, now)));
+        taskSeriesRepo.insert(series, now);
+        eventPublisher.publishEvent(new TaskSeriesChangedEvent(userId));
+        return toDTO(series);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskSeriesDTO> getAll(UUID userId) {
+        return taskSeriesRepo.findAll(userId).stream().map(TaskSeriesService::toDTO).toList();
+    }
+
+    @Transactional
+    public void delete(UUID id, UUID userId) {
+        if (!taskSeriesRepo.delete(id, userId))
+            throw seriesNotFound();
+        eventPublisher.publishEvent(new TaskSeriesChangedEvent(userId));
+    }
+
+    // [from, to) of at most MAX_WINDOW, every word of query has to start a word of the name like in TaskSearchService.
+    // Each series jumps to from and stops at to, so the cost follows the window and not the age of the series
+    @Transactional(readOnly = true)
+    public List<TaskOccurrence> getOccurrences(UUID userId, LocalDateTime from, LocalDateTime to, String query) {
+        if (!to.isAfter(from) || Duration.between(from, to).compareTo(MAX_WINDOW) > 0)
+            throw new BasicException(Map.of("to", "Window must end after it starts and span at most " + MAX_WINDOW.toDays() + " days"),
+                    HttpStatus.BAD_REQUEST);
+
+        List<String> words = query != null ? words(query) : List.of();
+        List<TaskSeries> series = taskSeriesRepo.findAll(userId).stream()
+                .filter(row -> words.isEmpty() || matches(row.name(), words))
+                .toList();
+        Set<OccurrenceKey> taken = taskSeriesRepo.findTaken(series.stream().map(TaskSeries::id).toList(), from, to);
+
+        long fromSeconds = OccurrenceIterator.toLocalSeconds(from);
+        long toSeconds = OccurrenceIterator.toLocalSeconds(to);
+        List<TaskOccurrence> occurrences = new ArrayList<>();
+        for (TaskSeries row : series) {
+            OccurrenceIterator iterator = row.occurrences();
+            iterator.skipTo(fromSeconds);
+            long next;
+            while ((next = iterator.next()) != OccurrenceIterator.NONE && next < toSeconds) {
+                LocalDateTime occurrenceAt = OccurrenceIterator.toLocalDateTime(next);
+                if (!taken.contains(new OccurrenceKey(row.id(), occurrenceAt)))
+                    occurrences.add(new TaskOccurrence(row.id(), row.name(), occurrenceAt, row.notificationFor(occurrenceAt)));
+            }
+        }
+        occurrences.sort(Comparator.comparing(TaskOccurrence::getDeadLine).thenComparing(TaskOccurrence::getSeriesId));
+        return occurrences;
+    }
+
+    // the occurrence becomes a finished task, past occurrences can be finished too
+    @Transactional
+    public TaskDTO finishOccurrence(UUID seriesId, LocalDateTime occurrenceAt, UUID userId) {
+        TaskSeries series = findOccurrence(seriesId, occurrenceAt, userId);
+        UUID taskId = UuidV7.generate();
+        take(series, occurrenceAt, taskId);
+
+        TaskDTO task = taskJdbcRepo.insert(taskId, userId, null, series.name(), occurrenceAt, null, true, LocalDateTime.now());
+        eventPublisher.publishEvent(TaskChangedEvent.of(TaskChangeType.CREATED, task));
+        return task;
+    }
+
+    // the occurrence becomes a task with the given fields, a notification left out follows the series' offset
+    // from the deadline the task ends up with
+    @Transactional
+    public TaskDTO updateOccurrence(UUID seriesId, LocalDateTime occurrenceAt, String name, LocalDateTime deadLine,
+                                    LocalDateTime notificationDateTime, UUID userId) {
+        LocalDateTime now = LocalDateTime.now();
+        TaskSeries series = findOccurrence(seriesId, occurrenceAt, userId);
+        TaskValidator.validateUpdate(name, deadLine, occurrenceAt, notificationDateTime, now);
+
+        LocalDateTime taskDeadLine = deadLine != null ? deadLine : occurrenceAt;
+        LocalDateTime taskNotification = notificationDateTime != null ? notificationDateTime : series.notificationFor(taskDeadLine);
+        if (taskNotification != null && taskNotification.isBefore(now))
+            taskNotification = null;
+
+        UUID taskId = UuidV7.generate();
+        take(series, occurrenceAt, taskId);
+
+        TaskDTO task = taskJdbcRepo.insert(taskId, userId, null, name != null ? name : series.name(), taskDeadLine,
+                taskNotification, false, now);
+        eventPublisher.publishEvent(TaskChangedEvent.of(TaskChangeType.CREATED, task));
+        return task;
+    }
+
+    @Transactional
+    public void skipOccurrence(UUID seriesId, LocalDateTime occurrenceAt, UUID userId) {
+        take(findOccurrence(seriesId, occurrenceAt, userId), occurrenceAt, null);
+        eventPublisher.publishEvent(new TaskSeriesChangedEvent(userId));
+    }
+
+    // without days a weekly series repeats on the first deadline's day. A first deadline on another day is only the
+    // first occurrence, OccurrenceIterator emits it once on its own
+    private static int weeklyDays(CreateTaskSeriesRequest request, LocalDateTime deadLine) {
+        if (request.getFrequency() != RecurrenceFrequency.WEEKLY)
+            return 0;
+
+        return request.getByDay() != null && !request.getByDay().isEmpty()
+                ? RecurrenceRule.byDayMask(request.getByDay())
+                : RecurrenceRule.byDayMask(List.of(deadLine.getDayOfWeek()));
+    }
+
+    // a reminder already due when the series is created is not sent
+    private static long firstOccurrenceToRemind(TaskSeries series, LocalDateTime now) {
+        long notifyBefore = series.notifyBeforeSeconds() != null ? series.notifyBeforeSeconds() : 0;
+        return OccurrenceIterator.toLocalSeconds(now) + notifyBefore;
+    }
+
+    private TaskSeries findOccurrence(UUID seriesId, LocalDateTime occurrenceAt, UUID userId) {
+        TaskSeries series = taskSeriesRepo.find(seriesId, userId).orElseThrow(TaskSeriesService::seriesNotFound);
+        if (!series.hasOccurrenceAt(occurrenceAt))
+            throw new BasicException(Map.of("at", "Series has no occurrence at this time"), HttpStatus.NOT_FOUND);
+        return series;
+    }
+
+    private void take(TaskSeries series, LocalDateTime occurrenceAt, UUID taskId) {
+        if (!taskSeriesRepo.take(series.id(), occurrenceAt, taskId))
+            throw new BasicException(Map.of("at", "Occurrence is already finished, edited or skipped"), HttpStatus.CONFLICT);
+    }
+
+    private static BasicException seriesNotFound() {
+        return new BasicException(Map.of("id", "Series with such id not found"), HttpStatus.NOT_FOUND);
+    }
+
+    private static List<String> words(String text) {
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+
+    private static boolean matches(String name, List<String> queryWords) {
+        List<String> nameWords = words(name);
+        return queryWords.stream().allMatch(queryWord -> nameWords.stream().anyMatch(word -> word.startsWith(queryWord)));
+    }
+
+    private static TaskSeriesDTO toDTO(TaskSeries series) {
+        RecurrenceRule rule = series.rule();
+        List<DayOfWeek> byDay = rule.frequency() == RecurrenceFrequency.WEEKLY
+                ? Arrays.stream(DayOfWeek.values()).filter(day -> RecurrenceRule.includes(rule.byDay(), day)).toList()
+                : null;
+        return new TaskSeriesDTO(series.id(), series.name(), series.deadLine(), series.notificationFor(series.deadLine()),
+                rule.frequency(), rule.interval(), byDay, rule.count(), rule.until());
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.kuby.todolist.reminder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+// stand-in until a push provider is wired, see ReminderConfig
+@Slf4j
+public class LoggingReminderSink implements ReminderSink {
+    @Override
+    public void send(List<Reminder> reminders) {
+        reminders.forEach(reminder -> log.info("Reminder for user {}: task {} '{}' at {}",
+                reminder.userId(), reminder.taskId(), reminder.taskName(), reminder.notifyAt()));
+    }
+}
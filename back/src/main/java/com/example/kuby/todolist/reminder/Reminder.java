@@ -0,0 +1,11 @@
+package com.example.kuby.todolist.reminder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// occurrenceAt is set for an occurrence of a recurring task, taskId is then the id of its series
+public record Reminder(UUID taskId, UUID userId, String taskName, LocalDateTime notifyAt, LocalDateTime occurrenceAt) {
+    public Reminder(UUID taskId, UUID userId, String taskName, LocalDateTime notifyAt) {
+        this(taskId, userId, taskName, notifyAt, null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.kuby.todolist.reminder;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ReminderConfig {
+    @Bean
+    @ConditionalOnMissingBean(ReminderSink.class)
+    public ReminderSink reminderSink() {
+        return new LoggingReminderSink();
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.kuby.todolist.reminder;
+
+import com.example.kuby.datasource.ShardContext;
+import com.example.kuby.datasource.UserShards;
+import com.example.kuby.todolist.recurrence.TaskSeriesReminders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// loads the next window of unsent reminders from every shard into a timing wheel and sends what the wheel fires.
+// Only the window is held in memory, however many reminders are pending. Claiming in the database before sending
+// makes each reminder go out at most once across nodes, a batch the sink keeps failing is dropped after max attempts.
+// Recurring tasks take the same path with the next reminder of each series (TaskSeriesReminders)
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "task.reminder.enabled", havingValue = "true", matchIfMissing = true)
+public class ReminderDispatcher {
+    private static final int WHEEL_SIZE = 64;
+    private static final UUID FIRST_ID = new UUID(0, 0);
+    private static final LocalDateTime FIRST_SERIES_REMINDER = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ReminderRepo reminderRepo;
+    private final TaskSeriesReminders taskSeriesReminders;
+    private final UserShards userShards;
+    private final ReminderSink reminderSink;
+    private final Duration window;
+    private final Duration maxLateness;
+    private final Duration leaseTtl;
+    private final int loadBatchSize;
+    private final int dispatchBatchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final TimingWheel<PendingReminder> wheel;
+    // the notification time each task or series is in the wheel for, a reload that finds another time schedules it again
+    private final Map<UUID, LocalDateTime> scheduled = new ConcurrentHashMap<>();
+
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+
+    public ReminderDispatcher(ReminderRepo reminderRepo,
+                              TaskSeriesReminders taskSeriesReminders,
+                              UserShards userShards,
+                              ReminderSink reminderSink,
+                              MeterRegistry meterRegistry,
+                              @Value("${task.reminder.tick-ms:1000}") long tickMs,
+                              @Value("${task.reminder.window-seconds:120}") long windowSeconds,
+                              @Value("${task.reminder.max-lateness-minutes:60}") long maxLatenessMinutes,
+                              @Value("${task.reminder.lease-seconds:90}") long leaseSeconds,
+                              @Value("${task.reminder.load-batch-size:1000}") int loadBatchSize,
+                              @Value("${task.reminder.dispatch-batch-size:200}") int dispatchBatchSize,
+                              @Value("${task.reminder.max-attempts:5}") int maxAttempts,
+                              @Value("${task.reminder.retry-backoff-ms:2000}") long retryBackoffMs) {
+        this.reminderRepo = reminderRepo;
+        this.taskSeriesReminders = taskSeriesReminders;
+        this.userShards = userShards;
+        this.reminderSink = reminderSink;
+        this.window = Duration.ofSeconds(windowSeconds);
+        this.maxLateness = Duration.ofMinutes(maxLatenessMinutes);
+        this.leaseTtl = Duration.ofSeconds(leaseSeconds);
+        this.loadBatchSize = loadBatchSize;
+        this.dispatchBatchSize = dispatchBatchSize;
+        this.maxAttempts = maxAttempts;
+        // a retry has to land at least one tick ahead, or the wheel would hand it straight back
+        this.retryBackoffMs = Math.max(retryBackoffMs, tickMs);
+        this.wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+
+        this.sentCounter = Counter.builder("task.reminder.sent")
+                .description("Reminders handed to the sink")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("task.reminder.dropped")
+                .description("Claimed reminders given up after the sink failed every attempt")
+                .register(meterRegistry);
+        Gauge.builder("task.reminder.scheduled", scheduled, Map::size)
+                .description("Reminders waiting in the timing wheel")
+                .register(meterRegistry);
+    }
+
+    // windows overlap, load-interval-ms has to stay below window-seconds so no reminder falls between two loads
+    @Scheduled(fixedDelayString = "${task.reminder.load-interval-ms:30000}")
+    public void load() {
+        try {
+            userShards.forEachShard(this::loadShard);
+        } catch (RuntimeException ex) {
+            log.error("Loading reminders failed", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${task.reminder.tick-ms:1000}")
+    public void tick() {
+        try {
+            List<PendingReminder> due;
+            synchronized (wheel) {
+                due = wheel.advance(System.currentTimeMillis());
+            }
+            dispatch(due);
+        } catch (RuntimeException ex) {
+            log.error("Reminder dispatch failed", ex);
+        }
+    }
+
+    public void loadShard() {
+        if (!reminderRepo.acquireLease(owner, leaseTtl))
+            return;
+
+        String shard = ShardContext.get();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime to = now.plus(window);
+
+        List<PendingReminder> dueNow = new ArrayList<>();
+        LocalDateTime afterTime = now.minus(maxLateness);
+        UUID afterId = FIRST_ID;
+        List<Reminder> page;
+        do {
+            page = reminderRepo.findUnsent(now.minus(maxLateness), to, afterTime, afterId, loadBatchSize);
+            enqueue(page, shard, false, dueNow);
+            if (!page.isEmpty()) {
+                afterTime = page.get(page.size() - 1).notifyAt();
+                afterId = page.get(page.size() - 1).taskId();
+            }
+        } while (page.size() == loadBatchSize);
+
+        afterTime = FIRST_SERIES_REMINDER;
+        afterId = FIRST_ID;
+        do {
+            page = taskSeriesReminders.findDue(to, afterTime, afterId, loadBatchSize);
+            enqueue(page, shard, true, dueNow);
+            if (!page.isEmpty()) {
+                afterTime = page.get(page.size() - 1).notifyAt();
+                afterId = page.get(page.size() - 1).taskId();
+            }
+        } while (page.size() == loadBatchSize);
+
+        dispatch(dueNow);
+    }
+
+    private void enqueue(List<Reminder> page, String shard, boolean series, List<PendingReminder> dueNow) {
+        for (Reminder reminder : page) {
+            if (reminder.notifyAt().equals(scheduled.put(reminder.taskId(), reminder.notifyAt())))
+                continue;
+
+            PendingReminder pending = new PendingReminder(reminder.taskId(), reminder.notifyAt(), shard, series, null, 0);
+            if (!schedule(pending, toMillis(reminder.notifyAt())))
+                dueNow.add(pending);
+        }
+    }
+
+    private void dispatch(List<PendingReminder> due) {
+        if (due.isEmpty())
+            return;
+
+        List<PendingReminder> claimed = new ArrayList<>();
+        Map<ClaimGroup, List<PendingReminder>> unclaimedByGroup = new LinkedHashMap<>();
+        for (PendingReminder pending : due) {
+            if (pending.reminder() != null)
+                claimed.add(pending);
+            else
+                unclaimedByGroup.computeIfAbsent(new ClaimGroup(pending.shard(), pending.series()), group -> new ArrayList<>())
+                        .add(pending);
+        }
+
+        unclaimedByGroup.values().forEach(pendings -> {
+            for (List<PendingReminder> batch : partition(pendings))
+                claimed.addAll(claim(batch));
+        });
+
+        for (List<PendingReminder> batch : partition(claimed))
+            send(batch);
+    }
+
+    private List<PendingReminder> claim(List<PendingReminder> batch) {
+        Map<UUID, PendingReminder> byTaskId = batch.stream()
+                .collect(Collectors.toMap(PendingReminder::taskId, pending -> pending, (first, second) -> second));
+        PendingReminder first = batch.get(0);
+        LocalDateTime now = LocalDateTime.now();
+        List<Reminder> reminders = ShardContext.call(first.shard(), () -> first.series()
+                ? taskSeriesReminders.claim(byTaskId.keySet(), now, now.minus(maxLateness))
+                : reminderRepo.claim(byTaskId.keySet(), now));
+
+        // whatever was not claimed has been finished, deleted, moved or sent elsewhere in the meantime
+        List<PendingReminder> claimed = new ArrayList<>(reminders.size());
+        for (Reminder reminder : reminders)
+            claimed.add(byTaskId.remove(reminder.taskId()).claimed(reminder));
+        byTaskId.values().forEach(this::forget);
+        return claimed;
+    }
+
+    private void send(List<PendingReminder> batch) {
+        try {
+            reminderSink.send(batch.stream().map(PendingReminder::reminder).toList());
+            sentCounter.increment(batch.size());
+            batch.forEach(this::forget);
+        } catch (RuntimeException ex) {
+            log.warn("Reminder sink failed for {} reminders", batch.size(), ex);
+            for (PendingReminder pending : batch) {
+                if (pending.attempt() + 1 >= maxAttempts) {
+                    droppedCounter.increment();
+                    forget(pending);
+                    continue;
+                }
+
+                schedule(pending.retried(), System.currentTimeMillis() + (retryBackoffMs << pending.attempt()));
+            }
+        }
+    }
+
+    private boolean schedule(PendingReminder pending, long dueAtMs) {
+        synchronized (wheel) {
+            return wheel.add(pending, dueAtMs);
+        }
+    }
+
+    private void forget(PendingReminder pending) {
+        scheduled.remove(pending.taskId(), pending.notifyAt());
+    }
+
+    private List<List<PendingReminder>> partition(List<PendingReminder> pendings) {
+        List<List<PendingReminder>> batches = new ArrayList<>();
+        for (int from = 0; from < pendings.size(); from += dispatchBatchSize)
+            batches.add(pendings.subList(from, Math.min(from + dispatchBatchSize, pendings.size())));
+        return batches;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // taskId is the series id for a series reminder, reminder is set once claimed and retries skip the claim
+    private record PendingReminder(UUID taskId, LocalDateTime notifyAt, String shard, boolean series, Reminder reminder,
+                                   int attempt) {
+        private PendingReminder claimed(Reminder claimed) {
+            return new PendingReminder(taskId, notifyAt, shard, series, claimed, attempt);
+        }
+
+        private PendingReminder retried() {
+            return new PendingReminder(taskId, notifyAt, shard, series, reminder, attempt + 1);
+        }
+    }
+
+    private record ClaimGroup(String shard, boolean series) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.kuby.todolist.reminder;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class ReminderRepo {
+    private static final String LEASE_NAME = "reminder-dispatcher";
+
+    // a range scan of task_unsent_reminder_idx, keyset paged so a busy minute does not come back in one result
+    private static final String FIND_UNSENT_SQL = "SELECT id, creator_id, name, notification_date_time FROM task " +
+            "WHERE is_finished = false AND reminder_sent_at IS NULL " +
+            "AND notification_date_time >= :from AND notification_date_time < :to " +
+            "AND (notification_date_time, id) > (:afterTime, :afterId) " +
+            "ORDER BY notification_date_time, id " +
+            "LIMIT :limit";
+
+    // re-checks the row, so reminders of tasks finished, deleted or moved since they were loaded are dropped here,
+    // and two dispatchers can never both claim one
+    private static final String CLAIM_SQL = "UPDATE task SET reminder_sent_at = :now " +
+            "WHERE id = ANY(CAST(:ids AS uuid[])) " +
+            "AND is_finished = false AND reminder_sent_at IS NULL AND notification_date_time <= :now " +
+            "RETURNING id, creator_id, name, notification_date_time";
+
+    // database clock on both sides, so skew between app nodes cannot hand the lease to two of them
+    private static final String ACQUIRE_LEASE_SQL = "INSERT INTO reminder_lease AS lease (name, owner, expires_at) " +
+            "VALUES (:name, :owner, now() + CAST(:ttl AS interval)) " +
+            "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at " +
+            "WHERE lease.owner = EXCLUDED.owner OR lease.expires_at < now() " +
+            "RETURNING owner";
+
+    private static final RowMapper<Reminder> REMINDER_MAPPER = (rs, rowNum) -> new Reminder(
+            rs.getObject("id", UUID.class),
+            rs.getObject("creator_id", UUID.class),
+            rs.getString("name"),
+            rs.getObject("notification_date_time", LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<Reminder> findUnsent(LocalDateTime from, LocalDateTime to, LocalDateTime afterTime, UUID afterId, int limit) {
+        return jdbcTemplate.query(FIND_UNSENT_SQL, new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("afterTime", afterTime)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit), REMINDER_MAPPER);
+    }
+
+    public List<Reminder> claim(Collection<UUID> taskIds, LocalDateTime now) {
+        return jdbcTemplate.query(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("ids", taskIds.stream().map(UUID::toString).toArray(String[]::new))
+                .addValue("now", now), REMINDER_MAPPER);
+    }
+
+    public boolean acquireLease(String owner, Duration ttl) {
+        return !jdbcTemplate.queryForList(ACQUIRE_LEASE_SQL, new MapSqlParameterSource()
+                .addValue("name", LEASE_NAME)
+                .addValue("owner", owner)
+                .addValue("ttl", ttl.toString()), String.class).isEmpty();
+    }
+}
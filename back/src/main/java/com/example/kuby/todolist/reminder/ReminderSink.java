@@ -0,0 +1,8 @@
+package com.example.kuby.todolist.reminder;
+
+import java.util.List;
+
+// delivery to the user's devices (FCM, APNs, ...). Throwing fails the whole batch, which the dispatcher retries
+public interface ReminderSink {
+    void send(List<Reminder> reminders);
+}
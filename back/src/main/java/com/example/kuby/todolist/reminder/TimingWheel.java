@@ -0,0 +1,89 @@
+package com.example.kuby.todolist.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// hierarchical timing wheel: a ring of wheelSize buckets of tickMs each, entries beyond the ring's span go to an
+// overflow wheel whose tick is that whole span, and cascade down as the clock reaches their bucket.
+// Adding and firing cost O(levels) whatever the number of entries. Not thread safe
+public final class TimingWheel<T> {
+    private final long tickMs;
+    private final int wheelSize;
+    private final long spanMs;
+    private final List<List<Entry<T>>> buckets;
+    private long currentTimeMs;
+    private TimingWheel<T> overflow;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.spanMs = tickMs * wheelSize;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++)
+            buckets.add(new ArrayList<>());
+        this.currentTimeMs = startMs - startMs % tickMs;
+    }
+
+    // false when dueAtMs falls into the current tick, the caller fires it right away
+    public boolean add(T item, long dueAtMs) {
+        return add(new Entry<>(item, dueAtMs));
+    }
+
+    // moves the clock to nowMs and returns what became due, an entry fires at most one tick early
+    public List<T> advance(long nowMs) {
+        List<Entry<T>> reached = new ArrayList<>();
+        advance(nowMs, reached);
+
+        List<T> due = new ArrayList<>();
+        for (Entry<T> entry : reached) {
+            if (!add(entry))
+                due.add(entry.item());
+        }
+        return due;
+    }
+
+    private boolean add(Entry<T> entry) {
+        if (entry.dueAtMs() < currentTimeMs + tickMs)
+            return false;
+
+        if (entry.dueAtMs() < currentTimeMs + spanMs) {
+            buckets.get(bucketIndex(entry.dueAtMs())).add(entry);
+            return true;
+        }
+
+        if (overflow == null)
+            overflow = new TimingWheel<>(spanMs, wheelSize, currentTimeMs);
+        return overflow.add(entry);
+    }
+
+    private void advance(long nowMs, List<Entry<T>> reached) {
+        if (nowMs < currentTimeMs + tickMs)
+            return;
+
+        if (nowMs - currentTimeMs >= spanMs) {
+            // a whole rotation went by (the process stalled), every bucket is reached
+            for (List<Entry<T>> bucket : buckets) {
+                reached.addAll(bucket);
+                bucket.clear();
+            }
+            currentTimeMs = nowMs - nowMs % tickMs;
+        } else {
+            while (currentTimeMs + tickMs <= nowMs) {
+                currentTimeMs += tickMs;
+                List<Entry<T>> bucket = buckets.get(bucketIndex(currentTimeMs));
+                reached.addAll(bucket);
+                bucket.clear();
+            }
+        }
+
+        if (overflow != null)
+            overflow.advance(currentTimeMs, reached);
+    }
+
+    private int bucketIndex(long timeMs) {
+        return (int) ((timeMs / tickMs) % wheelSize);
+    }
+
+    private record Entry<T>(T item, long dueAtMs) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.kuby.todolist.search;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+// Double.toString round trips exactly, so the next page starts right after the last hit's score
+public record SearchCursor(double score, UUID id) {
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((score + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            return new SearchCursor(
+                    Double.parseDouble(decoded.substring(0, separatorIndex)),
+                    UUID.fromString(decoded.substring(separatorIndex + 1)));
+        } catch (RuntimeException ex) {
+            throw new BasicException(Map.of("cursor", "Cursor has invalid format"), HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.kuby.todolist.search;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import com.example.kuby.todolist.TaskPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/search")
+@RequiredArgsConstructor
+public class TaskSearchController {
+    private final TaskSearchService taskSearchService;
+
+    @GetMapping
+    public ResponseEntity<TaskPage> search(@RequestParam String q,
+                                           @RequestParam(defaultValue = "20") int limit,
+                                           @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(taskSearchService.search(TokenClaimContext.getIdByKey(USER_ID), q, limit, cursor));
+    }
+}
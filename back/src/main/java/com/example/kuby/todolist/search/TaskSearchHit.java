@@ -0,0 +1,6 @@
+package com.example.kuby.todolist.search;
+
+import com.example.kuby.todolist.TaskDTO;
+
+public record TaskSearchHit(TaskDTO task, double score) {
+}
@@ -0,0 +1,59 @@
+package com.example.kuby.todolist.search;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.TaskPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class TaskSearchService {
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TaskJdbcRepo taskJdbcRepo;
+
+    @Transactional(readOnly = true)
+    public TaskPage search(UUID userId, String query, int limit, String cursor) {
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new BasicException(Map.of("limit", "Limit must be between 1 and " + MAX_LIMIT), HttpStatus.BAD_REQUEST);
+        if (query.length() > MAX_QUERY_LENGTH)
+            throw new BasicException(Map.of("q", "Query cannot be longer than " + MAX_QUERY_LENGTH + " characters"), HttpStatus.BAD_REQUEST);
+
+        String prefixQuery = toPrefixTsQuery(query);
+        if (prefixQuery.isEmpty())
+            throw new BasicException(Map.of("q", "Query must contain a letter or digit"), HttpStatus.BAD_REQUEST);
+
+        SearchCursor after = cursor != null ? SearchCursor.decode(cursor) : null;
+        List<TaskSearchHit> hits = taskJdbcRepo.search(userId, query.strip(), prefixQuery, after, limit + 1, LocalDateTime.now());
+
+        List<TaskDTO> tasks = hits.stream().limit(limit).map(TaskSearchHit::task).toList();
+        if (hits.size() <= limit)
+            return new TaskPage(tasks, null);
+
+        TaskSearchHit last = hits.get(limit - 1);
+        return new TaskPage(tasks, new SearchCursor(last.score(), last.task().getId()).encode());
+    }
+
+    // every word has to match the start of a word in the name: "buy mi" -> buy:* & mi:*.
+    // Only letters and digits survive, so the user cannot inject tsquery operators
+    static String toPrefixTsQuery(String query) {
+        return Arrays.stream(NON_WORD.split(query))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.kuby.todolist.stats;
+
+// overdue counts unfinished tasks the expiry sweeper has already flipped
+public record TaskStats(long total, long finished, long overdue) {
+    public static final TaskStats EMPTY = new TaskStats(0, 0, 0);
+}
@@ -0,0 +1,22 @@
+package com.example.kuby.todolist.stats;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/stats")
+@RequiredArgsConstructor
+public class TaskStatsController {
+    private final TaskStatsService taskStatsService;
+
+    @GetMapping
+    public ResponseEntity<TaskStats> getStats() {
+        return ResponseEntity.ok(taskStatsService.getStats(TokenClaimContext.getIdByKey(USER_ID)));
+    }
+}
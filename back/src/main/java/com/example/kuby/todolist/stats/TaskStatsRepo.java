@@ -0,0 +1,65 @@
+package com.example.kuby.todolist.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class TaskStatsRepo {
+    private static final String FIND_SQL = "SELECT total, finished, overdue FROM task_stats WHERE user_id = ?";
+
+    private static final String NEXT_USERS_SQL = "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    // a user without a counter row has nothing to lock, a writer would then insert the row while the recount misses
+    // its task and the recount would overwrite its delta. Creating the missing rows first makes such a writer wait
+    // on this transaction's row, or this insert wait for the writer to commit, before anything is counted
+    private static final String CREATE_MISSING_SQL = "INSERT INTO task_stats (user_id) " +
+            "SELECT id FROM unnest(CAST(? AS uuid[])) AS u(id) ORDER BY id " +
+            "ON CONFLICT (user_id) DO NOTHING";
+
+    // holding the counter rows makes mutations of these users wait at their delta upsert,
+    // so the recount below sees every delta that is already applied and none that is still to come
+    private static final String LOCK_STATS_SQL = "SELECT user_id FROM task_stats WHERE user_id = ANY(CAST(? AS uuid[])) " +
+            "ORDER BY user_id FOR UPDATE";
+
+    private static final String REPAIR_SQL = "WITH actual AS (" +
+            "    SELECT u.id AS user_id, " +
+            "           count(t.id) AS total, " +
+            "           count(t.id) FILTER (WHERE t.is_finished) AS finished, " +
+            "           count(t.id) FILTER (WHERE t.is_expired AND NOT t.is_finished) AS overdue " +
+            "    FROM unnest(CAST(? AS uuid[])) AS u(id) " +
+            "    LEFT JOIN task t ON t.creator_id = u.id " +
+            "    GROUP BY u.id" +
+            ") " +
+            "UPDATE task_stats AS s SET total = actual.total, finished = actual.finished, overdue = actual.overdue " +
+            "FROM actual " +
+            "WHERE s.user_id = actual.user_id " +
+            "AND (s.total, s.finished, s.overdue) IS DISTINCT FROM (actual.total, actual.finished, actual.overdue) " +
+            "RETURNING s.user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskStats find(UUID userId) {
+        List<TaskStats> stats = jdbcTemplate.query(FIND_SQL,
+                (rs, rowNum) -> new TaskStats(rs.getLong("total"), rs.getLong("finished"), rs.getLong("overdue")),
+                userId);
+        return stats.isEmpty() ? TaskStats.EMPTY : stats.get(0);
+    }
+
+    public List<UUID> findUsersAfter(UUID after, int limit) {
+        return jdbcTemplate.queryForList(NEXT_USERS_SQL, UUID.class, after, limit);
+    }
+
+    // run all three in one transaction, returns the users whose counters had drifted.
+    // The driver has no encoder for UUID[], the ids go in as text[] and are cast back
+    public List<UUID> repair(List<UUID> userIds) {
+        String[] ids = userIds.stream().map(UUID::toString).toArray(String[]::new);
+        jdbcTemplate.update(CREATE_MISSING_SQL, (Object) ids);
+        jdbcTemplate.queryForList(LOCK_STATS_SQL, UUID.class, (Object) ids);
+        return jdbcTemplate.queryForList(REPAIR_SQL, UUID.class, (Object) ids);
+    }
+}
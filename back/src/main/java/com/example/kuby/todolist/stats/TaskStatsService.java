@@ -0,0 +1,18 @@
+package com.example.kuby.todolist.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class TaskStatsService {
+    private final TaskStatsRepo taskStatsRepo;
+
+    @Transactional(readOnly = true)
+    public TaskStats getStats(UUID userId) {
+        return taskStatsRepo.find(userId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.kuby.todolist.sync;
+
+import com.example.kuby.exceptions.BasicException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+public record ChangeCursor(long version, UUID id) implements Comparable<ChangeCursor> {
+    public static final ChangeCursor START = new ChangeCursor(-1, new UUID(0, 0));
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((version + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ChangeCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            return new ChangeCursor(
+                    Long.parseLong(decoded.substring(0, separatorIndex)),
+                    UUID.fromString(decoded.substring(separatorIndex + 1)));
+        } catch (RuntimeException ex) {
+            throw new BasicException(Map.of("since", "Cursor has invalid format"), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // same order as Postgres' (change_version, uuid) comparison; UUID.compareTo is signed and would disagree
+    @Override
+    public int compareTo(ChangeCursor other) {
+        int byVersion = Long.compare(version, other.version);
+        if (byVersion != 0)
+            return byVersion;
+        int byHigh = Long.compareUnsigned(id.getMostSignificantBits(), other.id.getMostSignificantBits());
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(id.getLeastSignificantBits(), other.id.getLeastSignificantBits());
+    }
+}
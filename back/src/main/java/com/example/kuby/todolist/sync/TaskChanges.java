@@ -0,0 +1,19 @@
+package com.example.kuby.todolist.sync;
+
+import com.example.kuby.todolist.TaskDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskChanges {
+    private List<TaskDTO> changed;
+    private List<UUID> deleted;
+    private String cursor;
+    private boolean hasMore;
+}
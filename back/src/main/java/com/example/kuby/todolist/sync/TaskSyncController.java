@@ -0,0 +1,24 @@
+package com.example.kuby.todolist.sync;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+@RestController
+@RequestMapping("/api/task/changes")
+@RequiredArgsConstructor
+public class TaskSyncController {
+    private final TaskSyncService taskSyncService;
+
+    @GetMapping
+    public ResponseEntity<TaskChanges> getChanges(@RequestParam(required = false) String since,
+                                                  @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(taskSyncService.getChanges(TokenClaimContext.getIdByKey(USER_ID), since, limit));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.kuby.todolist.sync;
+
+import com.example.kuby.todolist.TaskChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+@Repository
+@RequiredArgsConstructor
+public class TaskSyncRepo {
+    // the row lock taken here serialises a user's mutations, so versions commit in the order they are handed out
+    private static final String ALLOCATE_VERSIONS_SQL = "INSERT INTO task_sync_state (user_id, version) " +
+            "VALUES (:userId, :count) " +
+            "ON CONFLICT (user_id) DO UPDATE SET version = task_sync_state.version + :count " +
+            "RETURNING version";
+
+    // for single row mutations that allocate their version in the same statement, binds :creatorId
+    public static final String NEXT_VERSION_CTE = "next_version AS (" +
+            "INSERT INTO task_sync_state (user_id, version) VALUES (:creatorId, 1) " +
+            "ON CONFLICT (user_id) DO UPDATE SET version = task_sync_state.version + 1 " +
+            "RETURNING version)";
+
+    public static final String TOMBSTONE_CONFLICT_CLAUSE =
+            "ON CONFLICT (task_id) DO UPDATE SET change_version = EXCLUDED.change_version, deleted_at = EXCLUDED.deleted_at";
+
+    private static final String INSERT_TOMBSTONE_SQL = "INSERT INTO task_tombstone (task_id, creator_id, change_version, deleted_at) " +
+            "VALUES (:taskId, :creatorId, :changeVersion, :deletedAt) " +
+            TOMBSTONE_CONFLICT_CLAUSE;
+
+    private static final String FIND_TOMBSTONES_SQL = "SELECT task_id, change_version FROM task_tombstone " +
+            "WHERE creator_id = :creatorId AND (change_version, task_id) > (:version, :id) " +
+            "ORDER BY change_version, task_id " +
+            "LIMIT :limit";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // returns the highest version of the allocated block, the block is (result - count, result]
+    public long allocateChangeVersions(UUID userId, int count) {
+        Long version = jdbcTemplate.queryForObject(ALLOCATE_VERSIONS_SQL, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("count", count), Long.class);
+        return version == null ? 0 : version;
+    }
+
+    // for one statement over many of a user's rows that numbers them from the base it is given. Locking the version row
+    // first (an allocation of 0) keeps the lock order of TaskService, the block the statement used is claimed after it
+    public List<Long> applyVersioned(UUID userId, LongFunction<List<Long>> statement) {
+        return applyVersioned(userId, statement, Long::longValue);
+    }
+
+    public <T> List<T> applyVersioned(UUID userId, LongFunction<List<T>> statement, ToLongFunction<T> changeVersion) {
+        long baseVersion = allocateChangeVersions(userId, 0);
+        List<T> changed = statement.apply(baseVersion);
+        if (changed.isEmpty())
+            return changed;
+
+        long maxVersion = changed.stream().mapToLong(changeVersion).max().getAsLong();
+        allocateChangeVersions(userId, (int) (maxVersion - baseVersion));
+        eventPublisher.publishEvent(new TaskChangedEvent(userId));
+        return changed;
+    }
+
+    public void saveTombstones(Map<UUID, Long> changeVersionsByTaskId, UUID creatorId) {
+        if (changeVersionsByTaskId.isEmpty())
+            return;
+
+        LocalDateTime deletedAt = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_TOMBSTONE_SQL, changeVersionsByTaskId.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("taskId", entry.getKey())
+                        .addValue("creatorId", creatorId)
+                        .addValue("changeVersion", entry.getValue())
+                        .addValue("deletedAt", deletedAt))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    public List<ChangeCursor> findTombstonesAfter(UUID creatorId, ChangeCursor after, int limit) {
+        return jdbcTemplate.query(FIND_TOMBSTONES_SQL, new MapSqlParameterSource()
+                        .addValue("creatorId", creatorId)
+                        .addValue("version", after.version())
+                        .addValue("id", after.id())
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new ChangeCursor(rs.getLong("change_version"), rs.getObject("task_id", UUID.class)));
+    }
+}
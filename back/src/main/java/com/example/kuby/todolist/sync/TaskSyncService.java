@@ -0,0 +1,70 @@
+package com.example.kuby.todolist.sync;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class TaskSyncService {
+    private static final int MAX_CHANGES = 1000;
+
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final TaskSyncRepo taskSyncRepo;
+
+    @Transactional(readOnly = true)
+    public TaskChanges getChanges(UUID userId, String since, int limit) {
+        if (limit < 1 || limit > MAX_CHANGES)
+            throw new BasicException(Map.of("limit", "Limit must be between 1 and " + MAX_CHANGES), HttpStatus.BAD_REQUEST);
+
+        ChangeCursor after = since != null ? ChangeCursor.decode(since) : ChangeCursor.START;
+
+        List<TaskDTO> changed = taskJdbcRepo.findChangedAfter(userId, after, limit + 1, LocalDateTime.now());
+        // a client syncing from scratch has nothing to delete
+        List<ChangeCursor> deleted = since != null
+                ? taskSyncRepo.findTombstonesAfter(userId, after, limit + 1)
+                : List.of();
+
+        return merge(changed, deleted, after, limit);
+    }
+
+    private static TaskChanges merge(List<TaskDTO> changed, List<ChangeCursor> deleted, ChangeCursor after, int limit) {
+        List<TaskDTO> pageChanged = new ArrayList<>();
+        List<UUID> pageDeleted = new ArrayList<>();
+        ChangeCursor last = after;
+
+        int changedIndex = 0;
+        int deletedIndex = 0;
+        while (pageChanged.size() + pageDeleted.size() < limit
+                && (changedIndex < changed.size() || deletedIndex < deleted.size())) {
+            ChangeCursor nextChanged = changedIndex < changed.size() ? cursorOf(changed.get(changedIndex)) : null;
+            ChangeCursor nextDeleted = deletedIndex < deleted.size() ? deleted.get(deletedIndex) : null;
+
+            if (nextDeleted == null || (nextChanged != null && nextChanged.compareTo(nextDeleted) < 0)) {
+                pageChanged.add(changed.get(changedIndex++));
+                last = nextChanged;
+            } else {
+                pageDeleted.add(nextDeleted.id());
+                deletedIndex++;
+                last = nextDeleted;
+            }
+        }
+
+        boolean hasMore = changedIndex < changed.size() || deletedIndex < deleted.size();
+        return new TaskChanges(pageChanged, pageDeleted, last.encode(), hasMore);
+    }
+
+    private static ChangeCursor cursorOf(TaskDTO task) {
+        return new ChangeCursor(task.getChangeVersion(), task.getId());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.kuby.todolist.sync;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "task_sync_state")
+public class TaskSyncState {
+    @Id
+    private UUID userId;
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,27 @@
+package com.example.kuby.todolist.sync;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "task_tombstone", indexes = {
+        @Index(name = "task_tombstone_creator_version_idx", columnList = "creator_id, change_version, task_id")
+})
+public class TaskTombstone {
+    @Id
+    private UUID taskId;
+    @Column(nullable = false)
+    private UUID creatorId;
+    @Column(nullable = false)
+    private long changeVersion;
+    @Column(nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,19 @@
+package com.example.kuby.todolist.tree;
+
+import com.example.kuby.todolist.TaskDTO;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// a task with the same fields as TaskDTO plus its subtasks, ordered by deadline
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskNode {
+    @JsonUnwrapped
+    private TaskDTO task;
+    private List<TaskNode> subtasks;
+}
@@ -0,0 +1,40 @@
+package com.example.kuby.todolist.tree;
+
+import com.example.kuby.security.context.TokenClaimContext;
+import com.example.kuby.todolist.bulk.TaskBulkResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.kuby.security.constant.JwtClaimKey.USER_ID;
+
+// DELETE /api/task/{id} removes only the task itself, its subtasks then show up as roots
+@RestController
+@RequestMapping("/api/task")
+@RequiredArgsConstructor
+public class TaskTreeController {
+    private final TaskTreeService taskTreeService;
+
+    @GetMapping("/tree")
+    public ResponseEntity<List<TaskNode>> getTree() {
+        return ResponseEntity.ok(taskTreeService.getTree(TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @GetMapping("/{id}/tree")
+    public ResponseEntity<TaskNode> getSubtree(@PathVariable UUID id) {
+        return ResponseEntity.ok(taskTreeService.getSubtree(id, TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @PatchMapping("/{id}/subtree")
+    public ResponseEntity<TaskBulkResponse> finishSubtree(@PathVariable UUID id) {
+        return ResponseEntity.ok(taskTreeService.finishSubtree(id, TokenClaimContext.getIdByKey(USER_ID)));
+    }
+
+    @DeleteMapping("/{id}/subtree")
+    public ResponseEntity<TaskBulkResponse> deleteSubtree(@PathVariable UUID id) {
+        return ResponseEntity.ok(taskTreeService.deleteSubtree(id, TokenClaimContext.getIdByKey(USER_ID)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.kuby.todolist.tree;
+
+import com.example.kuby.exceptions.BasicException;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.TaskRepo;
+import com.example.kuby.todolist.bulk.TaskBulkResponse;
+import com.example.kuby.todolist.sync.TaskSyncRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.kuby.todolist.TaskService.MAX_TREE_DEPTH;
+
+// trees are read in one query and nested in memory in one pass, no level is fetched on its own. Subtree writes are
+// one statement each, numbered through TaskSyncRepo.applyVersioned like TaskBulkService
+@Service
+@RequiredArgsConstructor
+public class TaskTreeService {
+    private final TaskJdbcRepo taskJdbcRepo;
+    private final TaskRepo taskRepo;
+    private final TaskSyncRepo taskSyncRepo;
+
+    @Transactional(readOnly = true)
+    public List<TaskNode> getTree(UUID userId) {
+        List<TaskDTO> tasks = new ArrayList<>();
+        taskJdbcRepo.streamAllByCreatorId(userId, LocalDateTime.now(), tasks::add);
+        return nest(tasks);
+    }
+
+    @Transactional(readOnly = true)
+    public TaskNode getSubtree(UUID id, UUID userId) {
+        List<TaskNode> roots = nest(taskJdbcRepo.findSubtree(id, userId, MAX_TREE_DEPTH, LocalDateTime.now()));
+        if (roots.isEmpty())
+            throw taskNotFound();
+        return roots.get(0);
+    }
+
+    // finished subtasks keep their change version
+    @Transactional
+    public TaskBulkResponse finishSubtree(UUID id, UUID userId) {
+        List<Long> versions = taskSyncRepo.applyVersioned(userId,
+                baseVersion -> taskJdbcRepo.finishSubtree(id, userId, MAX_TREE_DEPTH, baseVersion));
+        if (versions.isEmpty() && !taskRepo.existsByIdAndCreatorId(id, userId))
+            throw taskNotFound();
+
+        return new TaskBulkResponse(versions.size());
+    }
+
+    @Transactional
+    public TaskBulkResponse deleteSubtree(UUID id, UUID userId) {
+        List<Long> versions = taskSyncRepo.applyVersioned(userId,
+                baseVersion -> taskJdbcRepo.deleteSubtree(id, userId, MAX_TREE_DEPTH, baseVersion, LocalDateTime.now()));
+        if (versions.isEmpty())
+            throw taskNotFound();
+
+        return new TaskBulkResponse(versions.size());
+    }
+
+    // tasks come in deadline order and keep it among siblings. A task whose parent is not in the list is a root,
+    // which covers the root of a subtree and subtasks whose parent was deleted on its own
+    static List<TaskNode> nest(List<TaskDTO> tasks) {
+        Map<UUID, TaskNode> nodes = new HashMap<>(tasks.size() * 4 / 3 + 1);
+        for (TaskDTO task : tasks)
+            nodes.put(task.getId(), new TaskNode(task, new ArrayList<>()));
+
+        List<TaskNode> roots = new ArrayList<>();
+        for (TaskDTO task : tasks) {
+            TaskNode parent = task.getParentId() != null ? nodes.get(task.getParentId()) : null;
+            (parent != null ? parent.getSubtasks() : roots).add(nodes.get(task.getId()));
+        }
+        return roots;
+    }
+
+    private static BasicException taskNotFound() {
+        return new BasicException(Map.of("taskId", "Task with such id not found"), HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.kuby.utils;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// RFC 9562 version 7: 48 bit unix millis, 12 bit rand_a used as a per-millisecond counter, 62 random bits.
+// Ids minted by this JVM are strictly increasing, so new rows always land on the right edge of the primary key index.
+public final class UuidV7 {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+    // a new millisecond starts the counter low enough to leave room for a burst within it
+    private static final int COUNTER_SEED_BOUND = 1 << (COUNTER_BITS - 1);
+
+    private static long lastMillis;
+    private static int counter;
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        long millis;
+        int sequence;
+        synchronized (UuidV7.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                counter = RANDOM.nextInt(COUNTER_SEED_BOUND);
+            } else if (++counter > MAX_COUNTER) {
+                // counter exhausted or clock went back, borrow the next millisecond instead of breaking the order
+                lastMillis++;
+                counter = 0;
+            }
+            millis = lastMillis;
+            sequence = counter;
+        }
+
+        long mostSigBits = (millis << 16) | (0x7L << 12) | sequence;
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,31 @@
+-- recurring tasks: one row per series, occurrences are expanded from the rule when read and never stored up front.
+-- dead_line is the first occurrence, each occurrence keeps its time of day and notify_before_seconds
+CREATE TABLE task_series (
+    id                    UUID          NOT NULL,
+    creator_id            UUID          NOT NULL,
+    name                  VARCHAR(1000) NOT NULL,
+    dead_line             TIMESTAMP(6)  NOT NULL,
+    notify_before_seconds BIGINT,
+    frequency             VARCHAR(16)   NOT NULL,
+    interval_count        INT           NOT NULL,
+    by_day                SMALLINT      NOT NULL,
+    occurrence_count      INT,
+    repeat_until          TIMESTAMP(6),
+    -- the reminder time of the next occurrence still to be reminded of, null once the series has none left
+    next_reminder_at      TIMESTAMP(6),
+    created_at            TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX task_series_creator_idx ON task_series (creator_id, id);
+-- the reminder dispatcher's window scan, like task_unsent_reminder_idx (V7)
+CREATE INDEX task_series_next_reminder_idx ON task_series (next_reminder_at, id) WHERE next_reminder_at IS NOT NULL;
+
+-- an occurrence the user finished or edited became the task task_id, one that was skipped has no task.
+-- Either way expansion leaves it out, deleting the task later does not bring the occurrence back
+CREATE TABLE task_occurrence (
+    series_id     UUID         NOT NULL REFERENCES task_series (id) ON DELETE CASCADE,
+    occurrence_at TIMESTAMP(6) NOT NULL,
+    task_id       UUID,
+    PRIMARY KEY (series_id, occurrence_at)
+);
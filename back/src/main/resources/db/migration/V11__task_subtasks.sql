@@ -0,0 +1,89 @@
+-- subtasks: a task can hang under another task of the same creator, stored as an adjacency list. A subtree is one
+-- recursive CTE that walks task_creator_parent_idx a level per iteration, the whole forest is the creator's rows.
+-- There is no foreign key, the key of task becomes (id, creator_id) with the partition swap. A task whose parent
+-- is gone (a single delete, the archiver) is shown as a root
+ALTER TABLE task ADD COLUMN parent_id UUID;
+
+-- roots are never looked up by parent, so they stay out of the index
+CREATE INDEX task_creator_parent_idx ON task (creator_id, parent_id) WHERE parent_id IS NOT NULL;
+
+-- the change feed carries the parent like every other column
+CREATE OR REPLACE FUNCTION task_outbox_capture() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF current_setting('task.outbox_skip', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO task_outbox (user_id, task_id, type, change_version, task)
+        SELECT creator_id, id, 'CREATED', change_version,
+               jsonb_build_object('id', id, 'creatorId', creator_id, 'name', name, 'deadLine', dead_line,
+                                  'notificationDateTime', notification_date_time, 'isFinished', is_finished,
+                                  'isExpired', is_expired, 'changeVersion', change_version, 'parentId', parent_id)
+        FROM new_rows
+        WHERE creator_id IS NOT NULL
+        ORDER BY change_version, id;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO task_outbox (user_id, task_id, type, change_version, task)
+        SELECT creator_id, id, 'DELETED', NULL, NULL
+        FROM old_rows
+        WHERE creator_id IS NOT NULL
+        ORDER BY id;
+    ELSE
+        -- claiming a reminder is bookkeeping, not a change
+        INSERT INTO task_outbox (user_id, task_id, type, change_version, task)
+        SELECT n.creator_id, n.id,
+               CASE
+                   WHEN n.is_finished AND NOT o.is_finished THEN 'FINISHED'
+                   WHEN n.is_expired AND NOT o.is_expired AND n.change_version = o.change_version THEN 'EXPIRED'
+                   ELSE 'UPDATED'
+               END,
+               n.change_version,
+               jsonb_build_object('id', n.id, 'creatorId', n.creator_id, 'name', n.name, 'deadLine', n.dead_line,
+                                  'notificationDateTime', n.notification_date_time, 'isFinished', n.is_finished,
+                                  'isExpired', n.is_expired, 'changeVersion', n.change_version, 'parentId', n.parent_id)
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id AND o.creator_id = n.creator_id
+        WHERE n.creator_id IS NOT NULL
+          AND (to_jsonb(n) - 'reminder_sent_at') IS DISTINCT FROM (to_jsonb(o) - 'reminder_sent_at')
+        ORDER BY n.change_version, n.id;
+    END IF;
+    RETURN NULL;
+END $$;
+
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        ALTER TABLE task_partitioned ADD COLUMN parent_id UUID;
+
+        CREATE INDEX task_partitioned_creator_parent_idx ON task_partitioned (creator_id, parent_id)
+            WHERE parent_id IS NOT NULL;
+
+        CREATE OR REPLACE FUNCTION task_mirror_to_partitioned() RETURNS trigger LANGUAGE plpgsql AS $mirror$
+        BEGIN
+            IF TG_OP = 'DELETE' THEN
+                DELETE FROM task_partitioned WHERE id = OLD.id AND creator_id = OLD.creator_id;
+                RETURN OLD;
+            END IF;
+
+            IF NEW.creator_id IS NOT NULL THEN
+                INSERT INTO task_partitioned
+                    (id, creator_id, name, dead_line, is_finished, is_expired, notification_date_time, change_version,
+                     reminder_sent_at, parent_id)
+                VALUES
+                    (NEW.id, NEW.creator_id, NEW.name, NEW.dead_line, NEW.is_finished, NEW.is_expired,
+                     NEW.notification_date_time, NEW.change_version, NEW.reminder_sent_at, NEW.parent_id)
+                ON CONFLICT (id, creator_id) DO UPDATE SET
+                    name = EXCLUDED.name,
+                    dead_line = EXCLUDED.dead_line,
+                    is_finished = EXCLUDED.is_finished,
+                    is_expired = EXCLUDED.is_expired,
+                    notification_date_time = EXCLUDED.notification_date_time,
+                    change_version = EXCLUDED.change_version,
+                    reminder_sent_at = EXCLUDED.reminder_sent_at,
+                    parent_id = EXCLUDED.parent_id;
+            END IF;
+            RETURN NEW;
+        END $mirror$;
+    END IF;
+END $$;
@@ -0,0 +1,9 @@
+-- with sharding on, the copy on the default shard maps every (provider, email) to its user, whichever shard holds it.
+-- Its primary key is the uniqueness check signups on different shards share, users_provider_email_key only covers
+-- one shard. UserShards fills it from every shard on startup, the other shards keep their copy empty
+CREATE TABLE user_email_directory (
+    provider VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    user_id  UUID         NOT NULL,
+    PRIMARY KEY (provider, email)
+);
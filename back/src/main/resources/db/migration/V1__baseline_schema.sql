@@ -0,0 +1,66 @@
+-- schema as hibernate generated it with ddl-auto=update, databases created that way are baselined at this version
+
+CREATE TABLE users (
+    id                 UUID         NOT NULL,
+    email              VARCHAR(255) NOT NULL,
+    password           VARCHAR(255),
+    provider           VARCHAR(255) NOT NULL CHECK (provider IN ('LOCAL', 'GOOGLE')),
+    last_active_date   TIMESTAMP(6),
+    registration_date  TIMESTAMP(6),
+    is_email_submitted BOOLEAN DEFAULT false NOT NULL,
+    roles              VARCHAR(255) NOT NULL CHECK (roles IN ('ADMIN', 'USER')),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX users_provider_email_idx ON users (provider, email);
+
+CREATE TABLE access_token (
+    id         UUID NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE refresh_token (
+    id         UUID NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE tokens (
+    id               UUID                        NOT NULL,
+    access_token_id  UUID                        NOT NULL UNIQUE REFERENCES access_token (id),
+    refresh_token_id UUID                        NOT NULL UNIQUE REFERENCES refresh_token (id),
+    updated_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    user_id          UUID                        NOT NULL UNIQUE REFERENCES users (id),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE task (
+    id                     UUID                  NOT NULL,
+    creator_id             UUID REFERENCES users (id),
+    name                   VARCHAR(1000)         NOT NULL,
+    dead_line              TIMESTAMP(6)          NOT NULL,
+    is_finished            BOOLEAN DEFAULT false NOT NULL,
+    is_expired             BOOLEAN               NOT NULL,
+    notification_date_time TIMESTAMP(6),
+    change_version         BIGINT DEFAULT 0      NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX task_creator_change_version_idx ON task (creator_id, change_version, id);
+
+CREATE TABLE task_sync_state (
+    user_id UUID   NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (user_id)
+);
+
+CREATE TABLE task_tombstone (
+    task_id        UUID         NOT NULL,
+    creator_id     UUID         NOT NULL,
+    change_version BIGINT       NOT NULL,
+    deleted_at     TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (task_id)
+);
+
+CREATE INDEX task_tombstone_creator_version_idx ON task_tombstone (creator_id, change_version, task_id);
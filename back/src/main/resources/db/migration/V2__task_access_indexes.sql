@@ -0,0 +1,13 @@
+-- paged list and full stream: WHERE creator_id = ? ORDER BY dead_line, id
+CREATE INDEX task_creator_dead_line_idx ON task (creator_id, dead_line, id);
+
+-- expiry sweep: WHERE is_expired = false AND dead_line < ? ORDER BY dead_line, shrinks as tasks expire
+CREATE INDEX task_unexpired_dead_line_idx ON task (dead_line) WHERE is_expired = false;
+
+-- reminders: only unfinished tasks that asked for a notification
+CREATE INDEX task_pending_notification_idx ON task (notification_date_time)
+    WHERE is_finished = false AND notification_date_time IS NOT NULL;
+
+-- the lookup index becomes the uniqueness guarantee the login flow already assumes
+DROP INDEX users_provider_email_idx;
+ALTER TABLE users ADD CONSTRAINT users_provider_email_key UNIQUE (provider, email);
@@ -0,0 +1,91 @@
+-- task is hash partitioned on creator_id, every task query filters by creator_id so it is pruned to one partition.
+-- Populated databases are moved online: task_partitioned is kept in step with task by a trigger while
+-- TaskPartitionMigrator backfills it, then task_partition_swap() renames it into place. Empty databases swap right here.
+-- Until the swap has happened, migrations that change task have to apply the same change to task_partitioned.
+
+CREATE TABLE task_partitioned (
+    id                     UUID                  NOT NULL,
+    creator_id             UUID                  NOT NULL REFERENCES users (id),
+    name                   VARCHAR(1000)         NOT NULL,
+    dead_line              TIMESTAMP(6)          NOT NULL,
+    is_finished            BOOLEAN DEFAULT false NOT NULL,
+    is_expired             BOOLEAN               NOT NULL,
+    notification_date_time TIMESTAMP(6),
+    change_version         BIGINT DEFAULT 0      NOT NULL,
+    CONSTRAINT task_partitioned_pkey PRIMARY KEY (id, creator_id)
+) PARTITION BY HASH (creator_id);
+
+DO $$
+BEGIN
+    FOR remainder IN 0..${taskPartitions} - 1 LOOP
+        EXECUTE format('CREATE TABLE task_p%s PARTITION OF task_partitioned FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       remainder, ${taskPartitions}, remainder);
+    END LOOP;
+END $$;
+
+CREATE INDEX task_partitioned_creator_change_version_idx ON task_partitioned (creator_id, change_version, id);
+CREATE INDEX task_partitioned_creator_dead_line_idx ON task_partitioned (creator_id, dead_line, id);
+CREATE INDEX task_partitioned_unexpired_dead_line_idx ON task_partitioned (dead_line) WHERE is_expired = false;
+CREATE INDEX task_partitioned_pending_notification_idx ON task_partitioned (notification_date_time)
+    WHERE is_finished = false AND notification_date_time IS NOT NULL;
+
+-- tasks without a creator are unreachable through the api and are not carried over
+CREATE FUNCTION task_mirror_to_partitioned() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM task_partitioned WHERE id = OLD.id AND creator_id = OLD.creator_id;
+        RETURN OLD;
+    END IF;
+
+    IF NEW.creator_id IS NOT NULL THEN
+        INSERT INTO task_partitioned
+            (id, creator_id, name, dead_line, is_finished, is_expired, notification_date_time, change_version)
+        VALUES
+            (NEW.id, NEW.creator_id, NEW.name, NEW.dead_line, NEW.is_finished, NEW.is_expired,
+             NEW.notification_date_time, NEW.change_version)
+        ON CONFLICT (id, creator_id) DO UPDATE SET
+            name = EXCLUDED.name,
+            dead_line = EXCLUDED.dead_line,
+            is_finished = EXCLUDED.is_finished,
+            is_expired = EXCLUDED.is_expired,
+            notification_date_time = EXCLUDED.notification_date_time,
+            change_version = EXCLUDED.change_version;
+    END IF;
+    RETURN NEW;
+END $$;
+
+CREATE TRIGGER task_mirror_to_partitioned
+    AFTER INSERT OR UPDATE OR DELETE ON task
+    FOR EACH ROW EXECUTE FUNCTION task_mirror_to_partitioned();
+
+-- only renames under the lock, the copy is already complete once the backfill has passed the last id.
+-- The old table is kept as task_unpartitioned for rollback and can be dropped once the new one has proven itself.
+CREATE FUNCTION task_partition_swap() RETURNS void LANGUAGE plpgsql AS $$
+BEGIN
+    LOCK TABLE task IN ACCESS EXCLUSIVE MODE;
+
+    DROP TRIGGER task_mirror_to_partitioned ON task;
+    DROP FUNCTION task_mirror_to_partitioned();
+
+    ALTER TABLE task RENAME TO task_unpartitioned;
+    ALTER INDEX task_pkey RENAME TO task_unpartitioned_pkey;
+    ALTER INDEX task_creator_change_version_idx RENAME TO task_unpartitioned_creator_change_version_idx;
+    ALTER INDEX task_creator_dead_line_idx RENAME TO task_unpartitioned_creator_dead_line_idx;
+    ALTER INDEX task_unexpired_dead_line_idx RENAME TO task_unpartitioned_unexpired_dead_line_idx;
+    ALTER INDEX task_pending_notification_idx RENAME TO task_unpartitioned_pending_notification_idx;
+
+    ALTER TABLE task_partitioned RENAME TO task;
+    ALTER INDEX task_partitioned_pkey RENAME TO task_pkey;
+    ALTER INDEX task_partitioned_creator_change_version_idx RENAME TO task_creator_change_version_idx;
+    ALTER INDEX task_partitioned_creator_dead_line_idx RENAME TO task_creator_dead_line_idx;
+    ALTER INDEX task_partitioned_unexpired_dead_line_idx RENAME TO task_unexpired_dead_line_idx;
+    ALTER INDEX task_partitioned_pending_notification_idx RENAME TO task_pending_notification_idx;
+END $$;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM task) THEN
+        PERFORM task_partition_swap();
+        DROP TABLE task_unpartitioned;
+    END IF;
+END $$;
@@ -0,0 +1,45 @@
+-- GET /api/task/search: prefix full-text match or fuzzy trigram match on name.
+-- btree_gin lets creator_id lead both GIN indexes, so a search only reads the entries of the searching user.
+-- Expression indexes rather than a stored tsvector column keep the table and its copies (mirror, rebalancer) unchanged
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX task_creator_name_tsv_idx ON task USING gin (creator_id, to_tsvector('simple', name));
+CREATE INDEX task_creator_name_trgm_idx ON task USING gin (creator_id, name gin_trgm_ops);
+
+-- a partition migration still in progress needs the indexes on the shadow table and its swap has to carry them over
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        CREATE INDEX task_partitioned_creator_name_tsv_idx ON task_partitioned
+            USING gin (creator_id, to_tsvector('simple', name));
+        CREATE INDEX task_partitioned_creator_name_trgm_idx ON task_partitioned
+            USING gin (creator_id, name gin_trgm_ops);
+
+        CREATE OR REPLACE FUNCTION task_partition_swap() RETURNS void LANGUAGE plpgsql AS $swap$
+        BEGIN
+            LOCK TABLE task IN ACCESS EXCLUSIVE MODE;
+
+            DROP TRIGGER task_mirror_to_partitioned ON task;
+            DROP FUNCTION task_mirror_to_partitioned();
+
+            ALTER TABLE task RENAME TO task_unpartitioned;
+            ALTER INDEX task_pkey RENAME TO task_unpartitioned_pkey;
+            ALTER INDEX task_creator_change_version_idx RENAME TO task_unpartitioned_creator_change_version_idx;
+            ALTER INDEX task_creator_dead_line_idx RENAME TO task_unpartitioned_creator_dead_line_idx;
+            ALTER INDEX task_unexpired_dead_line_idx RENAME TO task_unpartitioned_unexpired_dead_line_idx;
+            ALTER INDEX task_pending_notification_idx RENAME TO task_unpartitioned_pending_notification_idx;
+            ALTER INDEX task_creator_name_tsv_idx RENAME TO task_unpartitioned_creator_name_tsv_idx;
+            ALTER INDEX task_creator_name_trgm_idx RENAME TO task_unpartitioned_creator_name_trgm_idx;
+
+            ALTER TABLE task_partitioned RENAME TO task;
+            ALTER INDEX task_partitioned_pkey RENAME TO task_pkey;
+            ALTER INDEX task_partitioned_creator_change_version_idx RENAME TO task_creator_change_version_idx;
+            ALTER INDEX task_partitioned_creator_dead_line_idx RENAME TO task_creator_dead_line_idx;
+            ALTER INDEX task_partitioned_unexpired_dead_line_idx RENAME TO task_unexpired_dead_line_idx;
+            ALTER INDEX task_partitioned_pending_notification_idx RENAME TO task_pending_notification_idx;
+            ALTER INDEX task_partitioned_creator_name_tsv_idx RENAME TO task_creator_name_tsv_idx;
+            ALTER INDEX task_partitioned_creator_name_trgm_idx RENAME TO task_creator_name_trgm_idx;
+        END $swap$;
+    END IF;
+END $$;
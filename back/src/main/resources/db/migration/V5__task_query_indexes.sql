@@ -0,0 +1,51 @@
+-- GET /api/task filters, every accepted filter and sort shape is served by one of these (see TaskQueryShape):
+-- status finished / unfinished, ordered by dead_line either way
+CREATE INDEX task_creator_finished_dead_line_idx ON task (creator_id, dead_line, id) WHERE is_finished = true;
+CREATE INDEX task_creator_unfinished_dead_line_idx ON task (creator_id, dead_line, id) WHERE is_finished = false;
+-- tasks with a notification, ordered by notification time
+CREATE INDEX task_creator_notification_idx ON task (creator_id, notification_date_time, id)
+    WHERE notification_date_time IS NOT NULL;
+-- newest first, ids are UUIDv7 and ordered by creation time
+CREATE INDEX task_creator_id_idx ON task (creator_id, id);
+
+-- a partition migration still in progress gets the same indexes on the shadow table. The swap now renames whatever
+-- task_* and task_partitioned_* indexes exist, so later migrations only create the task_partitioned_ twin
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        CREATE INDEX task_partitioned_creator_finished_dead_line_idx ON task_partitioned (creator_id, dead_line, id)
+            WHERE is_finished = true;
+        CREATE INDEX task_partitioned_creator_unfinished_dead_line_idx ON task_partitioned (creator_id, dead_line, id)
+            WHERE is_finished = false;
+        CREATE INDEX task_partitioned_creator_notification_idx ON task_partitioned (creator_id, notification_date_time, id)
+            WHERE notification_date_time IS NOT NULL;
+        CREATE INDEX task_partitioned_creator_id_idx ON task_partitioned (creator_id, id);
+
+        CREATE OR REPLACE FUNCTION task_partition_swap() RETURNS void LANGUAGE plpgsql AS $swap$
+        DECLARE
+            index_name text;
+        BEGIN
+            LOCK TABLE task IN ACCESS EXCLUSIVE MODE;
+
+            DROP TRIGGER task_mirror_to_partitioned ON task;
+            DROP FUNCTION task_mirror_to_partitioned();
+
+            ALTER TABLE task RENAME TO task_unpartitioned;
+            FOR index_name IN
+                SELECT indexname FROM pg_indexes
+                WHERE schemaname = current_schema() AND tablename = 'task_unpartitioned'
+                  AND indexname LIKE 'task\_%' AND indexname NOT LIKE 'task\_unpartitioned\_%'
+            LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, 'task_unpartitioned_' || substr(index_name, 6));
+            END LOOP;
+
+            ALTER TABLE task_partitioned RENAME TO task;
+            FOR index_name IN
+                SELECT indexname FROM pg_indexes
+                WHERE schemaname = current_schema() AND tablename = 'task' AND indexname LIKE 'task\_partitioned\_%'
+            LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, 'task_' || substr(index_name, 18));
+            END LOOP;
+        END $swap$;
+    END IF;
+END $$;
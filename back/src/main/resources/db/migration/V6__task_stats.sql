@@ -0,0 +1,118 @@
+-- per user counters for GET /api/task/stats, kept by statement triggers that add the delta of every write to task.
+-- overdue follows the stored is_expired flag, so it moves when the expiry sweeper flips it.
+-- TaskStatsReconciler recounts from task in the background and repairs any drift
+CREATE TABLE task_stats (
+    user_id  UUID   NOT NULL,
+    total    BIGINT NOT NULL DEFAULT 0,
+    finished BIGINT NOT NULL DEFAULT 0,
+    overdue  BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id)
+);
+
+-- one upsert per user and statement, a statement that leaves the counts as they were (a rename) writes nothing
+CREATE FUNCTION task_stats_apply_delta() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO task_stats AS s (user_id, total, finished, overdue)
+        SELECT creator_id, count(*), count(*) FILTER (WHERE is_finished), count(*) FILTER (WHERE is_expired AND NOT is_finished)
+        FROM new_rows
+        WHERE creator_id IS NOT NULL
+        GROUP BY creator_id
+        ON CONFLICT (user_id) DO UPDATE SET
+            total = s.total + EXCLUDED.total,
+            finished = s.finished + EXCLUDED.finished,
+            overdue = s.overdue + EXCLUDED.overdue;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO task_stats AS s (user_id, total, finished, overdue)
+        SELECT creator_id, -count(*), -count(*) FILTER (WHERE is_finished), -count(*) FILTER (WHERE is_expired AND NOT is_finished)
+        FROM old_rows
+        WHERE creator_id IS NOT NULL
+        GROUP BY creator_id
+        ON CONFLICT (user_id) DO UPDATE SET
+            total = s.total + EXCLUDED.total,
+            finished = s.finished + EXCLUDED.finished,
+            overdue = s.overdue + EXCLUDED.overdue;
+    ELSE
+        INSERT INTO task_stats AS s (user_id, total, finished, overdue)
+        SELECT creator_id, sum(total), sum(finished), sum(overdue)
+        FROM (
+            SELECT creator_id, 1 AS total, is_finished::int AS finished, (is_expired AND NOT is_finished)::int AS overdue
+            FROM new_rows
+            UNION ALL
+            SELECT creator_id, -1, -(is_finished::int), -((is_expired AND NOT is_finished)::int)
+            FROM old_rows
+        ) delta
+        WHERE creator_id IS NOT NULL
+        GROUP BY creator_id
+        HAVING sum(total) <> 0 OR sum(finished) <> 0 OR sum(overdue) <> 0
+        ON CONFLICT (user_id) DO UPDATE SET
+            total = s.total + EXCLUDED.total,
+            finished = s.finished + EXCLUDED.finished,
+            overdue = s.overdue + EXCLUDED.overdue;
+    END IF;
+    RETURN NULL;
+END $$;
+
+-- transition tables allow only one event per trigger
+CREATE TRIGGER task_stats_insert AFTER INSERT ON task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task_stats_apply_delta();
+CREATE TRIGGER task_stats_update AFTER UPDATE ON task
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task_stats_apply_delta();
+CREATE TRIGGER task_stats_delete AFTER DELETE ON task
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task_stats_apply_delta();
+
+INSERT INTO task_stats (user_id, total, finished, overdue)
+SELECT creator_id, count(*), count(*) FILTER (WHERE is_finished), count(*) FILTER (WHERE is_expired AND NOT is_finished)
+FROM task
+WHERE creator_id IS NOT NULL
+GROUP BY creator_id;
+
+-- a partition migration still in progress: the shadow gets the triggers disabled, so neither the mirror nor the
+-- backfill counts twice, and the swap enables them while the old table's stop counting
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        CREATE TRIGGER task_stats_insert AFTER INSERT ON task_partitioned
+            REFERENCING NEW TABLE AS new_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION task_stats_apply_delta();
+        CREATE TRIGGER task_stats_update AFTER UPDATE ON task_partitioned
+            REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION task_stats_apply_delta();
+        CREATE TRIGGER task_stats_delete AFTER DELETE ON task_partitioned
+            REFERENCING OLD TABLE AS old_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION task_stats_apply_delta();
+        ALTER TABLE task_partitioned DISABLE TRIGGER USER;
+
+        CREATE OR REPLACE FUNCTION task_partition_swap() RETURNS void LANGUAGE plpgsql AS $swap$
+        DECLARE
+            index_name text;
+        BEGIN
+            LOCK TABLE task IN ACCESS EXCLUSIVE MODE;
+
+            DROP TRIGGER task_mirror_to_partitioned ON task;
+            DROP FUNCTION task_mirror_to_partitioned();
+
+            ALTER TABLE task RENAME TO task_unpartitioned;
+            ALTER TABLE task_unpartitioned DISABLE TRIGGER USER;
+            FOR index_name IN
+                SELECT indexname FROM pg_indexes
+                WHERE schemaname = current_schema() AND tablename = 'task_unpartitioned'
+                  AND indexname LIKE 'task\_%' AND indexname NOT LIKE 'task\_unpartitioned\_%'
+            LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, 'task_unpartitioned_' || substr(index_name, 6));
+            END LOOP;
+
+            ALTER TABLE task_partitioned RENAME TO task;
+            ALTER TABLE task ENABLE TRIGGER USER;
+            FOR index_name IN
+                SELECT indexname FROM pg_indexes
+                WHERE schemaname = current_schema() AND tablename = 'task' AND indexname LIKE 'task\_partitioned\_%'
+            LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, 'task_' || substr(index_name, 18));
+            END LOOP;
+        END $swap$;
+    END IF;
+END $$;
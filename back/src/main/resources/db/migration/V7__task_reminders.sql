@@ -0,0 +1,69 @@
+-- server side reminders: a reminder is claimed by setting reminder_sent_at, moving the notification makes it due again
+ALTER TABLE task ADD COLUMN reminder_sent_at TIMESTAMP;
+
+-- the dispatcher reads sliding windows: WHERE <unsent> AND notification_date_time in [from, to) ORDER BY notification_date_time, id.
+-- Sent reminders leave the index, so it only holds what is still to come plus whatever fell behind the lateness limit
+DROP INDEX task_pending_notification_idx;
+CREATE INDEX task_unsent_reminder_idx ON task (notification_date_time, id)
+    WHERE is_finished = false AND reminder_sent_at IS NULL AND notification_date_time IS NOT NULL;
+
+CREATE FUNCTION task_reset_reminder() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF NEW.notification_date_time IS DISTINCT FROM OLD.notification_date_time THEN
+        NEW.reminder_sent_at := NULL;
+    END IF;
+    RETURN NEW;
+END $$;
+
+CREATE TRIGGER task_reset_reminder BEFORE UPDATE OF notification_date_time ON task
+    FOR EACH ROW EXECUTE FUNCTION task_reset_reminder();
+
+-- one row per database, the dispatcher holding it is the only one loading windows from this database
+CREATE TABLE reminder_lease (
+    name       TEXT        NOT NULL,
+    owner      TEXT        NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (name)
+);
+
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        ALTER TABLE task_partitioned ADD COLUMN reminder_sent_at TIMESTAMP;
+
+        DROP INDEX task_partitioned_pending_notification_idx;
+        CREATE INDEX task_partitioned_unsent_reminder_idx ON task_partitioned (notification_date_time, id)
+            WHERE is_finished = false AND reminder_sent_at IS NULL AND notification_date_time IS NOT NULL;
+
+        -- the mirror already carries the reset done on task, the shadow's own trigger waits for the swap like V6's
+        CREATE TRIGGER task_reset_reminder BEFORE UPDATE OF notification_date_time ON task_partitioned
+            FOR EACH ROW EXECUTE FUNCTION task_reset_reminder();
+        ALTER TABLE task_partitioned DISABLE TRIGGER task_reset_reminder;
+
+        CREATE OR REPLACE FUNCTION task_mirror_to_partitioned() RETURNS trigger LANGUAGE plpgsql AS $mirror$
+        BEGIN
+            IF TG_OP = 'DELETE' THEN
+                DELETE FROM task_partitioned WHERE id = OLD.id AND creator_id = OLD.creator_id;
+                RETURN OLD;
+            END IF;
+
+            IF NEW.creator_id IS NOT NULL THEN
+                INSERT INTO task_partitioned
+                    (id, creator_id, name, dead_line, is_finished, is_expired, notification_date_time, change_version,
+                     reminder_sent_at)
+                VALUES
+                    (NEW.id, NEW.creator_id, NEW.name, NEW.dead_line, NEW.is_finished, NEW.is_expired,
+                     NEW.notification_date_time, NEW.change_version, NEW.reminder_sent_at)
+                ON CONFLICT (id, creator_id) DO UPDATE SET
+                    name = EXCLUDED.name,
+                    dead_line = EXCLUDED.dead_line,
+                    is_finished = EXCLUDED.is_finished,
+                    is_expired = EXCLUDED.is_expired,
+                    notification_date_time = EXCLUDED.notification_date_time,
+                    change_version = EXCLUDED.change_version,
+                    reminder_sent_at = EXCLUDED.reminder_sent_at;
+            END IF;
+            RETURN NEW;
+        END $mirror$;
+    END IF;
+END $$;
@@ -0,0 +1,85 @@
+-- change feed for downstream consumers, written by statement triggers in the transaction of every write to task.
+-- TaskOutboxRelay moves the rows to a Redis Stream and deletes them, so the table only holds what is in flight
+CREATE TABLE task_outbox (
+    id             BIGINT GENERATED ALWAYS AS IDENTITY,
+    user_id        UUID      NOT NULL,
+    task_id        UUID      NOT NULL,
+    type           TEXT      NOT NULL,
+    change_version BIGINT,
+    task           JSONB,
+    created_at     TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (id)
+);
+
+-- rows of one statement are numbered in change order, a user's statements already commit in that order
+-- through the task_sync_state lock, and writes to one task through its row lock.
+-- A move between shards is not a change, ShardRebalancer sets task.outbox_skip for its transactions
+CREATE FUNCTION task_outbox_capture() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF current_setting('task.outbox_skip', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO task_outbox (user_id, task_id, type, change_version, task)
+        SELECT creator_id, id, 'CREATED', change_version,
+               jsonb_build_object('id', id, 'creatorId', creator_id, 'name', name, 'deadLine', dead_line,
+                                  'notificationDateTime', notification_date_time, 'isFinished', is_finished,
+                                  'isExpired', is_expired, 'changeVersion', change_version)
+        FROM new_rows
+        WHERE creator_id IS NOT NULL
+        ORDER BY change_version, id;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO task_outbox (user_id, task_id, type, change_version, task)
+        SELECT creator_id, id, 'DELETED', NULL, NULL
+        FROM old_rows
+        WHERE creator_id IS NOT NULL
+        ORDER BY id;
+    ELSE
+        -- claiming a reminder is bookkeeping, not a change
+        INSERT INTO task_outbox (user_id, task_id, type, change_version, task)
+        SELECT n.creator_id, n.id,
+               CASE
+                   WHEN n.is_finished AND NOT o.is_finished THEN 'FINISHED'
+                   WHEN n.is_expired AND NOT o.is_expired AND n.change_version = o.change_version THEN 'EXPIRED'
+                   ELSE 'UPDATED'
+               END,
+               n.change_version,
+               jsonb_build_object('id', n.id, 'creatorId', n.creator_id, 'name', n.name, 'deadLine', n.dead_line,
+                                  'notificationDateTime', n.notification_date_time, 'isFinished', n.is_finished,
+                                  'isExpired', n.is_expired, 'changeVersion', n.change_version)
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id AND o.creator_id = n.creator_id
+        WHERE n.creator_id IS NOT NULL
+          AND (to_jsonb(n) - 'reminder_sent_at') IS DISTINCT FROM (to_jsonb(o) - 'reminder_sent_at')
+        ORDER BY n.change_version, n.id;
+    END IF;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER task_outbox_insert AFTER INSERT ON task
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task_outbox_capture();
+CREATE TRIGGER task_outbox_update AFTER UPDATE ON task
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task_outbox_capture();
+CREATE TRIGGER task_outbox_delete AFTER DELETE ON task
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task_outbox_capture();
+
+-- disabled on the shadow until the swap, like the task_stats triggers (V6)
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        CREATE TRIGGER task_outbox_insert AFTER INSERT ON task_partitioned
+            REFERENCING NEW TABLE AS new_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION task_outbox_capture();
+        CREATE TRIGGER task_outbox_update AFTER UPDATE ON task_partitioned
+            REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION task_outbox_capture();
+        CREATE TRIGGER task_outbox_delete AFTER DELETE ON task_partitioned
+            REFERENCING OLD TABLE AS old_rows
+            FOR EACH STATEMENT EXECUTE FUNCTION task_outbox_capture();
+        ALTER TABLE task_partitioned DISABLE TRIGGER USER;
+    END IF;
+END $$;
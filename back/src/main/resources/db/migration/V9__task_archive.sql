@@ -0,0 +1,24 @@
+-- finished tasks whose deadline is older than task.archive.min-age leave task for this table. Only what the archive
+-- endpoint shows is kept, an archived task is finished by definition and its sync history ends with a tombstone
+CREATE TABLE task_archive (
+    id                     UUID          NOT NULL,
+    creator_id             UUID          NOT NULL,
+    name                   VARCHAR(1000) NOT NULL,
+    dead_line              TIMESTAMP(6)  NOT NULL,
+    notification_date_time TIMESTAMP(6),
+    archived_at            TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- GET /api/task/archive pages newest deadline first by scanning this backwards
+CREATE INDEX task_archive_creator_dead_line_idx ON task_archive (creator_id, dead_line, id);
+
+-- the archiver looks for the oldest finished deadlines across all users
+CREATE INDEX task_finished_dead_line_idx ON task (dead_line) WHERE is_finished = true;
+
+DO $$
+BEGIN
+    IF to_regclass('task_partitioned') IS NOT NULL THEN
+        CREATE INDEX task_partitioned_finished_dead_line_idx ON task_partitioned (dead_line) WHERE is_finished = true;
+    END IF;
+END $$;
@@ -0,0 +1,142 @@
+package com.example.kuby;
+
+import com.example.kuby.todolist.recurrence.OccurrenceIterator;
+import com.example.kuby.todolist.recurrence.RecurrenceFrequency;
+import com.example.kuby.todolist.recurrence.RecurrenceRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OccurrenceIteratorTests {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 31, 8, 30);
+
+    @Test
+    public void next_weeklyRuleFiresOnAStartOutsideItsDaysOnce_test() {
+        // START is a Wednesday, it counts as the first of the 4 and does not come back two weeks later
+        RecurrenceRule rule = new RecurrenceRule(RecurrenceFrequency.WEEKLY, 2,
+                RecurrenceRule.byDayMask(List.of(DayOfWeek.MONDAY, DayOfWeek.FRIDAY)), 4, null);
+
+        assertEquals(List.of(
+                LocalDateTime.of(2024, 1, 31, 8, 30),
+                LocalDateTime.of(2024, 2, 2, 8, 30),
+                LocalDateTime.of(2024, 2, 12, 8, 30),
+                LocalDateTime.of(2024, 2, 16, 8, 30)), take(new OccurrenceIterator(START, rule), 10));
+    }
+
+    @Test
+    public void skipTo_passesAStartOutsideTheWeeklyDays_test() {
+        RecurrenceRule rule = new RecurrenceRule(RecurrenceFrequency.WEEKLY, 1,
+                RecurrenceRule.byDayMask(List.of(DayOfWeek.MONDAY)), null, null);
+        OccurrenceIterator iterator = new OccurrenceIterator(START, rule);
+        iterator.skipTo(OccurrenceIterator.toLocalSeconds(LocalDateTime.of(2024, 2, 7, 0, 0)));
+
+        assertEquals(List.of(
+                LocalDateTime.of(2024, 2, 12, 8, 30),
+                LocalDateTime.of(2024, 2, 19, 8, 30)), take(iterator, 2));
+    }
+
+    @Test
+    public void next_weeklyRuleWithoutDaysRepeatsOnTheStartDay_test() {
+        RecurrenceRule rule = new RecurrenceRule(RecurrenceFrequency.WEEKLY, 1, 0, 3, null);
+
+        assertEquals(List.of(START, START.plusWeeks(1), START.plusWeeks(2)), take(new OccurrenceIterator(START, rule), 10));
+    }
+
+    @Test
+    public void next_monthlyRuleSkipsMonthsWithoutTheDay_test() {
+        RecurrenceRule rule = new RecurrenceRule(RecurrenceFrequency.MONTHLY, 1, 0, null, LocalDateTime.of(2024, 8, 1, 0, 0));
+
+        assertEquals(List.of(
+                LocalDateTime.of(2024, 1, 31, 8, 30),
+                LocalDateTime.of(2024, 3, 31, 8, 30),
+                LocalDateTime.of(2024, 5, 31, 8, 30),
+                LocalDateTime.of(2024, 7, 31, 8, 30)), take(new OccurrenceIterator(START, rule), 10));
+    }
+
+    @Test
+    public void next_yearlyRuleOnLeapDay_test() {
+        LocalDateTime leapDay = LocalDateTime.of(2096, 2, 29, 12, 0);
+        RecurrenceRule rule = new RecurrenceRule(RecurrenceFrequency.YEARLY, 1, 0, 3, null);
+
+        assertEquals(List.of(leapDay, leapDay.withYear(2104), leapDay.withYear(2108)),
+                take(new OccurrenceIterator(leapDay, rule), 10));
+    }
+
+    // skipTo has to land where stepping lands, with and without a COUNT, for random rules and targets
+    @Test
+    public void skipTo_matchesReferenceExpansion_test() {
+        Random random = new Random(42);
+        for (int run = 0; run < 2_000; run++) {
+            LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0)
+                    .plusDays(random.nextInt(1_500))
+                    .plusMinutes(random.nextInt(24 * 60));
+            RecurrenceFrequency frequency = RecurrenceFrequency.values()[random.nextInt(4)];
+            RecurrenceRule rule = new RecurrenceRule(frequency, 1 + random.nextInt(4),
+                    frequency == RecurrenceFrequency.WEEKLY ? random.nextInt(128) : 0,
+                    random.nextBoolean() ? 1 + random.nextInt(60) : null,
+                    random.nextBoolean() ? start.plusDays(random.nextInt(2_000)) : null);
+            LocalDateTime target = start.plusDays(random.nextInt(1_500) - 10).plusMinutes(random.nextInt(24 * 60));
+
+            List<LocalDateTime> expected = reference(start, rule, 1_600).stream()
+                    .filter(time -> !time.isBefore(target))
+                    .limit(5)
+                    .toList();
+            OccurrenceIterator iterator = new OccurrenceIterator(start, rule);
+            iterator.skipTo(OccurrenceIterator.toLocalSeconds(target));
+
+            assertEquals(expected, take(iterator, 5), () -> rule + " from " + start + " skipped to " + target);
+        }
+    }
+
+    private static List<LocalDateTime> take(OccurrenceIterator iterator, int limit) {
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        long next;
+        while (occurrences.size() < limit && (next = iterator.next()) != OccurrenceIterator.NONE)
+            occurrences.add(OccurrenceIterator.toLocalDateTime(next));
+        return occurrences;
+    }
+
+    // the rule spelled out with java.time, period by period
+    private static List<LocalDateTime> reference(LocalDateTime start, RecurrenceRule rule, int periods) {
+        List<LocalDateTime> candidates = new ArrayList<>();
+        int byDay = rule.byDay() != 0 ? rule.byDay() : RecurrenceRule.byDayMask(List.of(start.getDayOfWeek()));
+        // a weekly start on another day is the first occurrence on its own
+        if (rule.frequency() == RecurrenceFrequency.WEEKLY && !RecurrenceRule.includes(byDay, start.getDayOfWeek()))
+            candidates.add(start);
+        for (int period = 0; period < periods; period++) {
+            long step = (long) period * rule.interval();
+            switch (rule.frequency()) {
+                case DAILY -> candidates.add(start.plusDays(step));
+                case WEEKLY -> {
+                    LocalDateTime monday = start.minusDays(start.getDayOfWeek().getValue() - 1).plusWeeks(step);
+                    for (DayOfWeek day : DayOfWeek.values()) {
+                        LocalDateTime time = monday.plusDays(day.getValue() - 1);
+                        if (RecurrenceRule.includes(byDay, day) && !time.isBefore(start))
+                            candidates.add(time);
+                    }
+                }
+                case MONTHLY -> {
+                    YearMonth month = YearMonth.from(start).plusMonths(step);
+                    if (month.isValidDay(start.getDayOfMonth()))
+                        candidates.add(month.atDay(start.getDayOfMonth()).atTime(start.toLocalTime()));
+                }
+                case YEARLY -> {
+                    YearMonth month = YearMonth.from(start).plusYears(step);
+                    if (month.isValidDay(start.getDayOfMonth()))
+                        candidates.add(month.atDay(start.getDayOfMonth()).atTime(start.toLocalTime()));
+                }
+            }
+        }
+        return candidates.stream()
+                .filter(time -> rule.until() == null || !time.isAfter(rule.until()))
+                .limit(rule.count() != null ? rule.count() : Long.MAX_VALUE)
+                .toList();
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.kuby;
+
+import com.example.kuby.datasource.ConsistencyTokenContext;
+import com.example.kuby.foruser.UserEntity;
+import com.example.kuby.security.models.request.LoginRequest;
+import com.example.kuby.todolist.CreateTaskRequest;
+import com.example.kuby.todolist.recurrence.CreateTaskSeriesRequest;
+import com.example.kuby.todolist.recurrence.RecurrenceFrequency;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.redis.testcontainers.RedisContainer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a streaming replication pair, the bitnami image sets up the replication user and the standby for us
+@Testcontainers
+@Import(DBUtils.class)
+@SpringBootTest(classes = {KubyApplication.class})
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReplicaRoutingTests {
+    private static final DockerImageName POSTGRES = DockerImageName.parse("bitnami/postgresql:15");
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    static GenericContainer<?> primary = new GenericContainer<>(POSTGRES)
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withEnv("POSTGRESQL_REPLICATION_MODE", "master")
+            .withEnv("POSTGRESQL_REPLICATION_USER", "repl")
+            .withEnv("POSTGRESQL_REPLICATION_PASSWORD", "repl")
+            .withEnv("POSTGRESQL_USERNAME", "test")
+            .withEnv("POSTGRESQL_PASSWORD", "test")
+            .withEnv("POSTGRESQL_DATABASE", "test")
+            .withEnv("POSTGRESQL_POSTGRES_PASSWORD", "postgres")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 1));
+
+    @Container
+    static GenericContainer<?> replica = new GenericContainer<>(POSTGRES)
+            .withNetwork(network)
+            .dependsOn(primary)
+            .withEnv("POSTGRESQL_REPLICATION_MODE", "slave")
+            .withEnv("POSTGRESQL_MASTER_HOST", "primary")
+            .withEnv("POSTGRESQL_MASTER_PORT_NUMBER", "5432")
+            .withEnv("POSTGRESQL_REPLICATION_USER", "repl")
+            .withEnv("POSTGRESQL_REPLICATION_PASSWORD", "repl")
+            .withEnv("POSTGRESQL_PASSWORD", "test")
+            .withEnv("POSTGRESQL_POSTGRES_PASSWORD", "postgres")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*started streaming WAL.*", 1));
+
+    @Container
+    @ServiceConnection
+    static RedisContainer redis = new RedisContainer(DockerImageName.parse("redis:6.2.6"));
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> jdbcUrl(primary));
+        registry.add("spring.datasource.username", () -> "test");
+        registry.add("spring.datasource.password", () -> "test");
+        registry.add("replica.enabled", () -> "true");
+        registry.add("replica.url", () -> jdbcUrl(replica));
+        registry.add("replica.username", () -> "test");
+        registry.add("replica.password", () -> "test");
+        registry.add("replica.lag-wait-ms", () -> "200");
+    }
+
+    private static String jdbcUrl(GenericContainer<?> container) {
+        return "jdbc:postgresql://" + container.getHost() + ":" + container.getMappedPort(5432) + "/test";
+    }
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private DBUtils dbUtils;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static String authHeader;
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    @Order(1)
+    public void readOnlyTransaction_usesReplica_test() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        assertEquals(true, readOnly.execute(status -> inRecovery()));
+        assertEquals(false, new TransactionTemplate(transactionManager).execute(status -> inRecovery()));
+        assertEquals(false, inRecovery());
+    }
+
+    @Test
+    @Order(2)
+    public void write_returnsToken_readWithToken_seesWrite_test() throws Exception {
+        UserEntity user = dbUtils.createUser();
+        mvc.perform(post("/api/user/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(user.getEmail(), "18-Bad-Boy-18"))))
+                .andExpect(status().isOk())
+                .andExpect(result -> authHeader = result.getResponse().getHeader("Authorization"));
+
+        String token = createTask("replicated");
+
+        mvc.perform(get("/api/task")
+                        .header("Authorization", authHeader)
+                        .header(ConsistencyTokenContext.HEADER, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @Order(3)
+    public void readWithToken_replicaLagging_fallsBackToPrimary_test() throws Exception {
+        JdbcTemplate replicaAdmin = new JdbcTemplate(new DriverManagerDataSource(
+                jdbcUrl(replica).replace("/test", "/postgres"), "postgres", "postgres"));
+        replicaAdmin.execute("SELECT pg_wal_replay_pause()");
+        try {
+            double fallbacksBefore = fallbacks();
+            String token = createTask("not replayed yet");
+
+            mvc.perform(get("/api/task")
+                            .header("Authorization", authHeader)
+                            .header(ConsistencyTokenContext.HEADER, token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2));
+            assertEquals(fallbacksBefore + 1, fallbacks());
+        } finally {
+            replicaAdmin.execute("SELECT pg_wal_replay_resume()");
+        }
+    }
+
+    @Test
+    @Order(4)
+    public void seriesWrite_returnsToken_seriesReadFallsBackToPrimary_test() throws Exception {
+        JdbcTemplate replicaAdmin = new JdbcTemplate(new DriverManagerDataSource(
+                jdbcUrl(replica).replace("/test", "/postgres"), "postgres", "postgres"));
+        replicaAdmin.execute("SELECT pg_wal_replay_pause()");
+        try {
+            CreateTaskSeriesRequest request = new CreateTaskSeriesRequest();
+            request.setName("not replayed yet");
+            request.setDeadLine(LocalDateTime.now().plusDays(1));
+            request.setFrequency(RecurrenceFrequency.DAILY);
+
+            String token = mvc.perform(post("/api/task/series")
+                            .characterEncoding(StandardCharsets.UTF_8)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Authorization", authHeader)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().exists(ConsistencyTokenContext.HEADER))
+                    .andReturn().getResponse().getHeader(ConsistencyTokenContext.HEADER);
+
+            mvc.perform(get("/api/task/series")
+                            .header("Authorization", authHeader)
+                            .header(ConsistencyTokenContext.HEADER, token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1));
+        } finally {
+            replicaAdmin.execute("SELECT pg_wal_replay_resume()");
+        }
+    }
+
+    private String createTask(String name) throws Exception {
+        return mvc.perform(post("/api/task")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(
+                                new CreateTaskRequest(name, LocalDateTime.now().plusDays(1), false, null))))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists(ConsistencyTokenContext.HEADER))
+                .andReturn().getResponse().getHeader(ConsistencyTokenContext.HEADER);
+    }
+
+    private Boolean inRecovery() {
+        return jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class);
+    }
+
+    private double fallbacks() {
+        return meterRegistry.get("datasource.replica.fallbacks").tag("reason", "lag").counter().count();
+    }
+}
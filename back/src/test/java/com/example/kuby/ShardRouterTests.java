@@ -0,0 +1,44 @@
+package com.example.kuby;
+
+import com.example.kuby.datasource.ShardRouter;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardRouterTests {
+    private static final int USERS = 30_000;
+
+    @Test
+    public void shardFor_spreadsUsersEvenly_test() {
+        ShardRouter router = new ShardRouter(List.of("shard0", "shard1", "shard2"), 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < USERS; i++)
+            counts.merge(router.shardFor(UUID.randomUUID()), 1, Integer::sum);
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - USERS / 3) < USERS / 3 * 0.2, counts.toString()));
+    }
+
+    @Test
+    public void shardFor_addingShardOnlyMovesUsersToIt_test() {
+        ShardRouter before = new ShardRouter(List.of("shard0", "shard1", "shard2"), 160);
+        ShardRouter after = new ShardRouter(List.of("shard0", "shard1", "shard2", "shard3"), 160);
+
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            String target = after.shardFor(userId);
+            if (!before.shardFor(userId).equals(target)) {
+                assertEquals("shard3", target);
+                moved++;
+            }
+        }
+        assertTrue(Math.abs(moved - USERS / 4) < USERS / 4 * 0.2, "moved " + moved);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.kuby;
+
+import com.example.kuby.datasource.ShardRebalancer;
+import com.example.kuby.datasource.ShardedDataSources;
+import com.example.kuby.security.models.request.LoginRequest;
+import com.example.kuby.security.models.request.SignUpRequest;
+import com.example.kuby.todolist.CreateTaskRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// like TestContainersInitializer, but with one Postgres per shard
+@Testcontainers
+@Import(JwtPayloadParser.class)
+@SpringBootTest(classes = {KubyApplication.class})
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ShardingTests {
+    private static final String PASSWORD = "fsfsDSF@545AADFDGEWE3AR";
+    private static final int USERS = 8;
+
+    @Container
+    static PostgreSQLContainer<?> shard0 = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+    @Container
+    static PostgreSQLContainer<?> shard1 = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+    @Container
+    @ServiceConnection
+    static RedisContainer redis = new RedisContainer(DockerImageName.parse("redis:6.2.6"));
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        registry.add("sharding.enabled", () -> "true");
+        registry.add("sharding.rebalance", () -> "true");
+        Map.of("shard0", shard0, "shard1", shard1).forEach((name, container) -> {
+            registry.add("sharding.shards." + name + ".url", container::getJdbcUrl);
+            registry.add("sharding.shards." + name + ".username", container::getUsername);
+            registry.add("sharding.shards." + name + ".password", container::getPassword);
+        });
+    }
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private JwtPayloadParser jwtPayloadParser;
+    @Autowired
+    private ShardedDataSources shards;
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    private static final Map<String, String> authHeaders = new LinkedHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    @Order(1)
+    public void register_login_createTask_routesToUserShard_test() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            String email = "shard" + i + "@email.com";
+            mvc.perform(post("/api/user/register")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new SignUpRequest(email, PASSWORD))))
+                    .andExpect(status().isCreated());
+
+            mvc.perform(post("/api/user/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new LoginRequest(email, PASSWORD))))
+                    .andExpect(status().isOk())
+                    .andExpect(result -> authHeaders.put(email, result.getResponse().getHeader("Authorization")));
+
+            mvc.perform(post("/api/task")
+                            .characterEncoding(StandardCharsets.UTF_8)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Authorization", authHeaders.get(email))
+                            .content(objectMapper.writeValueAsString(new CreateTaskRequest(
+                                    "task of " + email, LocalDateTime.now().plusDays(1), false, null))))
+                    .andExpect(status().isCreated());
+        }
+
+        Set<String> usedShards = new HashSet<>();
+        for (String authHeader : authHeaders.values()) {
+            UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+            String shard = shards.router().shardFor(userId);
+            usedShards.add(shard);
+            assertUserPlacement(userId, shard);
+        }
+        // 8 users over 2 shards all landing on one would mean the ring is not used
+        assertEquals(2, usedShards.size());
+    }
+
+    @Test
+    @Order(2)
+    public void rebalance_movesMisplacedUserBack_test() throws Exception {
+        Map.Entry<String, String> user = authHeaders.entrySet().iterator().next();
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(user.getValue());
+        String home = shards.router().shardFor(userId);
+        String other = home.equals("shard0") ? "shard1" : "shard0";
+
+        shardRebalancer.moveUser(userId, home, other);
+        assertUserPlacement(userId, other);
+
+        shardRebalancer.rebalance();
+        assertUserPlacement(userId, home);
+
+        mvc.perform(post("/api/user/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(user.getKey(), PASSWORD))))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/task")
+                        .header("Authorization", user.getValue()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @Order(3)
+    public void register_concurrentSignupsWithOneEmail_createOneUser_test() throws Exception {
+        String email = "race@email.com";
+        String body = objectMapper.writeValueAsString(new SignUpRequest(email, PASSWORD));
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> signups = new ArrayList<>();
+        for (int i = 0; i < USERS; i++)
+            signups.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    return mvc.perform(post("/api/user/register")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body))
+                            .andReturn().getResponse().getStatus();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }));
+        start.countDown();
+
+        List<Integer> statuses = new ArrayList<>();
+        for (CompletableFuture<Integer> signup : signups)
+            statuses.add(signup.get(1, TimeUnit.MINUTES));
+        assertEquals(1, statuses.stream().filter(status -> status == 201).count(), statuses::toString);
+
+        int users = 0;
+        for (String name : shards.names())
+            users += new JdbcTemplate(shards.dataSource(name))
+                    .queryForObject("SELECT count(*) FROM users WHERE email = ?", Integer.class, email);
+        assertEquals(1, users);
+
+        // the directory on the default shard points logins straight at the user's shard
+        UUID userId = new JdbcTemplate(shards.dataSource(shards.router().defaultShard()))
+                .queryForObject("SELECT user_id FROM user_email_directory WHERE provider = 'LOCAL' AND email = ?", UUID.class, email);
+        mvc.perform(post("/api/user/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(email, PASSWORD))))
+                .andExpect(status().isOk());
+        for (String name : shards.names())
+            assertEquals(name.equals(shards.router().shardFor(userId)) ? 1 : 0, new JdbcTemplate(shards.dataSource(name))
+                    .queryForObject("SELECT count(*) FROM tokens WHERE user_id = ?", Integer.class, userId), name);
+    }
+
+    private void assertUserPlacement(UUID userId, String shard) {
+        for (String name : shards.names()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.dataSource(name));
+            int expected = name.equals(shard) ? 1 : 0;
+            assertEquals(expected, jdbcTemplate.queryForObject("SELECT count(*) FROM users WHERE id = ?", Integer.class, userId), name);
+            assertEquals(expected, jdbcTemplate.queryForObject("SELECT count(*) FROM tokens WHERE user_id = ?", Integer.class, userId), name);
+            assertEquals(expected, jdbcTemplate.queryForObject("SELECT count(*) FROM task WHERE creator_id = ?", Integer.class, userId), name);
+        }
+    }
+}
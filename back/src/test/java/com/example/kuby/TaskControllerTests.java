@@ -5,8 +5,20 @@ import com.example.kuby.security.models.request.LoginRequest;
 import com.example.kuby.todolist.CreateTaskRequest;
 import com.example.kuby.todolist.Task;
 import com.example.kuby.todolist.TaskRepo;
+import com.example.kuby.todolist.archive.TaskArchiver;
+import com.example.kuby.todolist.batch.BatchOperation;
+import com.example.kuby.todolist.batch.BatchOperationType;
+import com.example.kuby.todolist.batch.TaskBatchRequest;
+import com.example.kuby.todolist.bulk.FinishTasksRequest;
+import com.example.kuby.todolist.outbox.TaskOutboxRelay;
+import com.example.kuby.todolist.recurrence.CreateTaskSeriesRequest;
+import com.example.kuby.todolist.recurrence.RecurrenceFrequency;
+import com.example.kuby.todolist.reminder.ReminderDispatcher;
+import com.example.kuby.todolist.stats.TaskStatsReconciler;
+import com.example.kuby.utils.UuidV7;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -15,14 +27,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Import({DBUtils.class, JwtPayloadParser.class})
@@ -41,6 +65,20 @@ public class TaskControllerTests extends TestContainersInitializer {
     private static UUID taskId;
     @Autowired
     private DBUtils dbUtils;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TaskStatsReconciler taskStatsReconciler;
+    @Autowired
+    private ReminderDispatcher reminderDispatcher;
+    @Autowired
+    private TaskOutboxRelay taskOutboxRelay;
+    @Autowired
+    private TaskArchiver taskArchiver;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
     @Test
@@ -135,4 +173,685 @@ public class TaskControllerTests extends TestContainersInitializer {
                 .andExpect(status().isOk())
                 .andExpect(result -> JsonPrettyPrinter.print(result.getResponse().getContentAsString()));
     }
+
+    @Test
+    @Order(6)
+    public void getPage_success_test() throws Exception {
+        String firstPage = mvc.perform(get("/api/task")
+                        .param("limit", "6")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(6))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mvc.perform(get("/api/task")
+                        .param("limit", "6")
+                        .param("cursor", nextCursor)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(4))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andExpect(result -> JsonPrettyPrinter.print(result.getResponse().getContentAsString()));
+    }
+
+    @Test
+    @Order(7)
+    public void getChanges_success_test() throws Exception {
+        String initialSync = mvc.perform(get("/api/task/changes")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed.length()").value(10))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(initialSync).get("cursor").asText();
+        UUID deletedTaskId = UUID.fromString(objectMapper.readTree(initialSync).get("changed").get(0).get("id").asText());
+
+        mvc.perform(delete("/api/task/" + deletedTaskId)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/task/changes")
+                        .param("since", cursor)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed.length()").value(0))
+                .andExpect(jsonPath("$.deleted[0]").value(deletedTaskId.toString()))
+                .andExpect(result -> JsonPrettyPrinter.print(result.getResponse().getContentAsString()));
+    }
+
+    @Test
+    @Order(8)
+    public void applyBatch_success_test() throws Exception {
+        LocalDateTime deadLine = LocalDateTime.now().plusDays(2);
+        TaskBatchRequest request = new TaskBatchRequest(List.of(
+                BatchOperation.builder().type(BatchOperationType.CREATE).ref("offline-1").name("Offline task").deadLine(deadLine)
+                        .isFinished(false).build(),
+                BatchOperation.builder().type(BatchOperationType.UPDATE).ref("offline-1").name("Renamed offline task").build(),
+                BatchOperation.builder().type(BatchOperationType.FINISH).ref("offline-1").build(),
+                BatchOperation.builder().type(BatchOperationType.UPDATE).taskId(UUID.randomUUID()).name("Missing").build(),
+                BatchOperation.builder().type(BatchOperationType.CREATE).name("Past task").deadLine(LocalDateTime.now().minusDays(1))
+                        .isFinished(false).build(),
+                BatchOperation.builder().type(BatchOperationType.CREATE).name("No finished flag").deadLine(deadLine).build()
+        ));
+
+        mvc.perform(post("/api/task/batch")
+                        .header("Authorization", authHeader)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[1].task.name").value("Renamed offline task"))
+                .andExpect(jsonPath("$.results[2].task.isFinished").value(true))
+                .andExpect(jsonPath("$.results[3].status").value(404))
+                .andExpect(jsonPath("$.results[4].status").value(400))
+                .andExpect(jsonPath("$.results[4].errors.deadline").exists())
+                .andExpect(jsonPath("$.results[5].status").value(400))
+                .andExpect(jsonPath("$.results[5].errors.isFinished").value("must not be null"))
+                .andExpect(result -> JsonPrettyPrinter.print(result.getResponse().getContentAsString()));
+
+        Task created = taskRepo.findAll().stream()
+                .filter(task -> task.getName().equals("Renamed offline task"))
+                .findFirst().orElseThrow();
+        assertTrue(created.isFinished());
+    }
+
+    @Test
+    @Order(9)
+    public void getPage_invalidatedOnCreate_test() throws Exception {
+        int cachedCount = objectMapper.readTree(mvc.perform(get("/api/task")
+                        .param("limit", "100")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("tasks").size();
+
+        CreateTaskRequest request = new CreateTaskRequest("cached name", LocalDateTime.now().plusDays(1), false, null);
+        mvc.perform(post("/api/task")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/api/task")
+                        .param("limit", "100")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(cachedCount + 1));
+    }
+
+    @Test
+    @Order(10)
+    public void getAll_notModified_test() throws Exception {
+        String etag = mvc.perform(get("/api/task")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/task")
+                        .header("Authorization", authHeader)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mvc.perform(patch("/api/task/" + taskRepo.findAllByCreatorId(jwtPayloadParser.parseUserIdFromAuthHeader(authHeader)).get(0).getId())
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/task")
+                        .header("Authorization", authHeader)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @Order(11)
+    public void search_success_test() throws Exception {
+        for (String name : List.of("Buy milk", "Buy bread"))
+            mvc.perform(post("/api/task")
+                            .characterEncoding(StandardCharsets.UTF_8)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Authorization", authHeader)
+                            .content(objectMapper.writeValueAsString(
+                                    new CreateTaskRequest(name, LocalDateTime.now().plusDays(1), false, null))))
+                    .andExpect(status().isCreated());
+
+        String firstPage = mvc.perform(get("/api/task/search")
+                        .param("q", "bu")
+                        .param("limit", "1")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+
+        mvc.perform(get("/api/task/search")
+                        .param("q", "bu")
+                        .param("limit", "1")
+                        .param("cursor", objectMapper.readTree(firstPage).get("nextCursor").asText())
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.tasks[0].name").value(not(objectMapper.readTree(firstPage).get("tasks").get(0).get("name").asText())))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        // a typo is still found through the trigram index
+        mvc.perform(get("/api/task/search")
+                        .param("q", "milkk")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].name").value("Buy milk"));
+
+        mvc.perform(get("/api/task/search")
+                        .param("q", "&!")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(12)
+    public void query_filtersAndRejectsUnindexedShapes_test() throws Exception {
+        mvc.perform(get("/api/task")
+                        .param("limit", "100")
+                        .param("status", "FINISHED")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(not(0)))
+                .andExpect(jsonPath("$.tasks[?(@.isFinished == false)]").isEmpty());
+
+        String firstPage = mvc.perform(get("/api/task")
+                        .param("limit", "2")
+                        .param("sort", "CREATED_DESC")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+
+        // ids are UUIDv7, newest first means descending ids across pages
+        UUID lastOfFirstPage = UUID.fromString(objectMapper.readTree(firstPage).get("tasks").get(1).get("id").asText());
+        String secondPage = mvc.perform(get("/api/task")
+                        .param("limit", "2")
+                        .param("sort", "CREATED_DESC")
+                        .param("cursor", objectMapper.readTree(firstPage).get("nextCursor").asText())
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        UUID firstOfSecondPage = UUID.fromString(objectMapper.readTree(secondPage).get("tasks").get(0).get("id").asText());
+        assertTrue(UuidV7.timestampMillis(firstOfSecondPage) <= UuidV7.timestampMillis(lastOfFirstPage));
+
+        // a cursor only continues the order it was issued for
+        mvc.perform(get("/api/task")
+                        .param("limit", "2")
+                        .param("sort", "DEAD_LINE_DESC")
+                        .param("cursor", objectMapper.readTree(firstPage).get("nextCursor").asText())
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.cursor").exists());
+
+        mvc.perform(get("/api/task")
+                        .param("limit", "10")
+                        .param("status", "UNFINISHED")
+                        .param("hasNotification", "true")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(get("/api/task")
+                        .param("limit", "10")
+                        .param("sort", "CREATED_DESC")
+                        .param("deadLineFrom", "2020-01-01 00:00:00")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(13)
+    public void stats_matchTasksAndReconcileDrift_test() throws Exception {
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+        List<Task> tasks = taskRepo.findAllByCreatorId(userId);
+        long finished = tasks.stream().filter(Task::isFinished).count();
+        long overdue = tasks.stream().filter(task -> task.isExpired() && !task.isFinished()).count();
+
+        mvc.perform(get("/api/task/stats")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(tasks.size()))
+                .andExpect(jsonPath("$.finished").value(finished))
+                .andExpect(jsonPath("$.overdue").value(overdue));
+
+        jdbcTemplate.update("UPDATE task_stats SET total = total + 7, finished = 0 WHERE user_id = ?", userId);
+        taskStatsReconciler.reconcileShard();
+
+        mvc.perform(get("/api/task/stats")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(tasks.size()))
+                .andExpect(jsonPath("$.finished").value(finished));
+
+        // a lost counter row is created again
+        jdbcTemplate.update("DELETE FROM task_stats WHERE user_id = ?", userId);
+        taskStatsReconciler.reconcileShard();
+
+        mvc.perform(get("/api/task/stats")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(tasks.size()))
+                .andExpect(jsonPath("$.overdue").value(overdue));
+    }
+
+    @Test
+    @Order(14)
+    public void bulk_finishDeleteFinishedAndPostpone_test() throws Exception {
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+        List<UUID> unfinished = taskRepo.findAllByCreatorId(userId).stream()
+                .filter(task -> !task.isFinished())
+                .map(Task::getId)
+                .limit(2)
+                .toList();
+
+        String finishBody = objectMapper.writeValueAsString(new FinishTasksRequest(unfinished));
+        mvc.perform(post("/api/task/bulk/finish")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(finishBody)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(unfinished.size()));
+        mvc.perform(post("/api/task/bulk/finish")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(finishBody)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(0));
+
+        long finished = taskRepo.findAllByCreatorId(userId).stream().filter(Task::isFinished).count();
+        mvc.perform(delete("/api/task/bulk/finished")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(finished));
+        assertTrue(taskRepo.findAllByCreatorId(userId).stream().noneMatch(Task::isFinished));
+
+        mvc.perform(post("/api/task/bulk/postpone-overdue")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shift\":\"PT0S\"}")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/task/bulk/postpone-overdue")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shift\":\"P30D\"}")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/task")
+                        .param("status", "EXPIRED")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks").isEmpty());
+    }
+
+    @Test
+    @Order(15)
+    public void reminder_dispatchedOnceWhenDue_test() throws Exception {
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+        CreateTaskRequest request = new CreateTaskRequest(
+                "remind me",
+                LocalDateTime.now().plusMinutes(10),
+                false,
+                LocalDateTime.now().plusSeconds(3));
+        mvc.perform(post("/api/task")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", authHeader))
+                .andExpect(status().isCreated());
+
+        reminderDispatcher.loadShard();
+        Thread.sleep(5000);
+
+        List<LocalDateTime> sentAt = jdbcTemplate.queryForList(
+                "SELECT reminder_sent_at FROM task WHERE creator_id = ? AND name = 'remind me'", LocalDateTime.class, userId);
+        assertEquals(1, sentAt.size());
+        assertNotNull(sentAt.get(0));
+    }
+
+    @Test
+    @Order(16)
+    public void poll_answersWithChangeCommittedWhileWaiting_test() throws Exception {
+        String changes = mvc.perform(get("/api/task/changes")
+                        .param("limit", "1000")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(changes).get("cursor").asText();
+
+        MvcResult poll = mvc.perform(get("/api/task/stream/poll")
+                        .param("since", cursor)
+                        .param("timeout", "10")
+                        .header("Authorization", authHeader))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        CreateTaskRequest request = new CreateTaskRequest(
+                "pushed",
+                LocalDateTime.now().plusMinutes(10),
+                false,
+                null);
+        mvc.perform(post("/api/task")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", authHeader))
+                .andExpect(status().isCreated());
+
+        mvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed.length()").value(1))
+                .andExpect(jsonPath("$.changed[0].name").value("pushed"));
+    }
+
+    @Test
+    @Order(17)
+    public void outbox_relaysChangesToStream_test() throws Exception {
+        CreateTaskRequest request = new CreateTaskRequest(
+                "relayed",
+                LocalDateTime.now().plusMinutes(10),
+                false,
+                null);
+        String created = mvc.perform(post("/api/task")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", authHeader))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String taskId = objectMapper.readTree(created).get("id").asText();
+        mvc.perform(patch("/api/task/" + taskId)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk());
+
+        taskOutboxRelay.relayShard();
+
+        List<String> types = redisTemplate.opsForStream().range("task:changes", Range.unbounded()).stream()
+                .filter(record -> taskId.equals(record.getValue().get("taskId")))
+                .map(record -> record.getValue().get("type").toString())
+                .toList();
+        assertEquals(List.of("CREATED", "FINISHED"), types);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM task_outbox WHERE task_id = ?::uuid", Integer.class, taskId));
+    }
+
+    @Test
+    @Order(18)
+    public void export_streamsEveryTaskAsCsvAndNdjson_test() throws Exception {
+        int tasks = taskRepo.findAllByCreatorId(jwtPayloadParser.parseUserIdFromAuthHeader(authHeader)).size();
+
+        String csvBody = mvc.perform(get("/api/task/export")
+                        .param("format", "csv")
+                        .header("Authorization", authHeader))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString();
+        String[] csvLines = csvBody.split("\r\n");
+        assertEquals("id,creatorId,name,deadLine,notificationDateTime,isFinished,isExpired,changeVersion,parentId", csvLines[0]);
+        assertEquals(tasks + 1, csvLines.length);
+
+        String[] ndjsonLines = mvc.perform(get("/api/task/export")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(tasks, ndjsonLines.length);
+        assertTrue(objectMapper.readTree(ndjsonLines[0]).has("changeVersion"));
+
+        mvc.perform(get("/api/task/export")
+                        .param("format", "xml")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(19)
+    public void import_insertsValidTodosAndReportsTheRest_test() throws Exception {
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+        int tasks = taskRepo.findAllByCreatorId(userId).size();
+        String calendar = String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "VERSION:2.0",
+                "BEGIN:VTODO",
+                "UID:done@example.com",
+                "SUMMARY:Imported\\, and",
+                "  folded",
+                "DUE:20200101T100000Z",
+                "STATUS:COMPLETED",
+                "END:VTODO",
+                "BEGIN:VTODO",
+                "UID:reminded@example.com",
+                "SUMMARY:Imported with alarm",
+                "DUE:20990101T120000",
+                "BEGIN:VALARM",
+                "ACTION:DISPLAY",
+                "TRIGGER;RELATED=END:-PT15M",
+                "END:VALARM",
+                "END:VTODO",
+                "BEGIN:VTODO",
+                "UID:no-due@example.com",
+                "SUMMARY:Imported without deadline",
+                "END:VTODO",
+                "END:VCALENDAR",
+                "");
+
+        mvc.perform(post("/api/task/import")
+                        .contentType("text/calendar")
+                        .content(calendar)
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[0].uid").value("no-due@example.com"))
+                .andExpect(jsonPath("$.errors[0].errors.deadline").exists());
+
+        List<Task> imported = taskRepo.findAllByCreatorId(userId);
+        assertEquals(tasks + 2, imported.size());
+        Task finished = imported.stream().filter(task -> task.getName().equals("Imported, and folded")).findFirst().orElseThrow();
+        assertTrue(finished.isFinished());
+        assertTrue(finished.isExpired());
+        Task reminded = imported.stream().filter(task -> task.getName().equals("Imported with alarm")).findFirst().orElseThrow();
+        assertEquals(LocalDateTime.of(2099, 1, 1, 11, 45), reminded.getNotificationDateTime());
+    }
+
+    @Test
+    @Order(20)
+    public void archive_movesOldFinishedTasksOutOfTheList_test() throws Exception {
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+        // finished with a 2020 deadline by the import above
+        Task old = taskRepo.findAllByCreatorId(userId).stream()
+                .filter(task -> task.getName().equals("Imported, and folded"))
+                .findFirst().orElseThrow();
+
+        taskArchiver.archiveShard();
+
+        assertTrue(taskRepo.findById(old.getId()).isEmpty());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM task_tombstone WHERE task_id = ?",
+                Integer.class, old.getId()));
+        mvc.perform(get("/api/task/archive")
+                        .param("limit", "1")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].id").value(old.getId().toString()))
+                .andExpect(jsonPath("$.tasks[0].archivedAt").exists());
+    }
+
+    @Test
+    @Order(21)
+    public void series_finishedOccurrenceLeavesTheWindow_test() throws Exception {
+        CreateTaskSeriesRequest request = new CreateTaskSeriesRequest();
+        request.setName("Water the plants");
+        request.setDeadLine(LocalDateTime.of(2030, 1, 1, 9, 0));
+        request.setFrequency(RecurrenceFrequency.DAILY);
+        request.setCount(5);
+
+        String created = mvc.perform(post("/api/task/series")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String seriesId = objectMapper.readTree(created).get("id").asText();
+
+        mvc.perform(get("/api/task/series/occurrences")
+                        .param("from", "2030-01-01 00:00:00")
+                        .param("to", "2030-01-10 00:00:00")
+                        .param("q", "plant")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5));
+
+        mvc.perform(patch("/api/task/series/" + seriesId + "/occurrence")
+                        .param("at", "2030-01-02 09:00:00")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isFinished").value(true));
+        mvc.perform(patch("/api/task/series/" + seriesId + "/occurrence")
+                        .param("at", "2030-01-02 09:00:00")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isConflict());
+
+        mvc.perform(get("/api/task/series/occurrences")
+                        .param("from", "2030-01-01 00:00:00")
+                        .param("to", "2030-01-10 00:00:00")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4));
+    }
+
+    @Test
+    @Order(22)
+    public void tree_nestsSubtasksAndFinishesAndDeletesWholeSubtrees_test() throws Exception {
+        UUID userId = jwtPayloadParser.parseUserIdFromAuthHeader(authHeader);
+        UUID parentId = createTask(new CreateTaskRequest("Pack for the trip", LocalDateTime.now().plusDays(3), false, null, null));
+        UUID childId = createTask(new CreateTaskRequest("Clothes", LocalDateTime.now().plusDays(2), false, null, parentId));
+        UUID grandchildId = createTask(new CreateTaskRequest("Socks", LocalDateTime.now().plusDays(1), false, null, childId));
+
+        mvc.perform(post("/api/task")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(
+                                new CreateTaskRequest("Orphan", LocalDateTime.now().plusDays(1), false, null, UUID.randomUUID()))))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(get("/api/task/" + parentId + "/tree")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(parentId.toString()))
+                .andExpect(jsonPath("$.subtasks[0].id").value(childId.toString()))
+                .andExpect(jsonPath("$.subtasks[0].subtasks[0].id").value(grandchildId.toString()))
+                .andExpect(jsonPath("$.subtasks[0].subtasks[0].parentId").value(childId.toString()));
+        mvc.perform(get("/api/task/tree")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == '" + parentId + "')].subtasks[0].subtasks[0].name").value("Socks"))
+                .andExpect(jsonPath("$[?(@.id == '" + childId + "')]").isEmpty());
+
+        // offline clients queue subtasks of tasks they created in the same batch
+        TaskBatchRequest batch = new TaskBatchRequest(List.of(
+                BatchOperation.builder().type(BatchOperationType.CREATE).ref("pocket").name("Passport pocket")
+                        .deadLine(LocalDateTime.now().plusDays(1)).isFinished(false).parentId(childId).build(),
+                BatchOperation.builder().type(BatchOperationType.CREATE).name("Passport")
+                        .deadLine(LocalDateTime.now().plusDays(1)).isFinished(false).parentRef("pocket").build(),
+                BatchOperation.builder().type(BatchOperationType.UPDATE).taskId(grandchildId).name("Wool socks").build(),
+                BatchOperation.builder().type(BatchOperationType.CREATE).name("Nowhere")
+                        .deadLine(LocalDateTime.now().plusDays(1)).isFinished(false).parentId(UUID.randomUUID()).build()
+        ));
+        mvc.perform(post("/api/task/batch")
+                        .header("Authorization", authHeader)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].task.parentId").value(childId.toString()))
+                .andExpect(jsonPath("$.results[1].status").value(201))
+                .andExpect(jsonPath("$.results[2].task.parentId").value(childId.toString()))
+                .andExpect(jsonPath("$.results[3].status").value(404));
+        mvc.perform(get("/api/task/" + childId + "/tree")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subtasks.length()").value(2))
+                .andExpect(jsonPath("$.subtasks[?(@.name == 'Passport pocket')].subtasks[0].name").value("Passport"));
+
+        mvc.perform(patch("/api/task/" + parentId + "/subtree")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(5));
+        assertTrue(taskRepo.findById(grandchildId).orElseThrow().isFinished());
+
+        mvc.perform(delete("/api/task/" + childId + "/subtree")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(4));
+        assertTrue(taskRepo.findById(grandchildId).isEmpty());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM task_tombstone WHERE creator_id = ? AND task_id IN (?, ?)",
+                Integer.class, userId, childId, grandchildId));
+        mvc.perform(get("/api/task/" + parentId + "/tree")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subtasks").isEmpty());
+    }
+
+
+    @Test
+    @Order(23)
+    public void poll_rejectedRequestsLeaveNoWaitingPoll_test() throws Exception {
+        mvc.perform(get("/api/task/stream/poll")
+                        .param("since", "not-a-cursor")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+        String cursor = objectMapper.readTree(mvc.perform(get("/api/task/changes")
+                        .param("limit", "1")
+                        .header("Authorization", authHeader))
+                .andReturn().getResponse().getContentAsString()).get("cursor").asText();
+        mvc.perform(get("/api/task/stream/poll")
+                        .param("since", cursor)
+                        .param("limit", "5000")
+                        .header("Authorization", authHeader))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, meterRegistry.get("task.push.connections").tag("kind", "poll").gauge().value());
+    }
+
+    @Test
+    @Order(24)
+    public void createAndUpdate_nameTooLong_test() throws Exception {
+        String name = "n".repeat(1001);
+        mvc.perform(post("/api/task")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(new CreateTaskRequest(
+                                name, LocalDateTime.now().plusDays(1), false, null))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.name").exists());
+
+        UUID id = createTask(new CreateTaskRequest("n".repeat(1000), LocalDateTime.now().plusDays(1), false, null));
+        CreateTaskRequest update = new CreateTaskRequest();
+        update.setName(name);
+        mvc.perform(put("/api/task/" + id)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.name").exists());
+    }
+
+    private UUID createTask(CreateTaskRequest request) throws Exception {
+        String created = mvc.perform(post("/api/task")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", authHeader)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return UUID.fromString(objectMapper.readTree(created).get("id").asText());
+    }
 }
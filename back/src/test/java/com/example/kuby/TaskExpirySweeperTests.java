@@ -0,0 +1,130 @@
+package com.example.kuby;
+
+import com.example.kuby.todolist.expiry.TaskExpirySweeper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the scheduled sweep runs once at startup and then stays out of the way, the test runs its own.
+// Small batches so two sweeps meet on the same partitions many times
+@SpringBootTest(classes = {KubyApplication.class}, properties = {
+        "task.expiry.sweep-delay-ms=3600000",
+        "task.expiry.batch-size=20",
+        "task.expiry.max-batches-per-run=1000"
+})
+public class TaskExpirySweeperTests extends TestContainersInitializer {
+    private static final int OVERDUE_TASKS = 2_000;
+    private static final int UPCOMING_TASKS = 100;
+
+    @Autowired
+    private TaskExpirySweeper taskExpirySweeper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void sweep_concurrentSweepsFlipEveryTaskOnce_test() throws Exception {
+        UUID userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, provider, is_email_submitted, roles) " +
+                "VALUES (?, ?, 'LOCAL', true, 'USER')", userId, "sweeper@email.com");
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < OVERDUE_TASKS; i++)
+            rows.add(new Object[]{UUID.randomUUID(), userId, "overdue " + i, Timestamp.valueOf(now.minusMinutes(1 + i))});
+        for (int i = 0; i < UPCOMING_TASKS; i++)
+            rows.add(new Object[]{UUID.randomUUID(), userId, "upcoming " + i, Timestamp.valueOf(now.plusDays(1).plusMinutes(i))});
+        jdbcTemplate.batchUpdate("INSERT INTO task (id, creator_id, name, dead_line, is_finished, is_expired, change_version) " +
+                "VALUES (?, ?, ?, ?, false, false, 0)", rows);
+
+        UUID lockedId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO task (id, creator_id, name, dead_line, is_finished, is_expired, change_version) " +
+                "VALUES (?, ?, 'locked', ?, false, false, 0)", lockedId, userId, Timestamp.valueOf(now.minusHours(2)));
+
+        // overdue tasks other test classes left behind are flipped by these sweeps as well
+        long pending = countPendingExpiry();
+        double expiredBefore = expiredCount();
+
+        // a task held by a writer is skipped, not waited for, and keeps the lag up until it is released
+        try (Connection writer = dataSource.getConnection()) {
+            writer.setAutoCommit(false);
+            try (PreparedStatement lock = writer.prepareStatement("SELECT id FROM task WHERE id = ? FOR UPDATE")) {
+                lock.setObject(1, lockedId);
+                lock.executeQuery().close();
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Void>> sweeps = List.of(
+                    CompletableFuture.runAsync(() -> awaitAndSweep(start)),
+                    CompletableFuture.runAsync(() -> awaitAndSweep(start)));
+            start.countDown();
+            CompletableFuture.allOf(sweeps.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+
+            assertEquals(pending - 1, expiredCount() - expiredBefore);
+            assertEquals(1, countPendingExpiry());
+            assertFalse(isExpired(lockedId));
+            assertTrue(lag() >= 2 * 60 * 60 - 60, () -> "lag was " + lag());
+            writer.rollback();
+        }
+
+        assertEquals(OVERDUE_TASKS, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM task WHERE creator_id = ? AND is_expired AND name LIKE 'overdue %'", Integer.class, userId));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM task WHERE creator_id = ? AND is_expired AND name LIKE 'upcoming %'", Integer.class, userId));
+
+        taskExpirySweeper.sweep();
+        assertEquals(pending, expiredCount() - expiredBefore);
+        assertTrue(isExpired(lockedId));
+        assertEquals(0, lag());
+        assertEquals(OVERDUE_TASKS + 1, jdbcTemplate.queryForObject(
+                "SELECT overdue FROM task_stats WHERE user_id = ?", Integer.class, userId));
+    }
+
+    private void awaitAndSweep(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        taskExpirySweeper.sweep();
+    }
+
+    private long countPendingExpiry() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM task WHERE is_expired = false AND dead_line < ?",
+                Long.class, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private boolean isExpired(UUID id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT is_expired FROM task WHERE id = ?", Boolean.class, id));
+    }
+
+    private double expiredCount() {
+        return meterRegistry.get("task.expiry.expired").counter().count();
+    }
+
+    private double lag() {
+        return meterRegistry.get("task.expiry.lag").gauge().value();
+    }
+}
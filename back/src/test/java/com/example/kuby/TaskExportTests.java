@@ -0,0 +1,130 @@
+package com.example.kuby;
+
+import com.example.kuby.security.models.request.LoginRequest;
+import com.example.kuby.security.models.request.SignUpRequest;
+import com.example.kuby.todolist.CreateTaskRequest;
+import com.example.kuby.todolist.TaskDTO;
+import com.example.kuby.todolist.TaskJdbcRepo;
+import com.example.kuby.todolist.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a real server with a short async timeout, an export that outlives it has to arrive whole
+@SpringBootTest(classes = {KubyApplication.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.mvc.async.request-timeout=500")
+@AutoConfigureMockMvc
+public class TaskExportTests extends TestContainersInitializer {
+    private static final String PASSWORD = "fsfsDSF@545AADFDGEWE3AR";
+    private static final int TASKS = 10;
+    private static final long ROW_DELAY_MS = 150;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private TaskJdbcRepo taskJdbcRepo;
+    @SpyBean
+    private TaskService taskService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private String authHeader;
+
+    @BeforeEach
+    public void signUpWithTasks() throws Exception {
+        String email = "export-" + UUID.randomUUID() + "@email.com";
+        mvc.perform(post("/api/user/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new SignUpRequest(email, PASSWORD))))
+                .andExpect(status().isCreated());
+        authHeader = mvc.perform(post("/api/user/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(email, PASSWORD))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+
+        for (int i = 0; i < TASKS; i++)
+            mvc.perform(post("/api/task")
+                            .characterEncoding(StandardCharsets.UTF_8)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Authorization", authHeader)
+                            .content(objectMapper.writeValueAsString(new CreateTaskRequest(
+                                    "export " + i, LocalDateTime.now().plusDays(1 + i), false, null))))
+                    .andExpect(status().isCreated());
+    }
+
+    @Test
+    public void export_outlivesTheAsyncTimeout_test() {
+        // every row takes its time, the whole export takes three times the async timeout
+        doAnswer(invocation -> {
+            UUID userId = invocation.getArgument(0);
+            Consumer<TaskDTO> consumer = invocation.getArgument(1);
+            taskJdbcRepo.streamAllByCreatorId(userId, LocalDateTime.now(), task -> {
+                try {
+                    Thread.sleep(ROW_DELAY_MS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                consumer.accept(task);
+            });
+            return null;
+        }).when(taskService).streamAll(any(), any());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, authHeader);
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "identity");
+        ResponseEntity<String> response = restTemplate.exchange("/api/task/export?format=csv", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String[] lines = response.getBody().split("\r\n");
+        assertEquals(TASKS + 1, lines.length);
+        assertEquals("export " + (TASKS - 1), lines[TASKS].split(",")[2]);
+    }
+
+    @Test
+    public void export_gzipOnlyWhenAccepted_test() throws Exception {
+        mvc.perform(get("/api/task/export")
+                        .header("Authorization", authHeader)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        mvc.perform(get("/api/task/export")
+                        .header("Authorization", authHeader)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        mvc.perform(get("/api/task/export")
+                        .header("Authorization", authHeader)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "*;q=0.1, gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.kuby;
+
+import com.example.kuby.todolist.TaskPage;
+import com.example.kuby.todolist.cache.TaskListCache;
+import com.example.kuby.todolist.cache.TaskListVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Redis is a mock that can be made to fail, the L2 hash always misses
+public class TaskListCacheTests {
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class, Answers.RETURNS_DEEP_STUBS);
+    private final TaskListVersion taskListVersion = new TaskListVersion(redisTemplate);
+    private final TaskListCache cache = new TaskListCache(redisTemplate, taskListVersion, new ObjectMapper(),
+            mock(RedisMessageListenerContainer.class), new SimpleMeterRegistry(), 100, 30, 10);
+
+    private final UUID userId = UUID.randomUUID();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<TaskPage> loader = () -> {
+        loads.incrementAndGet();
+        return new TaskPage(List.of(), null);
+    };
+
+    @Test
+    public void invalidate_failedBumpBypassesTheCacheUntilRetried_test() {
+        versionIs(5L);
+        cache.get(userId, "page", loader);
+        cache.get(userId, "page", loader);
+        assertEquals(1, loads.get());
+
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("Redis is down"));
+        cache.invalidate(userId);
+
+        // the cached page is from before the write and the version still names it
+        assertTrue(taskListVersion.isStale(userId));
+        assertNull(taskListVersion.etag(userId));
+        cache.get(userId, "page", loader);
+        cache.get(userId, "page", loader);
+        assertEquals(3, loads.get());
+
+        cache.retryFailedInvalidations();
+        assertTrue(taskListVersion.isStale(userId));
+
+        versionIs(6L);
+        cache.retryFailedInvalidations();
+        assertFalse(taskListVersion.isStale(userId));
+        assertEquals("\"6\"", taskListVersion.etag(userId));
+        cache.get(userId, "page", loader);
+        cache.get(userId, "page", loader);
+        assertEquals(4, loads.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void versionIs(long version) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(version);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.kuby;
+
+import com.example.kuby.todolist.reminder.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelTests {
+    private static final long START = 1_000_000;
+
+    @Test
+    public void advance_firesEntriesInTheirTick_test() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, START);
+        assertTrue(wheel.add("a", START + 250));
+        assertTrue(wheel.add("b", START + 520));
+
+        assertTrue(wheel.advance(START + 199).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(START + 200));
+        assertTrue(wheel.advance(START + 499).isEmpty());
+        assertEquals(List.of("b"), wheel.advance(START + 500));
+    }
+
+    @Test
+    public void add_rejectsEntriesDueInCurrentTick_test() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, START);
+
+        assertFalse(wheel.add("now", START + 50));
+        assertFalse(wheel.add("late", START - 5_000));
+    }
+
+    @Test
+    public void advance_cascadesFromOverflowLevels_test() {
+        // level spans are 800ms, 6.4s and 51.2s
+        TimingWheel<Long> wheel = new TimingWheel<>(100, 8, START);
+        List<Long> dueTimes = List.of(START + 900, START + 7_000, START + 30_000, START + 60_000);
+        dueTimes.forEach(due -> assertTrue(wheel.add(due, due)));
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = START; now <= START + 61_000; now += 100) {
+            for (Long due : wheel.advance(now)) {
+                assertTrue(now >= due - 100 && now <= due, "fired " + due + " at " + now);
+                fired.add(due);
+            }
+        }
+        assertEquals(dueTimes, fired);
+    }
+
+    @Test
+    public void advance_afterStallFiresEverythingOverdue_test() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, START);
+        wheel.add("near", START + 300);
+        wheel.add("far", START + 20_000);
+        wheel.add("later", START + 90_000);
+
+        assertEquals(Set.of("near", "far"), new HashSet<>(wheel.advance(START + 60_000)));
+        assertEquals(List.of("later"), wheel.advance(START + 90_000));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.kuby;
+
+import com.example.kuby.utils.UuidV7;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UuidV7Tests {
+    @Test
+    public void generate_versionAndVariant_test() {
+        UUID uuid = UuidV7.generate();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(Math.abs(UuidV7.timestampMillis(uuid) - System.currentTimeMillis()) < 1000);
+    }
+
+    @Test
+    public void generate_monotonicWithinMillisecond_test() {
+        // far more ids than fit the 12 bit counter of one millisecond
+        UUID previous = UuidV7.generate();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7.generate();
+            assertTrue(previous.compareTo(next) < 0, previous + " is not before " + next);
+            previous = next;
+        }
+    }
+}
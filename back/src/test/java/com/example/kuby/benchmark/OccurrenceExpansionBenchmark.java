@@ -0,0 +1,105 @@
+package com.example.kuby.benchmark;
+
+import com.example.kuby.todolist.recurrence.OccurrenceIterator;
+import com.example.kuby.todolist.recurrence.RecurrenceFrequency;
+import com.example.kuby.todolist.recurrence.RecurrenceRule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// expands a month window of 50 series started ageYears before it, as GET /api/task/series/occurrences does, against
+// walking each series from its start with LocalDateTime. The naive walk grows with the age of the series
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OccurrenceExpansionBenchmark {
+    private static final int SERIES_COUNT = 50;
+
+    @Param({"DAILY", "WEEKLY"})
+    private RecurrenceFrequency frequency;
+    @Param({"1", "10"})
+    private int ageYears;
+
+    private final List<LocalDateTime> starts = new ArrayList<>(SERIES_COUNT);
+    private RecurrenceRule rule;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup
+    public void setUp() {
+        from = LocalDateTime.of(2030, 6, 1, 0, 0);
+        to = from.plusMonths(1);
+        // weekdays, a start on a weekend is only the first occurrence
+        rule = new RecurrenceRule(frequency, 1, frequency == RecurrenceFrequency.WEEKLY ? 0b0011111 : 0, null, null);
+
+        starts.clear();
+        for (int i = 0; i < SERIES_COUNT; i++)
+            starts.add(from.minusYears(ageYears).plusDays(i % 7).withHour(6 + i % 12).withMinute(i));
+
+        for (LocalDateTime start : starts) {
+            List<LocalDateTime> expected = naive(start);
+            List<LocalDateTime> actual = iterated(start);
+            if (!expected.equals(actual))
+                throw new IllegalStateException("Expansions disagree, expected " + expected + " but was " + actual);
+        }
+    }
+
+    @Benchmark
+    public void iterator(Blackhole blackhole) {
+        long fromSeconds = OccurrenceIterator.toLocalSeconds(from);
+        long toSeconds = OccurrenceIterator.toLocalSeconds(to);
+        for (LocalDateTime start : starts) {
+            OccurrenceIterator occurrences = new OccurrenceIterator(start, rule);
+            occurrences.skipTo(fromSeconds);
+            long next;
+            while ((next = occurrences.next()) != OccurrenceIterator.NONE && next < toSeconds)
+                blackhole.consume(next);
+        }
+    }
+
+    @Benchmark
+    public void localDateTime(Blackhole blackhole) {
+        for (LocalDateTime start : starts)
+            for (LocalDateTime time : naive(start))
+                blackhole.consume(time);
+    }
+
+    private List<LocalDateTime> iterated(LocalDateTime start) {
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        OccurrenceIterator iterator = new OccurrenceIterator(start, rule);
+        iterator.skipTo(OccurrenceIterator.toLocalSeconds(from));
+        long next;
+        while ((next = iterator.next()) != OccurrenceIterator.NONE && next < OccurrenceIterator.toLocalSeconds(to))
+            occurrences.add(OccurrenceIterator.toLocalDateTime(next));
+        return occurrences;
+    }
+
+    // day by day from the start, keeping the days the rule fires on
+    private List<LocalDateTime> naive(LocalDateTime start) {
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        for (LocalDateTime time = start; time.isBefore(to); time = time.plusDays(1)) {
+            boolean fires = frequency == RecurrenceFrequency.DAILY
+                    || time.equals(start)
+                    || RecurrenceRule.includes(rule.byDay(), time.getDayOfWeek());
+            if (fires && !time.isBefore(from))
+                occurrences.add(time);
+        }
+        return occurrences;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OccurrenceExpansionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.kuby.benchmark;
+
+import com.example.kuby.utils.UuidV7;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// inserts into a task shaped table that is already seeded with a large number of rows, once with random v4 ids and
+// once with UuidV7, the gap widens as the primary key index outgrows shared_buffers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TaskIdInsertBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"v4", "v7"})
+    private String idStrategy;
+
+    @Param({"2000000"})
+    private int seededRows;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+    private PreparedStatement insert;
+    private Supplier<UUID> ids;
+    private final UUID creatorId = UuidV7.generate();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // small shared_buffers so the index stops fitting in memory at a seed size that loads in reasonable time
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"))
+                .withCommand("postgres", "-c", "shared_buffers=32MB", "-c", "fsync=off");
+        postgres.start();
+
+        connection = DriverManager.getConnection(postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                postgres.getUsername(), postgres.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE task (" +
+                    "id UUID PRIMARY KEY, " +
+                    "creator_id UUID NOT NULL, " +
+                    "name VARCHAR(1000) NOT NULL, " +
+                    "dead_line TIMESTAMP NOT NULL, " +
+                    "is_finished BOOLEAN NOT NULL DEFAULT false, " +
+                    "is_expired BOOLEAN NOT NULL DEFAULT false, " +
+                    "change_version BIGINT NOT NULL DEFAULT 0)");
+        }
+
+        ids = idStrategy.equals("v7") ? UuidV7::generate : UUID::randomUUID;
+        insert = connection.prepareStatement("INSERT INTO task (id, creator_id, name, dead_line) VALUES (?, ?, ?, ?)");
+
+        connection.setAutoCommit(false);
+        for (int seeded = 0; seeded < seededRows; seeded += BATCH_SIZE)
+            insertBatch();
+        connection.commit();
+
+        try (Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.execute("VACUUM ANALYZE task");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    // rows per second is the score multiplied by the batch size
+    @Benchmark
+    public int[] insertBatch() throws SQLException {
+        Timestamp deadLine = Timestamp.valueOf(LocalDateTime.now().plusDays(1));
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, ids.get());
+            insert.setObject(2, creatorId);
+            insert.setString(3, "benchmark task");
+            insert.setTimestamp(4, deadLine);
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskIdInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.kuby.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// the search query of TaskJdbcRepo against a seeded table with the V4 indexes, next to downloading every task of the
+// user the way TodoListScreen filters today. The plan of the search is printed once so the index use can be checked
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TaskSearchBenchmark {
+    private static final String SEARCH_SQL = "SELECT id, name, " +
+            "CAST((to_tsvector('simple', name) @@ to_tsquery('simple', ?))::int + word_similarity(?, name) AS double precision) AS score " +
+            "FROM task " +
+            "WHERE creator_id = ? AND (to_tsvector('simple', name) @@ to_tsquery('simple', ?) OR ? <% name) " +
+            "ORDER BY score DESC, id " +
+            "LIMIT 20";
+
+    private static final String DOWNLOAD_ALL_SQL = "SELECT id, name FROM task WHERE creator_id = ? ORDER BY dead_line, id";
+
+    @Param({"2000000"})
+    private int seededRows;
+
+    @Param({"1000"})
+    private int tasksPerUser;
+
+    @Param({"invoice", "invo", "invoise"})
+    private String query;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+    private PreparedStatement search;
+    private PreparedStatement downloadAll;
+    private UUID creatorId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"))
+                .withCommand("postgres", "-c", "fsync=off");
+        postgres.start();
+
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION pg_trgm");
+            statement.execute("CREATE EXTENSION btree_gin");
+            statement.execute("CREATE TABLE task (" +
+                    "id UUID PRIMARY KEY, " +
+                    "creator_id UUID NOT NULL, " +
+                    "name VARCHAR(1000) NOT NULL, " +
+                    "dead_line TIMESTAMP NOT NULL)");
+
+            // four words out of a small vocabulary per name, so every user has a few hundred hits for a common word
+            statement.execute("INSERT INTO task (id, creator_id, name, dead_line) " +
+                    "SELECT gen_random_uuid(), " +
+                    "       ('00000000-0000-0000-0000-' || lpad(to_hex(n / " + tasksPerUser + "), 12, '0'))::uuid, " +
+                    "       w[1 + (random() * 19)::int] || ' ' || w[1 + (random() * 19)::int] || ' ' || " +
+                    "       w[1 + (random() * 19)::int] || ' ' || w[1 + (random() * 19)::int], " +
+                    "       now() + n * interval '1 second' " +
+                    "FROM generate_series(0, " + (seededRows - 1) + ") n, " +
+                    "     (SELECT ARRAY['pay', 'invoice', 'call', 'mom', 'buy', 'milk', 'bread', 'book', 'flight', 'hotel', " +
+                    "                   'review', 'report', 'clean', 'kitchen', 'walk', 'dog', 'fix', 'bike', 'send', 'email'] w) words");
+
+            statement.execute("CREATE INDEX task_creator_dead_line_idx ON task (creator_id, dead_line, id)");
+            statement.execute("CREATE INDEX task_creator_name_tsv_idx ON task USING gin (creator_id, to_tsvector('simple', name))");
+            statement.execute("CREATE INDEX task_creator_name_trgm_idx ON task USING gin (creator_id, name gin_trgm_ops)");
+            statement.execute("VACUUM ANALYZE task");
+        }
+
+        creatorId = new UUID(0, seededRows / tasksPerUser / 2);
+        search = connection.prepareStatement(SEARCH_SQL);
+        downloadAll = connection.prepareStatement(DOWNLOAD_ALL_SQL);
+
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + SEARCH_SQL)) {
+            bindSearch(explain);
+            try (ResultSet plan = explain.executeQuery()) {
+                while (plan.next())
+                    System.out.println(plan.getString(1));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public int search() throws SQLException {
+        bindSearch(search);
+        return count(search);
+    }
+
+    @Benchmark
+    public int downloadAll() throws SQLException {
+        downloadAll.setObject(1, creatorId);
+        return count(downloadAll);
+    }
+
+    private void bindSearch(PreparedStatement statement) throws SQLException {
+        statement.setString(1, query + ":*");
+        statement.setString(2, query);
+        statement.setObject(3, creatorId);
+        statement.setString(4, query + ":*");
+        statement.setString(5, query);
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next())
+                rows++;
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
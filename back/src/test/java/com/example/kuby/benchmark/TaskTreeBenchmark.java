@@ -0,0 +1,197 @@
+package com.example.kuby.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// loads one subtree with the recursive CTE of TaskJdbcRepo against fetching the children of every node on its own,
+// on a deep tree (a chain of MAX_TREE_DEPTH levels with two leaves on each) and a wide one (50 x 20 under the root).
+// Other users' rows fill the table so both have to go through task_creator_parent_idx
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TaskTreeBenchmark {
+    private static final int DEPTH = 32;
+
+    private static final String SUBTREE_SQL = "WITH RECURSIVE subtree (node_id, depth) AS (" +
+            "    SELECT id, 1 FROM task WHERE id = ? AND creator_id = ? " +
+            "    UNION ALL " +
+            "    SELECT task.id, subtree.depth + 1 FROM subtree " +
+            "    JOIN task ON task.creator_id = ? AND task.parent_id = subtree.node_id " +
+            "    WHERE subtree.depth < " + DEPTH +
+            ") " +
+            "SELECT id, parent_id, name FROM task " +
+            "JOIN subtree ON task.id = subtree.node_id " +
+            "WHERE task.creator_id = ? " +
+            "ORDER BY dead_line, id";
+
+    private static final String CHILDREN_SQL = "SELECT id, parent_id, name FROM task " +
+            "WHERE creator_id = ? AND parent_id = ? " +
+            "ORDER BY dead_line, id";
+
+    @Param({"2000000"})
+    private int seededRows;
+
+    @Param({"DEEP", "WIDE"})
+    private String shape;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+    private PreparedStatement subtree;
+    private PreparedStatement children;
+    private final UUID creatorId = UUID.randomUUID();
+    private final UUID rootId = UUID.randomUUID();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"))
+                .withCommand("postgres", "-c", "fsync=off");
+        postgres.start();
+
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE task (" +
+                    "id UUID PRIMARY KEY, " +
+                    "creator_id UUID NOT NULL, " +
+                    "parent_id UUID, " +
+                    "name VARCHAR(1000) NOT NULL, " +
+                    "dead_line TIMESTAMP NOT NULL)");
+
+            // a thousand other users, every tenth of their tasks a subtask
+            statement.execute("INSERT INTO task (id, creator_id, parent_id, name, dead_line) " +
+                    "SELECT gen_random_uuid(), " +
+                    "       ('00000000-0000-0000-0000-' || lpad(to_hex(n % 1000), 12, '0'))::uuid, " +
+                    "       CASE WHEN n % 10 = 9 THEN gen_random_uuid() END, " +
+                    "       'task ' || n, now() + n * interval '1 second' " +
+                    "FROM generate_series(0, " + (seededRows - 1) + ") n");
+        }
+        seedTree();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX task_creator_parent_idx ON task (creator_id, parent_id) WHERE parent_id IS NOT NULL");
+            statement.execute("VACUUM ANALYZE task");
+        }
+
+        subtree = connection.prepareStatement(SUBTREE_SQL);
+        children = connection.prepareStatement(CHILDREN_SQL);
+
+        int recursive = subtree();
+        int levelByLevel = levelByLevel();
+        if (recursive != levelByLevel)
+            throw new IllegalStateException("Loads disagree, " + recursive + " rows against " + levelByLevel);
+        System.out.println(shape + " tree of " + recursive + " tasks");
+
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + SUBTREE_SQL)) {
+            bindSubtree(explain);
+            try (ResultSet plan = explain.executeQuery()) {
+                while (plan.next())
+                    System.out.println(plan.getString(1));
+            }
+        }
+    }
+
+    private void seedTree() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO task (id, creator_id, parent_id, name, dead_line) VALUES (?, ?, ?, ?, now() + ? * interval '1 minute')")) {
+            int[] order = {0};
+            addTask(insert, rootId, null, order);
+            if (shape.equals("DEEP")) {
+                UUID parent = rootId;
+                for (int level = 1; level < DEPTH; level++) {
+                    addTask(insert, UUID.randomUUID(), parent, order);
+                    addTask(insert, UUID.randomUUID(), parent, order);
+                    UUID next = UUID.randomUUID();
+                    addTask(insert, next, parent, order);
+                    parent = next;
+                }
+            } else {
+                for (int i = 0; i < 50; i++) {
+                    UUID child = UUID.randomUUID();
+                    addTask(insert, child, rootId, order);
+                    for (int j = 0; j < 20; j++)
+                        addTask(insert, UUID.randomUUID(), child, order);
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void addTask(PreparedStatement insert, UUID id, UUID parentId, int[] order) throws SQLException {
+        insert.setObject(1, id);
+        insert.setObject(2, creatorId);
+        insert.setObject(3, parentId);
+        insert.setString(4, "subtask " + order[0]);
+        insert.setInt(5, order[0]++);
+        insert.addBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public int subtree() throws SQLException {
+        bindSubtree(subtree);
+        return count(subtree);
+    }
+
+    // the root, then one query per task for its children
+    @Benchmark
+    public int levelByLevel() throws SQLException {
+        int rows = 1;
+        Deque<UUID> pending = new ArrayDeque<>();
+        pending.add(rootId);
+        while (!pending.isEmpty()) {
+            children.setObject(1, creatorId);
+            children.setObject(2, pending.poll());
+            try (ResultSet rs = children.executeQuery()) {
+                while (rs.next()) {
+                    pending.add(rs.getObject(1, UUID.class));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void bindSubtree(PreparedStatement statement) throws SQLException {
+        statement.setObject(1, rootId);
+        statement.setObject(2, creatorId);
+        statement.setObject(3, creatorId);
+        statement.setObject(4, creatorId);
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next())
+                rows++;
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskTreeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
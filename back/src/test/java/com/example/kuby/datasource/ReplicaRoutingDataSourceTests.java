@@ -0,0 +1,65 @@
+package com.example.kuby.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// both pools are mocks, the replica's replay check answers with whatever the test stubs
+public class ReplicaRoutingDataSourceTests {
+    private static final String USERNAME = "reporting";
+    private static final String PASSWORD = "secret";
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final ReplicaRoutingDataSource dataSource =
+            new ReplicaRoutingDataSource("test", primary, replica, 0, new SimpleMeterRegistry());
+
+    @AfterEach
+    public void clear() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ConsistencyTokenContext.clear();
+    }
+
+    @Test
+    public void getConnectionWithCredentials_readWrite_usesPrimary_test() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(primary.getConnection(USERNAME, PASSWORD)).thenReturn(connection);
+
+        assertSame(connection, dataSource.getConnection(USERNAME, PASSWORD));
+    }
+
+    @Test
+    public void getConnectionWithCredentials_readOnly_usesReplica_test() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection connection = mock(Connection.class);
+        when(replica.getConnection(USERNAME, PASSWORD)).thenReturn(connection);
+
+        assertSame(connection, dataSource.getConnection(USERNAME, PASSWORD));
+    }
+
+    @Test
+    public void getConnectionWithCredentials_replicaLagging_fallsBackToPrimary_test() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ConsistencyTokenContext.set("0/16B3748");
+        Connection lagging = mock(Connection.class, Answers.RETURNS_DEEP_STUBS);
+        when(lagging.prepareStatement(anyString()).executeQuery().next()).thenReturn(false);
+        when(replica.getConnection(USERNAME, PASSWORD)).thenReturn(lagging);
+        Connection connection = mock(Connection.class);
+        when(primary.getConnection(USERNAME, PASSWORD)).thenReturn(connection);
+
+        assertSame(connection, dataSource.getConnection(USERNAME, PASSWORD));
+        verify(lagging).close();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.kuby.todolist.ical;
+
+import com.example.kuby.exceptions.BasicException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// triggers that parse but cannot be applied are rejected like any other bad field
+public class ICalendarTaskMapperTests {
+    private static final ZoneId ZONE = ZoneId.of("UTC");
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Test
+    public void map_relativeTrigger_test() throws IOException {
+        ICalendarTaskMapper.ImportedTask task = ICalendarTaskMapper.map(todo("-P1W"), ZONE, NOW);
+        assertEquals(LocalDateTime.of(2030, 6, 8, 12, 0), task.notificationDateTime());
+    }
+
+    @Test
+    public void map_triggerOutOfRange_rejectsTheItem_test() throws IOException {
+        VTodo todo = todo("-P999999999999D");
+        BasicException ex = assertThrows(BasicException.class, () -> ICalendarTaskMapper.map(todo, ZONE, NOW));
+        assertEquals("Alarm trigger is out of range: -P999999999999D", ex.getErrors().get("notificationDateTime"));
+    }
+
+    @Test
+    public void map_weeksOverflow_rejectsTheItem_test() throws IOException {
+        VTodo todo = todo("-P2000000000000000000W");
+        BasicException ex = assertThrows(BasicException.class, () -> ICalendarTaskMapper.map(todo, ZONE, NOW));
+        assertEquals("Alarm trigger has invalid format: -P2000000000000000000W", ex.getErrors().get("notificationDateTime"));
+    }
+
+    private static VTodo todo(String trigger) throws IOException {
+        String calendar = String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "BEGIN:VTODO",
+                "SUMMARY:Renew passport",
+                "DUE:20300615T120000Z",
+                "BEGIN:VALARM",
+                "TRIGGER:" + trigger,
+                "END:VALARM",
+                "END:VTODO",
+                "END:VCALENDAR",
+                "");
+        return new ICalendarReader(new StringReader(calendar), 1000).next();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.kuby.todolist.partition;
+
+import com.example.kuby.datasource.ShardedDataSources;
+import com.example.kuby.datasource.UserShards;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// a database populated before V3 is moved into the partitioned table while tasks keep being written and deleted
+@Testcontainers
+public class TaskPartitionMigratorTests {
+    private static final int USERS = 20;
+    private static final int SEEDED_TASKS = 5_000;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+
+    @Test
+    public void migrate_keepsConcurrentWritesAndSwaps_test() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        flyway(dataSource, "2").migrate();
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO users (id, email, provider, is_email_submitted, roles) " +
+                    "VALUES (?, ?, 'LOCAL', true, 'USER')", userId, "migrate" + i + "@email.com");
+            users.add(userId);
+        }
+
+        // the expected content of task, kept by the writer below as it goes
+        Map<UUID, String> expected = new ConcurrentHashMap<>();
+        List<UUID> seeded = new ArrayList<>();
+        for (int i = 0; i < SEEDED_TASKS; i++) {
+            UUID id = UUID.randomUUID();
+            insertTask(jdbcTemplate, id, users.get(i % USERS), "seeded " + i);
+            expected.put(id, "seeded " + i);
+            seeded.add(id);
+        }
+
+        // a populated table keeps task as it is, the shadow is left for the migrator
+        flyway(dataSource, "latest").migrate();
+        assertEquals("r", relkind(jdbcTemplate, "task"));
+        assertEquals("p", relkind(jdbcTemplate, "task_partitioned"));
+
+        TaskPartitionMigrator migrator = new TaskPartitionMigrator(dataSource,
+                new UserShards(new StaticListableBeanFactory().getBeanProvider(ShardedDataSources.class)), 100, 5);
+
+        AtomicBoolean migrated = new AtomicBoolean();
+        CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> {
+            int writes = 0;
+            for (int i = 0; !migrated.get() || writes == 0; i++) {
+                UUID id = UUID.randomUUID();
+                insertTask(jdbcTemplate, id, users.get(i % USERS), "written " + i);
+                expected.put(id, "written " + i);
+
+                // spread over the whole id range, so some land behind the backfill and some ahead of it
+                UUID renamed = seeded.get((i * 7) % SEEDED_TASKS);
+                if (jdbcTemplate.update("UPDATE task SET name = ? WHERE id = ?", "renamed " + i, renamed) == 1)
+                    expected.put(renamed, "renamed " + i);
+
+                UUID deleted = seeded.get((i * 13 + 1) % SEEDED_TASKS);
+                jdbcTemplate.update("DELETE FROM task WHERE id = ?", deleted);
+                expected.remove(deleted);
+                writes++;
+            }
+            return writes;
+        });
+
+        migrator.migrate();
+        migrated.set(true);
+        assertTrue(writer.get(1, TimeUnit.MINUTES) > 0);
+
+        assertEquals("p", relkind(jdbcTemplate, "task"));
+        assertEquals("r", relkind(jdbcTemplate, "task_unpartitioned"));
+        assertFalse(Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('task_partitioned') IS NOT NULL", Boolean.class)));
+
+        Map<UUID, String> actual = new ConcurrentHashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM task", rs -> {
+            actual.put(rs.getObject("id", UUID.class), rs.getString("name"));
+        });
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+
+    private static Flyway flyway(DriverManagerDataSource dataSource, String target) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("taskPartitions", "16"))
+                .target(target)
+                .load();
+    }
+
+    private static void insertTask(JdbcTemplate jdbcTemplate, UUID id, UUID creatorId, String name) {
+        jdbcTemplate.update("INSERT INTO task (id, creator_id, name, dead_line, is_finished, is_expired) " +
+                "VALUES (?, ?, ?, ?, false, false)", id, creatorId, name, Timestamp.valueOf(LocalDateTime.now().plusDays(1)));
+    }
+
+    private static String relkind(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, table);
+    }
+}